@@ -0,0 +1,71 @@
+package com.example.wechat.benchmark;
+
+import com.example.wechat.model.*;
+import org.bson.types.ObjectId;
+
+import java.util.*;
+
+/**
+ * 基准测试用的种子数据，固定随机种子，保证每次运行的数据完全一致。
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42L;
+
+    private static final String[] OPTIONS = {"A", "B", "C", "D"};
+
+    private BenchmarkData() {
+    }
+
+    static List<Question> questions(int count, Category category) {
+        Random random = new Random(SEED);
+        List<Question> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Question question = new Question();
+            question.setId(new ObjectId(new Date(1700000000000L + i * 1000L), i));
+            question.setStem("第" + i + "题：犬瘟热的典型症状是什么？");
+            question.setOptionList(Arrays.asList("发热", "呕吐", "咳嗽", "以上都是"));
+            question.setAnswer(OPTIONS[random.nextInt(OPTIONS.length)]);
+            question.setScore(1 + random.nextInt(5));
+            question.setVisible(true);
+            question.setCategory(category);
+            questions.add(question);
+        }
+        return questions;
+    }
+
+    static List<String> answers(List<Question> questions) {
+        Random random = new Random(SEED + 1);
+        List<String> answers = new ArrayList<>(questions.size());
+        for (Question question : questions) {
+            // 约一半答对
+            answers.add(random.nextBoolean() ? question.getAnswer() : OPTIONS[random.nextInt(OPTIONS.length)]);
+        }
+        return answers;
+    }
+
+    static List<ExamRecord> examRecords(int count, Exam exam) {
+        Random random = new Random(SEED + 2);
+        List<ExamRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setId(new ObjectId(new Date(1700000000000L + i * 1000L), i));
+            user.setUsername("user" + i);
+
+            ExamRecord record = new ExamRecord();
+            record.setId(new ObjectId(new Date(1700000000000L + i * 1000L), i + 1));
+            record.setExam(exam);
+            record.setUser(user);
+            record.setScore(random.nextInt(101));
+            record.setStatus(random.nextInt(10) == 0 ? "未完成" : "已完成");
+            records.add(record);
+        }
+        return records;
+    }
+
+    static byte[] bytes(int size) {
+        byte[] data = new byte[size];
+        new Random(SEED + 3).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.wechat.benchmark;
+
+import com.example.wechat.model.Exam;
+import com.example.wechat.model.ExamRecord;
+import com.example.wechat.mongo.DbRefBatchReader;
+import com.example.wechat.service.ExamRecordService;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ExamRecordService.findExamRecordsByExamId 的筛选与按分数排序。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ExamRecordBenchmark {
+
+    @Param({"100", "5000"})
+    private int recordCount;
+
+    private ExamRecordService examRecordService;
+    private String examId;
+
+    @Setup
+    public void setup() {
+        Exam exam = new Exam();
+        exam.setId(new ObjectId());
+        examId = exam.getId().toHexString();
+        List<ExamRecord> records = BenchmarkData.examRecords(recordCount, exam);
+
+        DbRefBatchReader dbRefBatchReader = mock(DbRefBatchReader.class);
+        when(dbRefBatchReader.find(any(Query.class), eq(ExamRecord.class))).thenAnswer(invocation -> new ArrayList<>(records));
+
+        examRecordService = new ExamRecordService();
+        ReflectionTestUtils.setField(examRecordService, "dbRefBatchReader", dbRefBatchReader);
+    }
+
+    @Benchmark
+    public List<ExamRecord> sortByScore() {
+        return examRecordService.findExamRecordsByExamId(examId, "score", null);
+    }
+
+    @Benchmark
+    public List<ExamRecord> filterByStatus() {
+        return examRecordService.findExamRecordsByExamId(examId, null, "已完成");
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.wechat.benchmark;
+
+import com.example.wechat.model.File;
+import com.example.wechat.service.FileService;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * FileService 读取 GridFS 文件：displayFile 整体读入内存，copyRange 按缓冲区流式写出。
+ * GridFS 由内存中的字节数组代替。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class FileServiceBenchmark {
+
+    @Param({"65536", "4194304"})
+    private int fileSize;
+
+    private FileService fileService;
+    private GridFSFile gridFSFile;
+    private String fileId;
+
+    @Setup
+    public void setup() {
+        byte[] content = BenchmarkData.bytes(fileSize);
+        ObjectId id = new ObjectId();
+        fileId = id.toHexString();
+        gridFSFile = new GridFSFile(new BsonObjectId(id), "scan.png", content.length, 255 * 1024, new Date(),
+                new Document("contentType", "image/png"));
+
+        GridFsTemplate gridFsTemplate = mock(GridFsTemplate.class);
+        when(gridFsTemplate.findOne(any(Query.class))).thenReturn(gridFSFile);
+        GridFsOperations operations = mock(GridFsOperations.class);
+        when(operations.getResource(any(GridFSFile.class)))
+                .thenAnswer(invocation -> new GridFsResource(gridFSFile, new ByteArrayInputStream(content)));
+
+        fileService = new FileService();
+        ReflectionTestUtils.setField(fileService, "gridFsTemplate", gridFsTemplate);
+        ReflectionTestUtils.setField(fileService, "operations", operations);
+    }
+
+    @Benchmark
+    public File displayFile() throws IOException {
+        return fileService.displayFile(fileId);
+    }
+
+    @Benchmark
+    public void copyRange() throws IOException {
+        fileService.copyRange(gridFSFile, 0, gridFSFile.getLength(), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.wechat.benchmark;
+
+import com.example.wechat.model.*;
+import com.example.wechat.mongo.DbRefBatchReader;
+import com.example.wechat.repository.UserRepository;
+import com.example.wechat.service.*;
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * QuestionService.checkQuestionAnswers 的评分路径。
+ * MongoTemplate 由 Mockito 替身返回种子数据，测得的是评分逻辑本身的开销（含少量替身调用开销），不含网络往返。
+ * cached=true 时答案来自 ExamQuestionCache，false 时走 $in 读取答案表。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class GradingBenchmark {
+
+    @Param({"20", "100"})
+    private int questionCount;
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private QuestionService questionService;
+    private List<Question> questions;
+    private List<String> answers;
+    private String examId;
+    private String userId;
+
+    @Setup
+    public void setup() {
+        Category category = new Category("犬科");
+        category.setId(new ObjectId());
+        questions = BenchmarkData.questions(questionCount, category);
+        answers = BenchmarkData.answers(questions);
+        ObjectId examObjId = new ObjectId();
+        examId = examObjId.toHexString();
+        userId = new ObjectId().toHexString();
+
+        Exam exam = new Exam();
+        exam.setId(examObjId);
+        exam.setStatus("进行中");
+        exam.setScore(100);
+
+        List<Document> answerDocs = new ArrayList<>();
+        List<DBRef> questionRefs = new ArrayList<>();
+        for (Question question : questions) {
+            answerDocs.add(new Document("_id", question.getId())
+                    .append("answer", question.getAnswer())
+                    .append("score", question.getScore())
+                    .append("category", new DBRef("category", category.getId())));
+            questionRefs.add(new DBRef("question", question.getId()));
+        }
+
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.findOne(any(Query.class), eq(Exam.class))).thenReturn(exam);
+        when(mongoTemplate.findOne(any(Query.class), eq(ExamRecord.class))).thenReturn(null);
+        when(mongoTemplate.insert(any(ExamRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(mongoTemplate.getCollectionName(Question.class)).thenReturn("question");
+        when(mongoTemplate.getCollectionName(Exam.class)).thenReturn("exam");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("question"))).thenReturn(answerDocs);
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq("exam")))
+                .thenReturn(new Document("_id", examObjId).append("status", "进行中").append("questionList", questionRefs));
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(QuestionRecord.class))).thenReturn(mock(BulkOperations.class));
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.existsById(any(ObjectId.class))).thenReturn(true);
+
+        ExamQuestionCache examQuestionCache;
+        if (cached) {
+            DbRefBatchReader dbRefBatchReader = mock(DbRefBatchReader.class);
+            when(dbRefBatchReader.find(any(Query.class), eq(Question.class))).thenReturn(questions);
+            examQuestionCache = new ExamQuestionCache();
+            ReflectionTestUtils.setField(examQuestionCache, "mongoTemplate", mongoTemplate);
+            ReflectionTestUtils.setField(examQuestionCache, "dbRefBatchReader", dbRefBatchReader);
+            // 预热缓存，测量阶段只读内存
+            examQuestionCache.get(examObjId);
+        } else {
+            examQuestionCache = mock(ExamQuestionCache.class);
+        }
+
+        ExamGradingService examGradingService = new ExamGradingService();
+        ReflectionTestUtils.setField(examGradingService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(examGradingService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(examGradingService, "examQuestionCache", examQuestionCache);
+        ReflectionTestUtils.setField(examGradingService, "userStatsService", mock(UserStatsService.class));
+        ReflectionTestUtils.setField(examGradingService, "examLeaderboard", new ExamLeaderboard());
+
+        questionService = new QuestionService();
+        ReflectionTestUtils.setField(questionService, "examGradingService", examGradingService);
+    }
+
+    @Benchmark
+    public void checkQuestionAnswers() {
+        questionService.checkQuestionAnswers(answers, questions, examId, userId);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.wechat.benchmark;
+
+import com.example.wechat.model.Question;
+import com.example.wechat.mongo.DbRefBatchReader;
+import com.example.wechat.service.QuestionSampler;
+import com.example.wechat.service.QuestionService;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * QuestionService.getRandomQuestions：从可见题库中随机抽取 20 题。
+ * 抽样由数据库的 $sample 完成，替身只返回抽中的 20 个文档，
+ * 因此这里衡量的是应用侧的开销，与题库大小无关，不再按题库大小设置参数。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class RandomQuestionsBenchmark {
+
+    // 替身题库的大小，只用于提供抽样的 id，不影响测量结果
+    private static final int POOL_SIZE = 1000;
+
+    private QuestionService questionService;
+
+    @Setup
+    public void setup() {
+        List<Question> pool = BenchmarkData.questions(POOL_SIZE, null);
+        Random random = new Random(BenchmarkData.SEED);
+
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.aggregate(any(Aggregation.class), any(), eq(Document.class))).thenAnswer(invocation -> {
+            List<Document> sampled = new ArrayList<>(20);
+            for (int i = 0; i < 20; i++) {
+                sampled.add(new Document("_id", pool.get(random.nextInt(pool.size())).getId()));
+            }
+            return new AggregationResults<>(sampled, new Document());
+        });
+
+        DbRefBatchReader dbRefBatchReader = mock(DbRefBatchReader.class);
+        when(dbRefBatchReader.read(anyList(), eq(Question.class))).thenAnswer(invocation -> {
+            List<Document> documents = invocation.getArgument(0);
+            List<Question> questions = new ArrayList<>(documents.size());
+            for (int i = 0; i < documents.size(); i++) {
+                questions.add(pool.get(i));
+            }
+            return questions;
+        });
+
+        QuestionSampler questionSampler = new QuestionSampler();
+        ReflectionTestUtils.setField(questionSampler, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(questionSampler, "dbRefBatchReader", dbRefBatchReader);
+
+        questionService = new QuestionService();
+        ReflectionTestUtils.setField(questionService, "questionSampler", questionSampler);
+    }
+
+    @Benchmark
+    public List<Question> getRandomQuestions() {
+        return questionService.getRandomQuestions(20, null);
+    }
+}
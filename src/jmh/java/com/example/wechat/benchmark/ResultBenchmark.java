@@ -0,0 +1,40 @@
+package com.example.wechat.benchmark;
+
+import com.example.wechat.model.Question;
+import org.openjdk.jmh.annotations.*;
+import utils.Result;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * utils.Result 的响应序列化。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ResultBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    private List<Question> questions;
+
+    @Setup
+    public void setup() {
+        questions = BenchmarkData.questions(size, null);
+    }
+
+    @Benchmark
+    public String okGetStringByData() {
+        return Result.okGetStringByData("获取所有问题信息成功", questions);
+    }
+
+    @Benchmark
+    public String errorGetString() {
+        return Result.errorGetString("用户未登录");
+    }
+}
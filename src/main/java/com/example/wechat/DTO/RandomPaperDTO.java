@@ -0,0 +1,21 @@
+package com.example.wechat.DTO;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class RandomPaperDTO {
+
+    @ApiModelProperty(value = "题目总数", required = true, example = "20")
+    private Integer n;
+
+    @ApiModelProperty(value = "参与组卷的类别ID列表，为空时使用全部类别", example = "[\"5f2b5cd942eaff6ac9a87a34\"]")
+    private List<String> categoryIds;
+
+    @ApiModelProperty(value = "分值权重，键为分值，值为该分值题目的占比；为空时按题库中的实际分布抽取", example = "{\"1\": 0.5, \"5\": 0.5}")
+    private Map<Integer, Double> scoreWeights;
+
+}
@@ -0,0 +1,61 @@
+package com.example.wechat.auth;
+
+import javax.servlet.http.HttpServletRequest;
+import java.security.Principal;
+
+/**
+ * 令牌中携带的登录信息，由 TokenAuthFilter 校验通过后放入请求属性，只在本次请求内有效。
+ */
+public class AuthPrincipal implements Principal {
+
+    public static final String REQUEST_ATTRIBUTE = AuthPrincipal.class.getName();
+
+    private final String userId;
+    private final String authLevel;
+    private final String tokenId;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    public AuthPrincipal(String userId, String authLevel, String tokenId, long issuedAt, long expiresAt) {
+        this.userId = userId;
+        this.authLevel = authLevel;
+        this.tokenId = tokenId;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * 获取当前请求的令牌登录信息。
+     *
+     * @param request 当前请求
+     * @return 未携带令牌时返回 null
+     */
+    public static AuthPrincipal current(HttpServletRequest request) {
+        return (AuthPrincipal) request.getAttribute(REQUEST_ATTRIBUTE);
+    }
+
+    @Override
+    public String getName() {
+        return userId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getAuthLevel() {
+        return authLevel;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
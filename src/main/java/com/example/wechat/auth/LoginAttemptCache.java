@@ -0,0 +1,215 @@
+package com.example.wechat.auth;
+
+import com.example.wechat.exception.DefaultException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 登录失败缓存。
+ * 同一用户名在同一客户端地址上 auth.login.lockout-minutes 内失败 auth.login.max-failures 次后，锁定该地址到窗口结束，
+ * 锁定期间直接拒绝，不查库也不计算 BCrypt；其他地址不受影响，匿名客户端无法通过故意输错密码把某个学生锁在外面。
+ * 窗口内以同一权限等级重复提交该用户名已经失败过的密码时，无论来自哪个地址都直接判为失败，并计入该地址的失败次数。
+ * 失败密码按（用户名、密码、权限等级）记录：正确的密码选错了权限等级而失败，不会影响以正确权限等级登录。
+ * 最多跟踪 auth.login.max-tracked-users 个用户名，每个用户名最多跟踪 MAX_TRACKED_CLIENTS 个地址，超出后淘汰最久未使用的记录。
+ */
+@Component
+public class LoginAttemptCache {
+
+    // 每个用户名最多记住的失败密码数
+    private static final int MAX_FAILED_PASSWORDS = 8;
+
+    // 每个用户名最多跟踪的客户端地址数
+    private static final int MAX_TRACKED_CLIENTS = 64;
+
+    private final int maxFailures;
+    private final long windowMillis;
+    private final int maxTrackedUsers;
+    private final LongSupplier clock;
+
+    // 失败密码只保存以进程内随机密钥计算的 HMAC，不保存明文，也无法离线穷举
+    private final SecretKeySpec fingerprintKey;
+
+    // 在 this 上同步，按访问顺序排列
+    private final LinkedHashMap<String, Attempts> attempts;
+
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder lockedRejects = new LongAdder();
+    private final LongAdder repeatedFailures = new LongAdder();
+
+    @Autowired
+    public LoginAttemptCache(@Value("${auth.login.max-failures:5}") int maxFailures,
+                             @Value("${auth.login.lockout-minutes:15}") long lockoutMinutes,
+                             @Value("${auth.login.max-tracked-users:10000}") int maxTrackedUsers) {
+        this(maxFailures, lockoutMinutes, maxTrackedUsers, System::currentTimeMillis);
+    }
+
+    // 测试时传入可控的时钟（毫秒）
+    LoginAttemptCache(int maxFailures, long lockoutMinutes, int maxTrackedUsers, LongSupplier clock) {
+        this.maxFailures = maxFailures;
+        this.windowMillis = TimeUnit.MINUTES.toMillis(lockoutMinutes);
+        this.maxTrackedUsers = maxTrackedUsers;
+        this.clock = clock;
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.fingerprintKey = new SecretKeySpec(key, "HmacSHA256");
+        this.attempts = new LinkedHashMap<String, Attempts>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Attempts> eldest) {
+                return size() > LoginAttemptCache.this.maxTrackedUsers;
+            }
+        };
+    }
+
+    /**
+     * 在校验密码之前调用。
+     *
+     * @param client 客户端地址
+     * @return 该密码以该权限等级在窗口内已经失败过时返回 true，调用方应直接判为失败
+     * @throws DefaultException 该用户名在该地址上已被锁定时抛出
+     */
+    public boolean isKnownFailure(String username, String password, String auth, String client) {
+        long now = clock.getAsLong();
+        String fingerprint = fingerprint(username, password, auth);
+        synchronized (this) {
+            Attempts entry = attempts.get(username);
+            if (entry == null) {
+                return false;
+            }
+            ClientFailures clientFailures = entry.clients.get(client);
+            if (clientFailures != null && !expired(clientFailures.windowStart, now)
+                    && clientFailures.failures >= maxFailures) {
+                lockedRejects.increment();
+                long minutes = Math.max(1, TimeUnit.MILLISECONDS.toMinutes(clientFailures.windowStart + windowMillis - now + 59999));
+                throw new DefaultException("登录失败次数过多，请" + minutes + "分钟后再试", HttpStatus.TOO_MANY_REQUESTS);
+            }
+            if (!expired(entry.windowStart, now) && entry.failedPasswords.contains(fingerprint)) {
+                entry.client(client, now, windowMillis).failures++;
+                repeatedFailures.increment();
+                failures.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 记录一次失败。
+     *
+     * @param client 客户端地址
+     */
+    public void recordFailure(String username, String password, String auth, String client) {
+        long now = clock.getAsLong();
+        String fingerprint = fingerprint(username, password, auth);
+        failures.increment();
+        synchronized (this) {
+            Attempts entry = attempts.get(username);
+            if (entry == null) {
+                entry = new Attempts(now);
+                attempts.put(username, entry);
+            } else if (expired(entry.windowStart, now)) {
+                entry.windowStart = now;
+                entry.failedPasswords.clear();
+            }
+            entry.client(client, now, windowMillis).failures++;
+            if (entry.failedPasswords.size() < MAX_FAILED_PASSWORDS) {
+                entry.failedPasswords.add(fingerprint);
+            }
+        }
+    }
+
+    /**
+     * 记录一次成功，清除该用户名的失败记录。
+     */
+    public void recordSuccess(String username) {
+        successes.increment();
+        reset(username);
+    }
+
+    /**
+     * 清除该用户名的失败记录，如密码被修改后，之前失败过的密码可能已变为正确密码。
+     */
+    public synchronized void reset(String username) {
+        attempts.remove(username);
+    }
+
+    /**
+     * 获取登录成功、失败及锁定次数统计。
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("successes", successes.sum());
+        stats.put("failures", failures.sum());
+        stats.put("repeatedFailures", repeatedFailures.sum());
+        stats.put("lockedRejects", lockedRejects.sum());
+        synchronized (this) {
+            stats.put("trackedUsers", attempts.size());
+        }
+        return stats;
+    }
+
+    private String fingerprint(String username, String password, String auth) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(fingerprintKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(String.valueOf(auth).getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean expired(long windowStart, long now) {
+        return now - windowStart >= windowMillis;
+    }
+
+    private static class Attempts {
+        // 失败密码的窗口，与各地址的失败计数分别计时
+        long windowStart;
+        final Set<String> failedPasswords = new HashSet<>();
+        final LinkedHashMap<String, ClientFailures> clients = new LinkedHashMap<String, ClientFailures>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ClientFailures> eldest) {
+                return size() > MAX_TRACKED_CLIENTS;
+            }
+        };
+
+        Attempts(long windowStart) {
+            this.windowStart = windowStart;
+        }
+
+        // 取得该地址的失败计数，窗口已过时重新开始
+        ClientFailures client(String client, long now, long windowMillis) {
+            ClientFailures clientFailures = clients.get(client);
+            if (clientFailures == null || now - clientFailures.windowStart >= windowMillis) {
+                clientFailures = new ClientFailures(now);
+                clients.put(client, clientFailures);
+            }
+            return clientFailures;
+        }
+    }
+
+    private static class ClientFailures {
+        final long windowStart;
+        int failures;
+
+        ClientFailures(long windowStart) {
+            this.windowStart = windowStart;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.wechat.auth;
+
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.monitor.LatencyRecorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * 在独立的有界线程池中计算 BCrypt 哈希。
+ * 线程数（auth.login.hash-threads）限制了哈希计算最多占用的 CPU 核数，
+ * 排队数（auth.login.hash-queue）限制了同时等待的请求线程数；队列满时立即拒绝，
+ * 登录高峰时请求线程不会都卡在哈希计算上，其他接口仍能正常响应。
+ */
+@Component
+public class PasswordHasher {
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    private final LatencyRecorder queueLatency = new LatencyRecorder("passwordHashQueue");
+    private final LatencyRecorder hashLatency = new LatencyRecorder("passwordHash");
+
+    public PasswordHasher(BCryptPasswordEncoder passwordEncoder,
+                          @Value("${auth.login.hash-threads:0}") int threads,
+                          @Value("${auth.login.hash-queue:64}") int queueSize,
+                          @Value("${auth.login.hash-timeout-ms:5000}") long timeoutMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+        // 未配置时使用一半的 CPU 核数
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 校验密码。
+     *
+     * @throws DefaultException 排队已满或等待超时时抛出
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * 计算新密码的哈希。
+     *
+     * @throws DefaultException 排队已满或等待超时时抛出
+     */
+    public String encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    private <T> T submit(Callable<T> task) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                queueLatency.record(start - submitted);
+                try {
+                    return task.call();
+                } finally {
+                    hashLatency.recordSince(start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new DefaultException("登录请求过多，请稍后再试", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new DefaultException("登录请求过多，请稍后再试", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new DefaultException("登录请求被中断", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 获取线程池状态与哈希耗时统计。
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueWait", queueLatency.snapshot());
+        stats.put("hash", hashLatency.snapshot());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.wechat.auth;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import utils.Result;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 令牌登录过滤器。
+ * 请求携带 "Authorization: Bearer 令牌" 时校验令牌，通过后把 AuthPrincipal 放入请求属性，
+ * 并包装请求，使 getSession() 返回一个只存在于本次请求内、由令牌内容填充的会话，
+ * 各 Controller 中读取 userId、authLevel 的代码无需修改，也不会创建或查找服务端会话。
+ * 未携带令牌的请求按原来的会话方式处理；令牌无效时直接返回 401。
+ * 未配置 auth.token.secret 时不处理令牌，所有请求都按会话方式处理。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TokenAuthFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private final TokenService tokenService;
+
+    public TokenAuthFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (!tokenService.isEnabled() || header == null || !header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        AuthPrincipal principal = tokenService.verify(header.substring(BEARER.length()).trim());
+        if (principal == null) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write(Result.errorGetString("登录已失效，请重新登录"));
+            return;
+        }
+
+        request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal);
+        chain.doFilter(new TokenRequestWrapper(request, principal), response);
+    }
+}
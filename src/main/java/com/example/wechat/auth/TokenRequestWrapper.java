@@ -0,0 +1,166 @@
+package com.example.wechat.auth;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpSession;
+import java.security.Principal;
+import java.util.*;
+
+/**
+ * 令牌登录时的请求包装，getSession() 返回由令牌内容填充的请求级会话。
+ */
+class TokenRequestWrapper extends HttpServletRequestWrapper {
+
+    private final AuthPrincipal principal;
+    private final TokenSession session;
+
+    TokenRequestWrapper(HttpServletRequest request, AuthPrincipal principal) {
+        super(request);
+        this.principal = principal;
+        this.session = new TokenSession(request.getServletContext(), principal);
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        return session;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return session;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return session.getId();
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return true;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return principal.getUserId();
+    }
+
+    /**
+     * 只在本次请求内存在的会话。写入的属性不会保存，请求结束后丢弃。
+     */
+    private static class TokenSession implements HttpSession {
+
+        private final ServletContext servletContext;
+        private final String id;
+        private final long creationTime;
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        TokenSession(ServletContext servletContext, AuthPrincipal principal) {
+            this.servletContext = servletContext;
+            this.id = "token:" + principal.getTokenId();
+            this.creationTime = principal.getIssuedAt();
+            attributes.put("userId", principal.getUserId());
+            attributes.put("authLevel", principal.getAuthLevel());
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public long getLastAccessedTime() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return servletContext;
+        }
+
+        @Override
+        public void setMaxInactiveInterval(int interval) {
+        }
+
+        @Override
+        public int getMaxInactiveInterval() {
+            return -1;
+        }
+
+        @Override
+        @Deprecated
+        public javax.servlet.http.HttpSessionContext getSessionContext() {
+            return null;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        @Deprecated
+        public Object getValue(String name) {
+            return getAttribute(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+        }
+
+        @Override
+        @Deprecated
+        public String[] getValueNames() {
+            return attributes.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) {
+                attributes.remove(name);
+            } else {
+                attributes.put(name, value);
+            }
+        }
+
+        @Override
+        @Deprecated
+        public void putValue(String name, Object value) {
+            setAttribute(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        @Deprecated
+        public void removeValue(String name) {
+            removeAttribute(name);
+        }
+
+        @Override
+        public void invalidate() {
+            // 令牌的吊销由登出接口处理
+            attributes.clear();
+        }
+
+        @Override
+        public boolean isNew() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.wechat.auth;
+
+import com.example.wechat.model.RevokedToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌吊销列表。
+ * 吊销记录写入 revokedToken 集合供所有实例共享，每个实例在内存中保留一份副本，
+ * 校验令牌时只查内存；副本按 auth.token.revocation-refresh-ms 增量同步，
+ * 因此在其他实例上吊销的令牌最多延迟一个同步周期后失效。
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final String USER_PREFIX = "user:";
+
+    // 增量同步时向前多取一段时间，避免各实例时钟略有偏差时漏掉记录
+    private static final long SYNC_OVERLAP_MS = 60000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // 令牌id -> 令牌过期时间
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    // 用户id -> 最近一次吊销，在吊销时间及之前签发的令牌失效
+    private final Map<String, Cutoff> userCutoffs = new ConcurrentHashMap<>();
+
+    private volatile long lastSync = 0;
+
+    @PostConstruct
+    public void init() {
+        mongoTemplate.indexOps(RevokedToken.class).ensureIndex(new Index()
+                .on("expiresAt", Sort.Direction.ASC)
+                .expire(0, TimeUnit.SECONDS));
+        mongoTemplate.indexOps(RevokedToken.class).ensureIndex(new Index().on("revokedAt", Sort.Direction.ASC));
+        refresh();
+    }
+
+    /**
+     * 判断令牌是否已被吊销。
+     */
+    public boolean isRevoked(AuthPrincipal principal) {
+        if (revokedTokens.containsKey(principal.getTokenId())) {
+            return true;
+        }
+        Cutoff cutoff = userCutoffs.get(principal.getUserId());
+        return cutoff != null && principal.getIssuedAt() <= cutoff.revokedAt;
+    }
+
+    /**
+     * 吊销单个令牌，如登出时。
+     */
+    public void revokeToken(AuthPrincipal principal) {
+        revokedTokens.put(principal.getTokenId(), principal.getExpiresAt());
+        save(principal.getTokenId(), principal.getUserId(), System.currentTimeMillis(), principal.getExpiresAt());
+    }
+
+    /**
+     * 吊销某用户此前签发的全部令牌，如权限变更、密码被重置或用户被删除时。
+     *
+     * @param userId      用户 id
+     * @param maxTokenTtl 令牌的最长有效期（毫秒），超过后记录不再需要
+     */
+    public void revokeUser(String userId, long maxTokenTtl) {
+        long now = System.currentTimeMillis();
+        userCutoffs.merge(userId, new Cutoff(now, now + maxTokenTtl), Cutoff::later);
+        save(USER_PREFIX + userId, userId, now, now + maxTokenTtl);
+    }
+
+    /**
+     * 从数据库增量同步其他实例写入的吊销记录，并清理已过期的记录。
+     */
+    @Scheduled(fixedDelayString = "${auth.token.revocation-refresh-ms:10000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        Query query = new Query(Criteria.where("expiresAt").gt(new Date(now)));
+        if (lastSync > 0) {
+            query.addCriteria(Criteria.where("revokedAt").gte(new Date(lastSync - SYNC_OVERLAP_MS)));
+        }
+        for (RevokedToken revoked : mongoTemplate.find(query, RevokedToken.class)) {
+            if (revoked.getId().startsWith(USER_PREFIX)) {
+                userCutoffs.merge(revoked.getUserId(),
+                        new Cutoff(revoked.getRevokedAt().getTime(), revoked.getExpiresAt().getTime()), Cutoff::later);
+            } else {
+                revokedTokens.put(revoked.getId(), revoked.getExpiresAt().getTime());
+            }
+        }
+        lastSync = now;
+
+        // 令牌本身已过期的记录不再需要
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        userCutoffs.values().removeIf(cutoff -> cutoff.expiresAt <= now);
+    }
+
+    /**
+     * 当前内存中的吊销记录数。
+     */
+    public int size() {
+        return revokedTokens.size() + userCutoffs.size();
+    }
+
+    private void save(String id, String userId, long revokedAt, long expiresAt) {
+        RevokedToken revoked = new RevokedToken();
+        revoked.setId(id);
+        revoked.setUserId(userId);
+        revoked.setRevokedAt(new Date(revokedAt));
+        revoked.setExpiresAt(new Date(expiresAt));
+        mongoTemplate.save(revoked);
+    }
+
+    private static class Cutoff {
+        final long revokedAt;
+        final long expiresAt;
+
+        Cutoff(long revokedAt, long expiresAt) {
+            this.revokedAt = revokedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        static Cutoff later(Cutoff a, Cutoff b) {
+            return a.revokedAt >= b.revokedAt ? a : b;
+        }
+    }
+}
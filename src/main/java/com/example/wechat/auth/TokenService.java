@@ -0,0 +1,170 @@
+package com.example.wechat.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 无状态登录令牌的签发与校验。
+ * 令牌格式为 base64url(用户id:权限等级:签发时间:过期时间:令牌id).base64url(HMAC-SHA256 签名)，
+ * 校验只需计算一次 HMAC 并查内存中的吊销列表，不访问会话存储，任意实例都可以处理任意请求。
+ * 多个实例必须配置相同的 auth.token.secret（至少 32 字节）；未配置时不签发令牌，TokenAuthFilter 也不生效，
+ * 只使用服务端会话登录。配置了但不足 32 字节时启动失败。
+ */
+@Service
+public class TokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    // HMAC-SHA256 的密钥不应短于输出长度
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final boolean enabled;
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    private final TokenRevocationList revocationList;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+
+    // Mac 不是线程安全的，每个线程复用一个实例
+    private final ThreadLocal<Mac> macs;
+
+    @Autowired
+    public TokenService(@Value("${auth.token.secret:}") String secret,
+                        @Value("${auth.token.dev-random-secret:false}") boolean devRandomSecret,
+                        @Value("${auth.token.ttl-hours:24}") long ttlHours,
+                        TokenRevocationList revocationList) {
+        this(secret, devRandomSecret, ttlHours, revocationList, System::currentTimeMillis);
+    }
+
+    // 测试时传入可控的时钟（毫秒）
+    TokenService(String secret, boolean devRandomSecret, long ttlHours, TokenRevocationList revocationList,
+                 LongSupplier clock) {
+        byte[] secretBytes = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length == 0 && !devRandomSecret) {
+            logger.warn("auth.token.secret 未配置，不签发登录令牌，只能使用会话登录；多个实例部署时请配置相同的密钥");
+        } else if (secretBytes.length < MIN_SECRET_BYTES && !devRandomSecret) {
+            throw new IllegalStateException("auth.token.secret 不足 " + MIN_SECRET_BYTES + " 字节");
+        } else if (secretBytes.length < MIN_SECRET_BYTES) {
+            secretBytes = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(secretBytes);
+            logger.warn("auth.token.dev-random-secret=true，使用随机密钥，重启后或在其他实例上已签发的令牌将失效，不要用于生产环境");
+        }
+        this.enabled = secretBytes.length > 0;
+        this.key = enabled ? new SecretKeySpec(secretBytes, ALGORITHM) : null;
+        this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+        this.revocationList = revocationList;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * 是否配置了密钥、启用了令牌登录。
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 为登录成功的用户签发令牌。
+     *
+     * @param userId    用户 id
+     * @param authLevel 权限等级
+     * @return 令牌字符串，未启用令牌登录时返回 null
+     */
+    public String issue(String userId, String authLevel) {
+        if (!enabled) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        byte[] tokenId = new byte[12];
+        random.nextBytes(tokenId);
+        String payload = String.join(":", userId, authLevel == null ? "" : authLevel,
+                Long.toString(now), Long.toString(now + ttlMillis), ENCODER.encodeToString(tokenId));
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload));
+    }
+
+    /**
+     * 校验令牌。
+     *
+     * @param token 令牌字符串
+     * @return 签名正确、未过期且未被吊销时返回令牌中的登录信息，否则返回 null
+     */
+    public AuthPrincipal verify(String token) {
+        if (!enabled) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        String encodedPayload = token.substring(0, dot);
+        try {
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+                return null;
+            }
+            String[] fields = new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8).split(":", -1);
+            if (fields.length != 5) {
+                return null;
+            }
+            long issuedAt = Long.parseLong(fields[2]);
+            long expiresAt = Long.parseLong(fields[3]);
+            if (expiresAt <= clock.getAsLong()) {
+                return null;
+            }
+            AuthPrincipal principal = new AuthPrincipal(fields[0], fields[1], fields[4], issuedAt, expiresAt);
+            return revocationList.isRevoked(principal) ? null : principal;
+        } catch (IllegalArgumentException e) {
+            // base64 或数字格式错误
+            return null;
+        }
+    }
+
+    /**
+     * 吊销单个令牌。
+     */
+    public void revoke(AuthPrincipal principal) {
+        revocationList.revokeToken(principal);
+    }
+
+    /**
+     * 吊销某用户此前签发的全部令牌，用户需要重新登录。
+     */
+    public void revokeUser(String userId) {
+        if (!enabled) {
+            return;
+        }
+        revocationList.revokeUser(userId, ttlMillis);
+    }
+
+    private byte[] sign(String encodedPayload) {
+        return macs.get().doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    }
+}
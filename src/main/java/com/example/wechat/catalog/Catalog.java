@@ -0,0 +1,313 @@
+package com.example.wechat.catalog;
+
+import com.example.wechat.exception.IdNotFoundException;
+import com.example.wechat.mongo.KeysetPage;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个目录集合的读写入口，由 CatalogEngine.register 创建，各实体的 Service 共用这一套实现。
+ * 按 id 读取先查本地缓存，未命中再查库并回填；findAll 的全量列表整体缓存（不超过 catalog.listing.max-items 条），
+ * 并顺带回填按 id 的缓存，列表序列化后的响应体由 CatalogListing 缓存。
+ * 本实例的保存、删除由 CatalogCacheListener 清除对应条目和全量列表，其他实例的修改最迟在 catalog.cache.ttl-ms 后可见。
+ * 附件、头像、图片地址只改一个字段，用一次 updateFirst（$push / $set）完成，不再读出整个文档再整体保存。
+ * 缓存中的对象由多个请求共享，调用方不能修改；要修改后保存的流程仍从 Repository 读取。
+ */
+public class Catalog<T extends CatalogEntity> {
+
+    // 批量删除时每条 $in 携带的 id 数
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    private final CatalogEngine engine;
+    private final Class<T> entityClass;
+    private final String collection;
+
+    private final Map<ObjectId, Entry<T>> cache = new ConcurrentHashMap<>();
+
+    private volatile CatalogListing<T> listing;
+
+    // 每次失效加一；查库前后版本不同时不回填，避免把失效前读到的旧文档放回缓存
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder listingHits = new LongAdder();
+    private final LongAdder listingMisses = new LongAdder();
+    private final LongAdder payloadHits = new LongAdder();
+    private final LongAdder payloadBuilds = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    Catalog(CatalogEngine engine, Class<T> entityClass, String collection) {
+        this.engine = engine;
+        this.entityClass = entityClass;
+        this.collection = collection;
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    /**
+     * 按 id 查找，优先使用缓存。
+     *
+     * @param id 文档 id
+     * @return 文档，不存在时为空
+     */
+    public Optional<T> findById(ObjectId id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        if (engine.isCacheEnabled()) {
+            Entry<T> entry = cache.get(id);
+            if (entry != null && !engine.isExpired(entry.loadedAt, now)) {
+                hits.increment();
+                return Optional.of(entry.entity);
+            }
+        }
+        misses.increment();
+        long loadVersion = version.get();
+        T entity = mongoTemplate().findById(id, entityClass);
+        if (entity != null) {
+            fill(Collections.singletonList(entity), loadVersion, now);
+        }
+        return Optional.ofNullable(entity);
+    }
+
+    /**
+     * 查找集合中的全部文档，优先使用缓存的全量列表。
+     *
+     * @return 不可修改的列表，交给 CatalogResponses 时直接使用缓存的响应体
+     */
+    public List<T> findAll() {
+        long now = System.currentTimeMillis();
+        CatalogListing<T> current = listing;
+        if (engine.isCacheEnabled() && current != null && !engine.isExpired(current.getLoadedAt(), now)) {
+            listingHits.increment();
+            return current;
+        }
+        listingMisses.increment();
+
+        long loadVersion = version.get();
+        List<T> all = mongoTemplate().findAll(entityClass, collection);
+        CatalogListing<T> loaded = new CatalogListing<>(this, all, now);
+        if (engine.isCacheEnabled() && all.size() <= engine.getMaxListingItems()) {
+            listing = loaded;
+            // 加载期间发生了失效，不保留这份列表
+            if (version.get() != loadVersion) {
+                listing = null;
+            }
+        }
+        fill(all, loadVersion, now);
+        return loaded;
+    }
+
+    /**
+     * 按 _id 分页。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<T> findPage(String after, Integer limit) {
+        return engine.getKeysetPager().page(null, entityClass, after, limit);
+    }
+
+    /**
+     * 按名字查找，走 name 索引。
+     */
+    public Optional<T> findByName(String name) {
+        return Optional.ofNullable(mongoTemplate().findOne(new Query(Criteria.where("name").is(name)), entityClass, collection));
+    }
+
+    /**
+     * 判断 id 是否存在，只查 _id 索引，不取回文档。
+     */
+    public boolean exists(ObjectId id) {
+        return mongoTemplate().exists(new Query(Criteria.where("_id").is(id)), collection);
+    }
+
+    /**
+     * 上传文件并追加到文档的 files 列表。
+     *
+     * @param file            上传的文件
+     * @param id              文档 id
+     * @param notFoundMessage 文档不存在时的提示
+     * @return 文件 id
+     * @throws IdNotFoundException 文档不存在时抛出，此时不会上传文件
+     */
+    public String attachFile(MultipartFile file, String id, String notFoundMessage) throws IOException {
+        ObjectId objectId = requireExisting(id, notFoundMessage);
+        String fileId = engine.getFileService().uploadFile(file);
+        update(objectId, new Update().push("files", fileId), notFoundMessage);
+        return fileId;
+    }
+
+    /**
+     * 上传文件并设为文档的头像。
+     *
+     * @param file            上传的文件
+     * @param id              文档 id
+     * @param notFoundMessage 文档不存在时的提示
+     * @return 文件 id
+     * @throws IdNotFoundException 文档不存在时抛出，此时不会上传文件
+     */
+    public String attachAvatar(MultipartFile file, String id, String notFoundMessage) throws IOException {
+        ObjectId objectId = requireExisting(id, notFoundMessage);
+        String fileId = engine.getFileService().uploadFile(file);
+        update(objectId, new Update().set("avatar", fileId), notFoundMessage);
+        return fileId;
+    }
+
+    /**
+     * 只修改文档的一个字段。
+     *
+     * @throws IdNotFoundException 文档不存在时抛出
+     */
+    public void setField(ObjectId id, String field, Object value, String notFoundMessage) throws IdNotFoundException {
+        update(id, new Update().set(field, value), notFoundMessage);
+    }
+
+    /**
+     * 删除另一集合中引用了本集合某个文档的全部文档。
+     * 先只取出这些文档的 _id，再按 _id $in 分批删除，删除事件中带有全部 id，搜索索引等监听器可以逐个处理。
+     *
+     * @param referencingClass 引用方的实体类
+     * @param field            引用字段（DBRef）
+     * @param id               被引用的文档 id
+     * @return 删除的文档数
+     */
+    public long deleteReferencing(Class<?> referencingClass, String field, ObjectId id) {
+        MongoTemplate mongoTemplate = mongoTemplate();
+        List<Object> ids = mongoTemplate.getCollection(mongoTemplate.getCollectionName(referencingClass))
+                .find(new Document(field + ".$id", id))
+                .projection(new Document("_id", 1))
+                .map(document -> document.get("_id"))
+                .into(new ArrayList<>());
+        long deleted = 0;
+        for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+            List<Object> batch = ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size()));
+            deleted += mongoTemplate.remove(new Query(Criteria.where("_id").in(batch)), referencingClass).getDeletedCount();
+        }
+        return deleted;
+    }
+
+    /**
+     * 获取缓存大小与命中率。
+     */
+    public Map<String, Object> getStats() {
+        CatalogListing<T> current = listing;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", hitRate(hits.sum(), misses.sum()));
+        stats.put("listingSize", current == null ? null : current.size());
+        stats.put("listingHits", listingHits.sum());
+        stats.put("listingMisses", listingMisses.sum());
+        stats.put("listingHitRate", hitRate(listingHits.sum(), listingMisses.sum()));
+        stats.put("payloadHits", payloadHits.sum());
+        stats.put("payloadBuilds", payloadBuilds.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    void evict(ObjectId id) {
+        version.incrementAndGet();
+        listing = null;
+        cache.remove(id);
+        evictions.increment();
+    }
+
+    void evictAll() {
+        version.incrementAndGet();
+        listing = null;
+        cache.clear();
+        evictions.increment();
+    }
+
+    void purgeExpired(long now) {
+        CatalogListing<T> current = listing;
+        if (current != null && engine.isExpired(current.getLoadedAt(), now)) {
+            listing = null;
+        }
+        cache.values().removeIf(entry -> engine.isExpired(entry.loadedAt, now));
+    }
+
+    void recordPayload(boolean hit) {
+        (hit ? payloadHits : payloadBuilds).increment();
+    }
+
+    private static double hitRate(long hit, long miss) {
+        return hit + miss == 0 ? 0.0 : (double) hit / (hit + miss);
+    }
+
+    private ObjectId requireExisting(String id, String notFoundMessage) {
+        ObjectId objectId = new ObjectId(id);
+        if (!exists(objectId)) {
+            throw new IdNotFoundException(notFoundMessage);
+        }
+        return objectId;
+    }
+
+    // 不经过实体映射直接更新集合，写入的值与实体保存时相同；更新不会触发保存事件，所以这里自己清缓存
+    private void update(ObjectId id, Update update, String notFoundMessage) {
+        UpdateResult result = mongoTemplate().updateFirst(new Query(Criteria.where("_id").is(id)), update, collection);
+        evict(id);
+        if (result.getMatchedCount() == 0) {
+            throw new IdNotFoundException(notFoundMessage);
+        }
+    }
+
+    // 缓存满后不再加入新条目，等过期条目被清理后再加入
+    private void fill(List<T> entities, long loadVersion, long now) {
+        if (!engine.isCacheEnabled() || version.get() != loadVersion) {
+            return;
+        }
+        List<ObjectId> added = new ArrayList<>();
+        for (T entity : entities) {
+            if (entity.getId() == null) {
+                continue;
+            }
+            if (cache.size() >= engine.getMaxEntries() && !cache.containsKey(entity.getId())) {
+                break;
+            }
+            cache.put(entity.getId(), new Entry<>(entity, now));
+            added.add(entity.getId());
+        }
+        // 回填期间发生了失效，撤回本次放入的条目
+        if (version.get() != loadVersion) {
+            added.forEach(cache::remove);
+        }
+    }
+
+    private MongoTemplate mongoTemplate() {
+        return engine.getMongoTemplate();
+    }
+
+    private static class Entry<T> {
+        final T entity;
+        final long loadedAt;
+
+        Entry(T entity, long loadedAt) {
+            this.entity = entity;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
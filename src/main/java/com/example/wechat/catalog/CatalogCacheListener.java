@@ -0,0 +1,41 @@
+package com.example.wechat.catalog;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * 文档保存或删除时清除 CatalogEngine 中对应的缓存。
+ */
+@Component
+public class CatalogCacheListener extends AbstractMongoEventListener<Object> {
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Document document = event.getDocument();
+        Object id = document == null ? null : document.get("_id");
+        catalogEngine.onChanged(event.getCollectionName(), id == null ? null : Collections.singletonList(id));
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        // 删除事件只带删除条件，按 _id 或 _id.$in 取出被删除的文档 id，其他条件清空整个集合
+        Object id = event.getSource().get("_id");
+        if (id instanceof Document && ((Document) id).get("$in") instanceof Collection) {
+            catalogEngine.onChanged(event.getCollectionName(), (Collection<?>) ((Document) id).get("$in"));
+        } else if (id != null && !(id instanceof Document)) {
+            catalogEngine.onChanged(event.getCollectionName(), Collections.singletonList(id));
+        } else {
+            catalogEngine.onChanged(event.getCollectionName(), null);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.wechat.catalog;
+
+import com.example.wechat.mongo.KeysetPager;
+import com.example.wechat.service.FileService;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 目录类实体的通用读写引擎。
+ * 各实体的 Service 在初始化时用 register 取得自己的 Catalog，查询、分页、附件上传、单字段修改都走同一套实现；
+ * 新增、修改、删除的校验和提示仍留在各自的 Service 中。
+ * 实体通过 @DBRef 引用的集合在注册时声明，被引用的文档变化时整体清空依赖它的缓存，避免返回旧的引用内容。
+ */
+@Component
+public class CatalogEngine {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private FileService fileService;
+
+    @Value("${catalog.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${catalog.cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${catalog.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${catalog.listing.max-items:5000}")
+    private int maxListingItems;
+
+    // 集合名 -> Catalog
+    private final Map<String, Catalog<?>> catalogs = new ConcurrentHashMap<>();
+
+    // 被引用的集合名 -> 引用它的 Catalog
+    private final Map<String, List<Catalog<?>>> dependents = new ConcurrentHashMap<>();
+
+    /**
+     * 取得实体对应的 Catalog，同一实体多次注册返回同一个实例。
+     *
+     * @param entityClass 实体类
+     * @param referenced  实体通过 @DBRef 引用的实体类
+     * @return 该实体的 Catalog
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends CatalogEntity> Catalog<T> register(Class<T> entityClass, Class<?>... referenced) {
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        Catalog<T> catalog = (Catalog<T>) catalogs.computeIfAbsent(collection, key -> new Catalog<>(this, entityClass, key));
+        for (Class<?> type : referenced) {
+            List<Catalog<?>> list = dependents.computeIfAbsent(mongoTemplate.getCollectionName(type), key -> new CopyOnWriteArrayList<>());
+            if (!list.contains(catalog)) {
+                list.add(catalog);
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * 集合中的文档被保存或删除后调用。
+     *
+     * @param collection 集合名
+     * @param ids        变化的文档 id，为 null 时表示无法确定，清空整个集合的缓存
+     */
+    void onChanged(String collection, Collection<?> ids) {
+        Catalog<?> catalog = catalogs.get(collection);
+        if (catalog != null) {
+            if (ids == null) {
+                catalog.evictAll();
+            } else {
+                for (Object id : ids) {
+                    if (id instanceof ObjectId) {
+                        catalog.evict((ObjectId) id);
+                    }
+                }
+            }
+        }
+        for (Catalog<?> dependent : dependents.getOrDefault(collection, Collections.emptyList())) {
+            dependent.evictAll();
+        }
+    }
+
+    /**
+     * 获取各集合的缓存统计，按集合名排列。
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        for (Map.Entry<String, Catalog<?>> entry : catalogs.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * 定期清理过期条目，释放内存。
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        for (Catalog<?> catalog : catalogs.values()) {
+            catalog.purgeExpired(now);
+        }
+    }
+
+    boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    boolean isExpired(long loadedAt, long now) {
+        return now - loadedAt > ttlMs;
+    }
+
+    int getMaxEntries() {
+        return maxEntries;
+    }
+
+    int getMaxListingItems() {
+        return maxListingItems;
+    }
+
+    MongoTemplate getMongoTemplate() {
+        return mongoTemplate;
+    }
+
+    KeysetPager getKeysetPager() {
+        return keysetPager;
+    }
+
+    FileService getFileService() {
+        return fileService;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.wechat.catalog;
+
+import org.bson.types.ObjectId;
+
+/**
+ * 目录类实体（收费、住院、疫苗、化验、设施、科室、角色、档案、药品、疾病）的公共部分。
+ * 实体上的 Lombok getter 即是实现，CatalogEngine 只通过这两个方法访问实体，不使用反射。
+ */
+public interface CatalogEntity {
+
+    ObjectId getId();
+
+    String getName();
+}
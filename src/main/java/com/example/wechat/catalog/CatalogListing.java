@@ -0,0 +1,75 @@
+package com.example.wechat.catalog;
+
+import org.springframework.util.DigestUtils;
+import utils.Result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catalog.findAll 缓存的全量列表，不可修改。
+ * 同一份列表按接口的提示信息缓存序列化后的 UTF-8 响应体及其 ETag，列表未变化时直接写出这些字节，不再重新序列化。
+ */
+public final class CatalogListing<T> extends AbstractList<T> implements RandomAccess {
+
+    private final Catalog<?> catalog;
+    private final List<T> items;
+    private final long loadedAt;
+
+    // 提示信息 -> 响应体；每个接口的提示信息是固定的，条目数很少
+    private final Map<String, Payload> payloads = new ConcurrentHashMap<>();
+
+    CatalogListing(Catalog<?> catalog, List<T> items, long loadedAt) {
+        this.catalog = catalog;
+        this.items = items;
+        this.loadedAt = loadedAt;
+    }
+
+    @Override
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * 取得 Result.okBody(message, 列表) 写出的字节，首次调用时序列化并缓存。
+     */
+    Payload payload(String message) {
+        Payload payload = payloads.get(message);
+        if (payload != null) {
+            catalog.recordPayload(true);
+            return payload;
+        }
+        catalog.recordPayload(false);
+        return payloads.computeIfAbsent(message, key -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                Result.okBody(key, items).writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Payload(out.toByteArray());
+        });
+    }
+
+    static final class Payload {
+        final byte[] body;
+        final String etag;
+
+        Payload(byte[] body) {
+            this.body = body;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        }
+    }
+}
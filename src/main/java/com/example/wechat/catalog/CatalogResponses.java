@@ -0,0 +1,42 @@
+package com.example.wechat.catalog;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import utils.Result;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 目录列表接口的响应。
+ * 数据是 Catalog 缓存的 CatalogListing 时，直接写出缓存的 UTF-8 字节并带上 ETag；
+ * 请求的 If-None-Match 与 ETag 相同时由 Spring MVC 返回 304，不再传输响应体。
+ * 其他数据使用 Result.okBody 流式写出。
+ */
+public final class CatalogResponses {
+
+    // 浏览器可以保存响应，但每次使用前都要带 ETag 重新验证；接口需要登录，不允许共享缓存保存
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private CatalogResponses() {
+    }
+
+    /**
+     * 生成 200 响应。
+     *
+     * @param message 提示信息
+     * @param data    列表数据
+     * @return 响应
+     */
+    public static ResponseEntity<Object> ok(String message, Object data) {
+        if (!(data instanceof CatalogListing)) {
+            return ResponseEntity.ok(Result.okBody(message, data));
+        }
+        CatalogListing.Payload payload = ((CatalogListing<?>) data).payload(message);
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8))
+                .eTag(payload.etag)
+                .cacheControl(CACHE_CONTROL)
+                .body(payload.body);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.wechat.config;
+
+import com.example.wechat.mongo.BatchingDbRefResolver;
+import com.example.wechat.mongo.DbRefBatchFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public BatchingDbRefResolver batchingDbRefResolver(MongoDatabaseFactory factory) {
+        return new BatchingDbRefResolver(factory);
+    }
+
+    // 替换 Spring Boot 默认的转换器，仅把 DBRef 解析器换成可批量的版本
+    @Bean
+    public MappingMongoConverter mappingMongoConverter(BatchingDbRefResolver dbRefResolver, MongoMappingContext context,
+                                                       MongoCustomConversions conversions) {
+        MappingMongoConverter converter = new MappingMongoConverter(dbRefResolver, context);
+        converter.setCustomConversions(conversions);
+        return converter;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "mongo.dbref.request-cache", havingValue = "true")
+    public FilterRegistrationBean<DbRefBatchFilter> dbRefBatchFilter(BatchingDbRefResolver dbRefResolver) {
+        return new FilterRegistrationBean<>(new DbRefBatchFilter(dbRefResolver));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.wechat.config;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import utils.ResultBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把 ResultBody 直接以 UTF-8 写入响应流，不设置 Content-Length，响应按分块传输。
+ */
+public class ResultBodyHttpMessageConverter extends AbstractHttpMessageConverter<ResultBody> {
+
+    public ResultBodyHttpMessageConverter() {
+        super(StandardCharsets.UTF_8, MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ResultBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ResultBody readInternal(Class<? extends ResultBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("不支持读取 ResultBody", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(ResultBody body, HttpOutputMessage outputMessage) throws IOException {
+        body.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.wechat.config;
+
+import com.example.wechat.ratelimit.RateLimitInterceptor;
+import com.example.wechat.ratelimit.RateLimiters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final RateLimiters rateLimiters;
+
+    // 允许跨域访问的前端地址，多个用逗号分隔；为空时不允许跨域
+    private final String[] allowedOrigins;
+
+    public WebMvcConfig(RateLimiters rateLimiters, @Value("${cors.allowed-origins:}") String[] allowedOrigins) {
+        this.rateLimiters = rateLimiters;
+        this.allowedOrigins = allowedOrigins;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiters));
+    }
+
+    // 登录接口在 X-Auth-Token 响应头中返回令牌，跨域时需要暴露给前端脚本
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        if (allowedOrigins.length == 0) {
+            return;
+        }
+        registry.addMapping("/**")
+                .allowedOrigins(allowedOrigins)
+                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                .allowedHeaders("*")
+                .exposedHeaders("X-Auth-Token", HttpHeaders.ETAG, HttpHeaders.CONTENT_DISPOSITION)
+                .allowCredentials(true);
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new ResultBodyHttpMessageConverter());
+    }
+}
@@ -7,6 +7,7 @@ import com.example.wechat.model.Role;
 import com.example.wechat.service.ActivityService;
 import com.example.wechat.service.AssayService;
 import com.example.wechat.service.FileStorageService;
+import com.example.wechat.mongo.KeysetPage;
 import io.swagger.annotations.*;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -132,15 +133,23 @@ public class ActivityController {
             @ApiResponse(code = 400, message = "用户未登录")
     })
     @GetMapping("/findAllActivities")
-    public ResponseEntity<String> findAllActivities(HttpSession session) {
+    public ResponseEntity<Object> findAllActivities(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查用户登录
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
             // 用户未登录
             return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录"));
         }
+        if (after != null || limit != null) {
+            KeysetPage<Activity> page = activityService.findActivitiesPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有角色活动信息成功", page));
+        }
+
         List<Activity> activities = activityService.findAllActivities();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有角色活动信息成功", activities));
+        return ResponseEntity.ok(Result.okBody("获取所有角色活动信息成功", activities));
     }
 
     /**
@@ -1,8 +1,10 @@
 package com.example.wechat.controller;
 
+import com.example.wechat.catalog.CatalogResponses;
 import com.example.wechat.exception.NameAlreadyExistedException;
 import com.example.wechat.model.Assay;
 import com.example.wechat.service.AssayService;
+import com.example.wechat.mongo.KeysetPage;
 import io.swagger.annotations.*;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -122,15 +124,23 @@ public class AssayController {
             @ApiResponse(code = 400, message = "用户未登录")
     })
     @GetMapping("/findAllAssays")
-    public ResponseEntity<String> findAllAssays(HttpSession session) {
+    public ResponseEntity<Object> findAllAssays(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查用户登录
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
             // 用户未登录
             return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录"));
         }
+        if (after != null || limit != null) {
+            KeysetPage<Assay> page = assayService.findAssaysPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有科室信息成功", page));
+        }
+
         List<Assay> assays = assayService.findAllAssays();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有科室信息成功", assays));
+        return CatalogResponses.ok("获取所有科室信息成功", assays);
     }
     /**
      * 根据化验ID获取部门信息。
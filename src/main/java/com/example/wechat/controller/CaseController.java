@@ -5,6 +5,7 @@ import com.example.wechat.exception.DefaultException;
 import com.example.wechat.model.Case;
 import com.example.wechat.service.CaseService;
 import com.example.wechat.service.FileStorageService;
+import com.example.wechat.mongo.KeysetPage;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import org.bson.types.ObjectId;
@@ -104,13 +105,21 @@ public class CaseController {
     //查找所有病例
     @ApiOperation(value = "查找所有病例", notes = "查找所有病例，需要管理员权限")
     @GetMapping("/findAllCases")
-    public ResponseEntity<String> findAllCases(HttpSession session) {
+    public ResponseEntity<Object> findAllCases(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查会话中是否有用户ID和auth信息
         String userIdStr = (String) session.getAttribute("userId");
 
         if (userIdStr != null) {
+            if (after != null || limit != null) {
+                KeysetPage<Case> page = caseService.findCasesPage(after, limit);
+                return ResponseEntity.ok(Result.okBody("查找所有病例成功", page));
+            }
+
             Iterable<Case> allCases = caseService.findAllCases();
-            return ResponseEntity.ok(Result.okGetStringByData("查找所有病例成功", allCases));
+            return ResponseEntity.ok(Result.okBody("查找所有病例成功", allCases));
         }
         else {
             // 用户未登录
@@ -0,0 +1,36 @@
+package com.example.wechat.controller;
+
+import com.example.wechat.catalog.CatalogEngine;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import utils.Result;
+
+import javax.servlet.http.HttpSession;
+
+@RestController
+@RequestMapping("/catalogs")
+public class CatalogController {
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    @ApiOperation(value = "获取目录缓存统计", notes = "返回疾病、药品、科室、病类等目录集合的缓存大小与命中率，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "获取目录缓存统计成功"),
+            @ApiResponse(code = 403, message = "无权限访问")
+    })
+    @GetMapping("/stats")
+    public ResponseEntity<String> getCatalogStats(HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+        return ResponseEntity.ok(Result.okGetStringByData("获取目录缓存统计成功", catalogEngine.getStats()));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.wechat.controller;
 
+import com.example.wechat.catalog.CatalogResponses;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.model.Category;
 import com.example.wechat.service.CategoryService;
@@ -99,8 +100,13 @@ public class CategoryController {
     //获取所有病类
     @ApiOperation(value = "查找所有病类", notes = "查找所有病类")
     @GetMapping("/findAllCategories")
-    public ResponseEntity<String> getAllCategories() {
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有病类成功", categoryService.getAllCategories()));
+    public ResponseEntity<Object> getAllCategories(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return ResponseEntity.ok(Result.okBody("获取所有病类成功", categoryService.findCategoriesPage(after, limit)));
+        }
+        return CatalogResponses.ok("获取所有病类成功", categoryService.getAllCategories());
     }
 
     //根据病类ID获取病类
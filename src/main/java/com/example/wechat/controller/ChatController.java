@@ -1,57 +1,200 @@
 package com.example.wechat.controller;
 
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.ratelimit.RateLimiter;
+import com.example.wechat.ratelimit.RateLimiters;
+import com.example.wechat.service.ChatAnswerCache;
+import com.example.wechat.service.ChatService;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import tool.OpenAIAPI;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import utils.Result;
 
 import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 
 
 @RestController
 @RequestMapping("/chat")
 public class ChatController {
 
+    // 比上游超时多留一些时间，由 ChatService 先结束请求
+    private static final long EMITTER_TIMEOUT_MS = 200000;
+
     @Autowired
     private HttpSession session;
 
-    // Map to store the last chat time for each user
-    private static final Map<String, Long> lastChatTimes = new ConcurrentHashMap<>();
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatAnswerCache chatAnswerCache;
+
+    @Autowired
+    private RateLimiters rateLimiters;
 
-    @ApiOperation(value = "与AI对话", notes = "用户通过发送一段文本来与AI进行交互，每个用户20秒内只能调用一次")
+    @ApiOperation(value = "与AI对话", notes = "用户通过发送一段文本来与AI进行交互，每个用户20秒内只能调用一次；等待回复期间不占用请求线程。standalone 为 true 时作为不带对话上下文的独立提问，相同或相近的独立提问共享缓存的回复")
     @PostMapping("/interact")
-    public ResponseEntity<String> interactWithAI(@RequestBody Map<String, String> request) {
+    public DeferredResult<ResponseEntity<String>> interactWithAI(@RequestBody Map<String, String> request) {
+        DeferredResult<ResponseEntity<String>> deferred = new DeferredResult<>(EMITTER_TIMEOUT_MS);
         String userId = (String) session.getAttribute("userId");
-        if (userId == null) {
-            return ResponseEntity.status(401).body("用户未登录");
+        String text = request.get("text");
+        ResponseEntity<String> rejected = checkRequest(userId, text);
+        if (rejected != null) {
+            deferred.setResult(rejected);
+            return deferred;
+        }
+
+        // 独立提问与之前的提问相同或相近时直接返回缓存的回复，不请求上游，也不计入频率限制
+        boolean standalone = isStandalone(request);
+        String cached = standalone ? chatAnswerCache.get(text) : null;
+        if (cached != null) {
+            deferred.setResult(ResponseEntity.ok(cached));
+            return deferred;
         }
 
-        // Check if the user has chatted within the last 20 seconds
-        Long lastChatTime = lastChatTimes.get(userId);
-        long currentTime = System.currentTimeMillis();
-        if (lastChatTime != null && (currentTime - lastChatTime) < 20000) {
-            return ResponseEntity.status(402).body("请求过于频繁，请稍后再试");
+        RateLimiter limiter = rateLimiters.get(RateLimiters.CHAT);
+        if (!limiter.tryAcquire(userId)) {
+            deferred.setResult(ResponseEntity.status(402).body("请求过于频繁，请稍后再试"));
+            return deferred;
+        }
+        CompletableFuture<String> future;
+        try {
+            future = chatService.chat(userId, text, standalone, token -> { });
+        } catch (DefaultException e) {
+            limiter.refund(userId);
+            deferred.setResult(ResponseEntity.status(e.getStatus()).body(e.getMessage()));
+            return deferred;
         }
+        deferred.onTimeout(() -> future.cancel(false));
+
+        future.whenComplete((response, e) -> {
+            if (e == null) {
+                if (standalone) {
+                    chatAnswerCache.put(text, response);
+                }
+                deferred.setResult(ResponseEntity.ok(response));
+            } else {
+                // 失败的请求不计入频率限制
+                limiter.refund(userId);
+                deferred.setResult(ResponseEntity.status(500).body("内部服务器错误: " + rootCause(e).getMessage()));
+            }
+        });
+        return deferred;
+    }
 
-        // Get the text to chat about from the request body
+    @ApiOperation(value = "与AI对话（流式）", notes = "以 SSE 逐段返回回复：token 事件为回复片段，done 事件为完整回复，error 事件为错误信息；每个用户20秒内只能调用一次；standalone 的含义同 /interact")
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamWithAI(@RequestBody Map<String, String> request) {
+        String userId = (String) session.getAttribute("userId");
         String text = request.get("text");
+        ResponseEntity<String> rejected = checkRequest(userId, text);
+        if (rejected != null) {
+            return ResponseEntity.status(rejected.getStatusCode()).body(errorEmitter(rejected.getBody()));
+        }
+
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        boolean standalone = isStandalone(request);
+        String cached = standalone ? chatAnswerCache.get(text) : null;
+        if (cached != null) {
+            send(emitter, "token", cached);
+            send(emitter, "done", cached);
+            emitter.complete();
+            return ResponseEntity.ok(emitter);
+        }
+
+        RateLimiter limiter = rateLimiters.get(RateLimiters.CHAT);
+        if (!limiter.tryAcquire(userId)) {
+            return ResponseEntity.status(402).body(errorEmitter("请求过于频繁，请稍后再试"));
+        }
+        CompletableFuture<String> future;
+        try {
+            future = chatService.chat(userId, text, standalone, token -> send(emitter, "token", token));
+        } catch (DefaultException e) {
+            limiter.refund(userId);
+            return ResponseEntity.status(e.getStatus()).body(errorEmitter(e.getMessage()));
+        }
+
+        // 浏览器断开或超时时中断上游请求
+        emitter.onTimeout(() -> future.cancel(false));
+        emitter.onError(e -> future.cancel(false));
+
+        future.whenComplete((response, e) -> {
+            if (future.isCancelled()) {
+                emitter.complete();
+                return;
+            }
+            try {
+                if (e == null) {
+                    if (standalone) {
+                        chatAnswerCache.put(text, response);
+                    }
+                    send(emitter, "done", response);
+                } else {
+                    limiter.refund(userId);
+                    send(emitter, "error", rootCause(e).getMessage());
+                }
+                emitter.complete();
+            } catch (UncheckedIOException ignored) {
+                // 连接已断开
+            }
+        });
+        return ResponseEntity.ok(emitter);
+    }
+
+    @ApiOperation(value = "获取AI对话统计", notes = "返回当前进行中、排队中的请求数、耗时统计及回复缓存命中率，仅管理员可用")
+    @GetMapping("/stats")
+    public ResponseEntity<String> getChatStats() {
+        String authLevel = (String) session.getAttribute("authLevel");
+        if (!"2".equals(authLevel)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Result.errorGetString("无权限访问"));
+        }
+        Map<String, Object> stats = chatService.getChatStats();
+        stats.put("cache", chatAnswerCache.getStats());
+        return ResponseEntity.ok(Result.okGetStringByData("获取AI对话统计成功", stats));
+    }
+
+    // 登录和内容检查，不通过时返回对应的响应
+    private ResponseEntity<String> checkRequest(String userId, String text) {
+        if (userId == null) {
+            return ResponseEntity.status(401).body("用户未登录");
+        }
+
         if (text == null || text.trim().isEmpty()) {
             return ResponseEntity.status(400).body("请求内容不能为空");
         }
+        return null;
+    }
 
+    // 请求体中 standalone 为 true 时是独立提问（如新开一个话题），不带对话上下文，回复可以在用户之间共享
+    private static boolean isStandalone(Map<String, String> request) {
+        return Boolean.parseBoolean(request.get("standalone"));
+    }
+
+    private static void send(SseEmitter emitter, String event, String data) {
         try {
-            String response = OpenAIAPI.chat(text, userId);
-            lastChatTimes.put(userId, currentTime); // Update last chat time
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body("内部服务器错误: " + e.getMessage());
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
+    private static SseEmitter errorEmitter(String message) {
+        SseEmitter emitter = new SseEmitter();
+        send(emitter, "error", message);
+        emitter.complete();
+        return emitter;
+    }
 
+    private static Throwable rootCause(Throwable e) {
+        return e.getCause() != null && !(e instanceof DefaultException) ? rootCause(e.getCause()) : e;
+    }
 }
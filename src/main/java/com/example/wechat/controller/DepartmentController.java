@@ -1,11 +1,13 @@
 package com.example.wechat.controller;
 
+import com.example.wechat.catalog.CatalogResponses;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.NameAlreadyExistedException;
 import com.example.wechat.model.Department;
 import com.example.wechat.model.Disease;
 import com.example.wechat.model.Facility;
 import com.example.wechat.service.DepartmentService;
+import com.example.wechat.mongo.KeysetPage;
 import io.swagger.annotations.*;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -175,7 +177,10 @@ public class DepartmentController {
             @ApiResponse(code = 400, message = "用户未登录")
     })
     @GetMapping("/findAllDepartments")
-    public ResponseEntity<String> findAllDepartments(HttpSession session) {
+    public ResponseEntity<Object> findAllDepartments(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查用户登录
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
@@ -183,8 +188,13 @@ public class DepartmentController {
             return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<Department> page = departmentService.findDepartmentsPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有科室信息成功", page));
+        }
+
         List<Department> departments = departmentService.findAllDepartments();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有科室信息成功", departments));
+        return CatalogResponses.ok("获取所有科室信息成功", departments);
     }
 
 
@@ -1,5 +1,6 @@
 package com.example.wechat.controller;
 
+import com.example.wechat.catalog.CatalogResponses;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.model.Department;
 import com.example.wechat.model.Disease;
@@ -18,6 +19,7 @@ import java.util.Optional;
 
 import com.example.wechat.model.User;
 import com.example.wechat.service.UserService;
+import com.example.wechat.mongo.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -184,7 +186,10 @@ public class DiseaseController {
             @ApiResponse(code = 400, message = "用户未登录")
     })
     @GetMapping("/findAllDiseases")
-    public ResponseEntity<String> findAllDiseases(HttpSession session) {
+    public ResponseEntity<Object> findAllDiseases(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查用户权限
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
@@ -192,8 +197,13 @@ public class DiseaseController {
             return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<Disease> page = diseaseService.findDiseasesPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有科室信息成功", page));
+        }
+
         List<Disease> diseases = diseaseService.findAllDiseases();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有科室信息成功", diseases));
+        return CatalogResponses.ok("获取所有科室信息成功", diseases);
     }
 
 
@@ -1,5 +1,6 @@
 package com.example.wechat.controller;
 
+import com.example.wechat.catalog.CatalogResponses;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
 import com.example.wechat.model.Drug;
@@ -18,6 +19,7 @@ import java.util.Optional;
 
 import com.example.wechat.model.User;
 import com.example.wechat.service.UserService;
+import com.example.wechat.mongo.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -169,7 +171,10 @@ public class DrugController {
             @ApiResponse(code = 400, message = "用户未登录")
     })
     @GetMapping("/findAllDrugs")
-    public ResponseEntity<String> findAllDrugs(HttpSession session) {
+    public ResponseEntity<Object> findAllDrugs(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查用户登录
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
@@ -177,8 +182,13 @@ public class DrugController {
             return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<Drug> page = drugService.findDrugsPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有药品信息成功", page));
+        }
+
         List<Drug> drugs = drugService.findAllDrugs();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有药品信息成功", drugs));
+        return CatalogResponses.ok("获取所有药品信息成功", drugs);
     }
 
 
@@ -6,6 +6,9 @@ import com.example.wechat.exception.DefaultException;
 import com.example.wechat.model.Exam;
 import com.example.wechat.model.ExamRecord;
 import com.example.wechat.model.Question;
+import com.example.wechat.mongo.KeysetPage;
+import com.example.wechat.service.ExamDraftService;
+import com.example.wechat.service.ExamLeaderboard;
 import com.example.wechat.service.ExamRecordService;
 import com.example.wechat.service.ExamService;
 import com.example.wechat.service.QuestionService;
@@ -34,9 +37,15 @@ public class ExamController {
     @Autowired
     private ExamRecordService examRecordService;
 
+    @Autowired
+    private ExamLeaderboard examLeaderboard;
+
     @Autowired
     QuestionService questionService;
 
+    @Autowired
+    private ExamDraftService examDraftService;
+
     @ApiOperation(value="创建私人比赛", notes = "允许用户创建一个私人的比赛")
     @ApiResponses({
             @ApiResponse(code = 200, message = "成功创建私人比赛"),
@@ -51,12 +60,12 @@ public class ExamController {
             return ResponseEntity.status(401).body(Result.errorGetString("用户未登录"));
         }
 
-        List<Question> sessionQuestions = (List<Question>) session.getAttribute("sessionQuestions");
-        if (sessionQuestions == null || sessionQuestions.isEmpty()) {
+        List<ObjectId> draftQuestionIds = examDraftService.getQuestionIds(draftOwner(session));
+        if (draftQuestionIds.isEmpty()) {
             return ResponseEntity.badRequest().body(Result.errorGetString("会话中没有题目，无法创建考试"));
         }
 
-        List<String> questionIds = sessionQuestions.stream().map(Question::getId).map(ObjectId::toString).collect(Collectors.toList());
+        List<String> questionIds = draftQuestionIds.stream().map(ObjectId::toString).collect(Collectors.toList());
         Exam createdExam = examService.holdPrivateExam(
                 privateExamRequest.getName(),
                 questionIds,
@@ -110,11 +119,11 @@ public class ExamController {
 
 
         try{
-            List<Question> sessionQuestions = (List<Question>) session.getAttribute("sessionQuestions");
-            if (sessionQuestions == null || sessionQuestions.isEmpty()) {
+            List<ObjectId> draftQuestionIds = examDraftService.getQuestionIds(draftOwner(session));
+            if (draftQuestionIds.isEmpty()) {
                 return ResponseEntity.badRequest().body(Result.errorGetString("会话中没有题目，无法创建考试"));
             }
-            List<String> questionIds = sessionQuestions.stream().map(Question::getId).map(ObjectId::toString).collect(Collectors.toList());
+            List<String> questionIds = draftQuestionIds.stream().map(ObjectId::toString).collect(Collectors.toList());
             Exam createdExam = examService.holdPublicExam(
                 publicExamRequest.getName(),
                 questionIds,
@@ -201,19 +210,26 @@ public class ExamController {
             @ApiResponse(code = 401, message = "用户未登录")
     })
     @GetMapping("/list")
-    public ResponseEntity<String> getExams(
+    public ResponseEntity<Object> getExams(
             @ApiParam(value = "考试状态", required = false) @RequestParam(required = false) String status,
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
             HttpSession session) {
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
             return ResponseEntity.status(401).body(Result.errorGetString("用户未登录"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<Exam> page = examService.getExamsPageByOptionalStatus(status, after, limit);
+            return ResponseEntity.ok(Result.okBody("获取考试列表成功", page));
+        }
+
         List<Exam> exams = examService.getExamsByOptionalStatus(status);
         if (exams.isEmpty()) {
-            return ResponseEntity.ok(Result.okGetStringByData("没有找到考试", null));
+            return ResponseEntity.ok(Result.okBody("没有找到考试", null));
         } else {
-            return ResponseEntity.ok(Result.okGetStringByData("获取考试列表成功", exams));
+            return ResponseEntity.ok(Result.okBody("获取考试列表成功", exams));
         }
     }
 
@@ -523,65 +539,101 @@ public class ExamController {
         }
     }
 
-    @ApiOperation(value = "添加题目到会话列表", notes = "将选定的题目添加到当前会话的题目列表中")
+    @ApiOperation(value = "获取考试排行榜", notes = "返回考试成绩前 limit 名，同分同名次")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "获取排行榜成功"),
+            @ApiResponse(code = 401, message = "用户未登录")
+    })
+    @GetMapping("/{examId}/leaderboard")
+    public ResponseEntity<String> getLeaderboard(
+            @ApiParam(value = "考试ID", required = true) @PathVariable String examId,
+            @ApiParam(value = "名额，默认10，最大100") @RequestParam(defaultValue = "10") int limit,
+            HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Result.errorGetString("用户未登录"));
+        }
+
+        return ResponseEntity.ok(Result.okGetStringByData("获取排行榜成功", examLeaderboard.top(examId, Math.min(limit, 100))));
+    }
+
+    @ApiOperation(value = "获取我的考试名次", notes = "返回当前用户在考试中的名次、分数、总人数以及百分位（分数低于自己的人数占比）")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "获取名次成功"),
+            @ApiResponse(code = 401, message = "用户未登录")
+    })
+    @GetMapping("/{examId}/myRank")
+    public ResponseEntity<String> getMyRank(
+            @ApiParam(value = "考试ID", required = true) @PathVariable String examId,
+            HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Result.errorGetString("用户未登录"));
+        }
+
+        Map<String, Object> rank = examLeaderboard.rank(examId, userId);
+        if (rank == null) {
+            return ResponseEntity.ok(Result.okGetStringByData("尚未完成该考试", null));
+        }
+        return ResponseEntity.ok(Result.okGetStringByData("获取名次成功", rank));
+    }
+
+    @ApiOperation(value = "添加题目到会话列表", notes = "将选定的题目添加到当前用户的组卷草稿中，草稿保存在服务端，只记录题目ID")
     @PostMapping("/addQuestionToSession")
     public ResponseEntity<String> addQuestionToSession(
             @ApiParam(value = "题目ID", required = true) @RequestParam String questionId,
             HttpSession session) {
 
-
-        Question question = questionService.findQuestionById(questionId).orElse(null);
-        if (question == null) {
+        if (!ObjectId.isValid(questionId) || !questionService.findQuestionById(questionId).isPresent()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Result.errorGetString("题目未找到"));
         }
 
-        List<Question> sessionQuestions = (List<Question>) session.getAttribute("sessionQuestions");
-        if (sessionQuestions == null) {
-            sessionQuestions = new ArrayList<>();
-        }
-        sessionQuestions.add(question);
-        session.setAttribute("sessionQuestions", sessionQuestions);
+        examDraftService.addQuestion(draftOwner(session), new ObjectId(questionId));
 
         return ResponseEntity.ok(Result.okGetString("题目已添加到会话"));
     }
 
-    @ApiOperation(value = "获取会话中的题目列表", notes = "返回当前会话中存储的所有题目")
+    @ApiOperation(value = "获取会话中的题目列表", notes = "返回当前用户组卷草稿中的所有题目")
     @GetMapping("/getSessionQuestions")
     public ResponseEntity<String> getSessionQuestions(HttpSession session) {
-        List<Question> sessionQuestions = (List<Question>) session.getAttribute("sessionQuestions");
-        if (sessionQuestions == null || sessionQuestions.isEmpty()) {
+        List<Question> draftQuestions = examDraftService.getQuestions(draftOwner(session));
+        if (draftQuestions.isEmpty()) {
             return ResponseEntity.ok(Result.okGetStringByData("会话中没有题目", Collections.emptyList()));
         }
-        return ResponseEntity.ok(Result.okGetStringByData("获取会话中的题目成功", sessionQuestions));
+        return ResponseEntity.ok(Result.okGetStringByData("获取会话中的题目成功", draftQuestions));
     }
 
-    @ApiOperation(value = "清空会话中的题目列表", notes = "从当前会话中移除所有已添加的题目")
+    @ApiOperation(value = "清空会话中的题目列表", notes = "清空当前用户的组卷草稿")
     @PostMapping("/clearSessionQuestions")
     public ResponseEntity<String> clearSessionQuestions(HttpSession session) {
-        session.removeAttribute("sessionQuestions");
+        examDraftService.clear(draftOwner(session));
         return ResponseEntity.ok(Result.okGetString("会话中的题目列表已清空"));
     }
 
-    @ApiOperation(value = "从会话中删除题目", notes = "根据题目ID，从会话中的题目列表中移除指定的题目")
+    @ApiOperation(value = "从会话中删除题目", notes = "根据题目ID，从当前用户的组卷草稿中移除指定的题目")
     @DeleteMapping("/removeQuestionFromSession")
     public ResponseEntity<String> removeQuestionFromSession(
             @ApiParam(value = "题目ID", required = true) @RequestParam String questionId,
             HttpSession session) {
 
-        List<Question> sessionQuestions = (List<Question>) session.getAttribute("sessionQuestions");
-        if (sessionQuestions == null || sessionQuestions.isEmpty()) {
+        String owner = draftOwner(session);
+        if (examDraftService.getQuestionIds(owner).isEmpty()) {
             return ResponseEntity.ok(Result.errorGetString("会话中没有题目或题目列表不存在"));
         }
 
-        boolean removed = sessionQuestions.removeIf(q -> q.getId().toString().equals(questionId));
-        if (!removed) {
+        if (!ObjectId.isValid(questionId) || !examDraftService.removeQuestion(owner, new ObjectId(questionId))) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Result.errorGetString("未找到该题目在会话中"));
         }
 
-        session.setAttribute("sessionQuestions", sessionQuestions);
         return ResponseEntity.ok(Result.okGetString("题目已从会话中移除"));
     }
 
+    // 组卷草稿的所有者：登录用户按用户id，未登录时按会话id
+    private static String draftOwner(HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        return userId != null ? userId : "session:" + session.getId();
+    }
+
 
 
 
@@ -0,0 +1,128 @@
+package com.example.wechat.controller;
+
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.exception.IdNotFoundException;
+import com.example.wechat.export.ExportJob;
+import com.example.wechat.service.ExportService;
+import com.example.wechat.service.FileResponseWriter;
+import com.example.wechat.service.FileService;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import utils.Result;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/exports")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileResponseWriter fileResponseWriter;
+
+    @ApiOperation(value = "创建导出任务", notes = "在后台把考试记录或答题记录导出为 CSV/XLSX 并存入 GridFS，完成后通过任务中的 downloadPath（/exports/{jobId}/download）下载，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "导出任务已创建"),
+            @ApiResponse(code = 400, message = "参数错误"),
+            @ApiResponse(code = 403, message = "无权限访问")
+    })
+    @PostMapping
+    public ResponseEntity<String> createExport(
+            @ApiParam(value = "导出类型：examRecord 或 questionRecord", required = true) @RequestParam String type,
+            @ApiParam(value = "文件格式：csv 或 xlsx，默认 csv") @RequestParam(required = false) String format,
+            @ApiParam(value = "只导出该考试的记录") @RequestParam(required = false) String examId,
+            @ApiParam(value = "起始日期（含），格式 yyyy-MM-dd") @RequestParam(required = false) String from,
+            @ApiParam(value = "结束日期（含），格式 yyyy-MM-dd") @RequestParam(required = false) String to,
+            HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        try {
+            ExportJob job = exportService.submit(type, format, examId, from, to);
+            return ResponseEntity.ok(Result.okGetStringByData("导出任务已创建", job));
+        } catch (DefaultException de) {
+            return ResponseEntity.badRequest().body(Result.errorGetString(de.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "查询导出任务", notes = "返回导出状态、进度，完成后包含文件ID和下载路径，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "获取导出任务成功"),
+            @ApiResponse(code = 403, message = "无权限访问"),
+            @ApiResponse(code = 404, message = "导出任务不存在")
+    })
+    @GetMapping("/{jobId}")
+    public ResponseEntity<String> getExport(
+            @ApiParam(value = "导出任务ID", required = true) @PathVariable String jobId,
+            HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        ExportJob job = exportService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(404).body(Result.errorGetString("导出任务不存在"));
+        }
+        return ResponseEntity.ok(Result.okGetStringByData("获取导出任务成功", job));
+    }
+
+    @ApiOperation(value = "下载导出文件", notes = "下载已完成的导出任务生成的文件，支持Range分段请求和ETag缓存校验，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "文件内容"),
+            @ApiResponse(code = 403, message = "无权限访问"),
+            @ApiResponse(code = 404, message = "导出任务不存在或尚未完成")
+    })
+    @GetMapping("/{jobId}/download")
+    public void downloadExport(
+            @ApiParam(value = "导出任务ID", required = true) @PathVariable String jobId,
+            HttpSession session,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            writeError(response, HttpStatus.FORBIDDEN, "无权限访问");
+            return;
+        }
+
+        ExportJob job = exportService.getJob(jobId);
+        if (job == null || job.getFileId() == null) {
+            writeError(response, HttpStatus.NOT_FOUND, "导出任务不存在或尚未完成");
+            return;
+        }
+        GridFSFile file;
+        try {
+            file = fileService.findFileInfo(job.getFileId());
+        } catch (IdNotFoundException e) {
+            writeError(response, HttpStatus.NOT_FOUND, "导出文件不存在");
+            return;
+        }
+        fileResponseWriter.write(file, "attachment", request, response);
+    }
+
+    private static void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(Result.errorGetString(message));
+    }
+}
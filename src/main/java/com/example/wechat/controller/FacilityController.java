@@ -1,9 +1,11 @@
 package com.example.wechat.controller;
 
+import com.example.wechat.catalog.CatalogResponses;
 import com.example.wechat.exception.NameAlreadyExistedException;
 import com.example.wechat.model.Facility;
 import com.example.wechat.service.FacilityService;
 import com.example.wechat.service.FileStorageService;
+import com.example.wechat.mongo.KeysetPage;
 import io.swagger.annotations.*;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -171,7 +173,10 @@ public class FacilityController {
             @ApiResponse(code = 400, message = "用户未登录")
     })
     @GetMapping("/findAllFacilities")
-    public ResponseEntity<String> findAllFacilities(HttpSession session) {
+    public ResponseEntity<Object> findAllFacilities(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查用户登录
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
@@ -179,8 +184,13 @@ public class FacilityController {
             return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录或不具备查看权限"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<Facility> page = facilityService.findFacilitiesPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有设备信息成功", page));
+        }
+
         List<Facility> facilities = facilityService.findAllFacilities();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有设备信息成功", facilities));
+        return CatalogResponses.ok("获取所有设备信息成功", facilities);
     }
 
     /**
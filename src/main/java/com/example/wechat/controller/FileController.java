@@ -1,18 +1,21 @@
 package com.example.wechat.controller;
 
 
+import com.example.wechat.exception.IdNotFoundException;
+import com.example.wechat.service.FileResponseWriter;
 import com.example.wechat.service.FileService;
+import com.mongodb.client.gridfs.model.GridFSFile;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import utils.Result;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.util.Optional;
@@ -24,6 +27,9 @@ public class FileController {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private FileResponseWriter fileResponseWriter;
+
 
 
     @ApiOperation(value = "上传文件", notes = "上传新的文件，需要管理员权限")
@@ -49,34 +55,50 @@ public class FileController {
         }
     }
 
-    @ApiOperation(value = "根据文件id查找文件", notes = "返回符合条件的文件")
+    @ApiOperation(value = "根据文件id查找文件", notes = "返回符合条件的文件，支持Range分段请求和ETag缓存校验")
     @GetMapping(path = "/findFileById")
-    public ResponseEntity<ByteArrayResource> displayFile(
-            @ApiParam(name = "id", value = "图片id", required = true, example = "saisunwoiudoiu") @RequestParam("id") String id)
+    public void displayFile(
+            @ApiParam(name = "id", value = "图片id", required = true, example = "saisunwoiudoiu") @RequestParam("id") String id,
+            HttpServletRequest request,
+            HttpServletResponse response)
             throws IOException {
-        var fileResponse = fileService.displayFile(id);
-        var bytes = fileResponse.getBytes();
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(fileResponse.getContentType()))
-                .contentLength(bytes.length)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileResponse.getFileName() + "\"")
-                .body(new ByteArrayResource(bytes));
+        writeFile(id, "inline", request, response);
     }
 
-    @ApiOperation(value = "根据文件id下载文件", notes = "下载符合条件的文件")
+    @ApiOperation(value = "根据文件id下载文件", notes = "下载符合条件的文件，支持Range分段请求和ETag缓存校验")
     @GetMapping(path = "/download/{id}")
-    public ResponseEntity<ByteArrayResource> downloadFile(
-            @ApiParam(name = "id", value = "图片id", required = true) @PathVariable String id)
+    public void downloadFile(
+            @ApiParam(name = "id", value = "图片id", required = true) @PathVariable String id,
+            HttpServletRequest request,
+            HttpServletResponse response)
             throws IOException {
+        writeFile(id, "attachment", request, response);
+    }
 
-        var fileResponse = fileService.displayFile(id);
-        var bytes = fileResponse.getBytes();
+    @ApiOperation(value = "根据文件id流式播放文件", notes = "用于病例、扮演过程视频等大文件，支持拖动进度条（Range请求）")
+    @GetMapping(path = "/stream/{id}")
+    public void streamFile(
+            @ApiParam(name = "id", value = "文件id", required = true) @PathVariable String id,
+            HttpServletRequest request,
+            HttpServletResponse response)
+            throws IOException {
+        writeFile(id, "inline", request, response);
+    }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(fileResponse.getContentType()))
-                .contentLength(bytes.length)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileResponse.getFileName() + "\"")
-                .body(new ByteArrayResource(bytes));
+    // 受限文件（如导出文件）只能通过各自有权限检查的接口下载，这里按不存在处理
+    private void writeFile(String id, String dispositionType, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        GridFSFile file;
+        try {
+            file = fileService.findFileInfo(id);
+        } catch (IdNotFoundException | IllegalArgumentException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "文件不存在");
+            return;
+        }
+        if (fileService.isRestricted(file)) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "文件不存在");
+            return;
+        }
+        fileResponseWriter.write(file, dispositionType, request, response);
     }
-}
\ No newline at end of file
+}
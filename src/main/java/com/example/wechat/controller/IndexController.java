@@ -0,0 +1,42 @@
+package com.example.wechat.controller;
+
+import com.example.wechat.mongo.IndexRegistry;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import utils.Result;
+
+import javax.servlet.http.HttpSession;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/indexes")
+public class IndexController {
+
+    @Autowired
+    private IndexRegistry indexRegistry;
+
+    @ApiOperation(value = "获取索引报告", notes = "返回各集合索引的访问次数，以及每个仓库查询方法的执行计划是否会全表扫描，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "获取索引报告成功"),
+            @ApiResponse(code = 403, message = "无权限访问")
+    })
+    @GetMapping("/report")
+    public ResponseEntity<String> getIndexReport(HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("usage", indexRegistry.indexUsage());
+        report.put("queries", indexRegistry.verify());
+        return ResponseEntity.ok(Result.okGetStringByData("获取索引报告成功", report));
+    }
+}
@@ -2,6 +2,7 @@ package com.example.wechat.controller;
 
 import com.example.wechat.DTO.QuestionAnswersDTO;
 import com.example.wechat.DTO.QuestionImportDTO;
+import com.example.wechat.DTO.RandomPaperDTO;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.bson.types.ObjectId;
@@ -9,9 +10,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import javax.servlet.http.HttpSession;
+import java.io.IOException;
 import com.example.wechat.model.Question;
+import com.example.wechat.service.ExamGradingService;
+import com.example.wechat.service.QuestionImportService;
 import com.example.wechat.service.QuestionService;
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.importer.ImportJob;
+import com.example.wechat.mongo.KeysetPage;
+import com.example.wechat.ratelimit.RateLimited;
+import com.example.wechat.ratelimit.RateLimiters;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import utils.Result;
@@ -27,6 +37,12 @@ public class QuestionController {
     @Autowired
     private QuestionService questionService;
 
+    @Autowired
+    private ExamGradingService examGradingService;
+
+    @Autowired
+    private QuestionImportService questionImportService;
+
     @ApiOperation(value = "添加问题", notes = "添加新的问题，需要管理员权限")
     @PostMapping("/addQuestion")
     public ResponseEntity<String> addQuestion(
@@ -105,14 +121,22 @@ public class QuestionController {
             @ApiResponse(code = 401, message = "用户未登录")
     })
     @GetMapping("/findAllQuestions")
-    public ResponseEntity<String> findAllQuestions(HttpSession session) {
+    public ResponseEntity<Object> findAllQuestions(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
             return ResponseEntity.status(401).body(Result.errorGetString("用户未登录"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<Question> page = questionService.findQuestionsPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有问题信息成功", page));
+        }
+
         List<Question> questions = questionService.findAllQuestions();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有问题信息成功", questions));
+        return ResponseEntity.ok(Result.okBody("获取所有问题信息成功", questions));
     }
 
     @ApiOperation(value = "获取所有可见问题", notes = "返回所有可见问题的列表")
@@ -121,14 +145,22 @@ public class QuestionController {
             @ApiResponse(code = 401, message = "用户未登录")
     })
     @GetMapping("/findAllVisibleQuestions")
-    public ResponseEntity<String> findAllVisibleQuestions(HttpSession session) {
+    public ResponseEntity<Object> findAllVisibleQuestions(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
             return ResponseEntity.status(401).body(Result.errorGetString("用户未登录"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<Question> page = questionService.findVisibleQuestionsPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有可见问题信息成功", page));
+        }
+
         List<Question> questions = questionService.findAllVisibleQuestions();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有可见问题信息成功", questions));
+        return ResponseEntity.ok(Result.okBody("获取所有可见问题信息成功", questions));
     }
 
     @ApiOperation(value = "根据类别ID获取问题", notes = "返回引用了指定类别ID的所有问题列表")
@@ -291,12 +323,31 @@ public class QuestionController {
         return ResponseEntity.ok(Result.okGetStringByData("随机题目抽取成功", questions));
     }
 
+    @ApiOperation(value = "随机组卷", notes = "按类别分层抽题，各类别题数尽量相等；可传入分值权重控制不同分值题目的占比")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "随机组卷成功"),
+            @ApiResponse(code = 401, message = "用户未登录")
+    })
+    @PostMapping("/getRandomPaper")
+    public ResponseEntity<String> getRandomPaper(
+            @ApiParam(value = "组卷参数", required = true) @RequestBody RandomPaperDTO randomPaperDTO,
+            HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) {
+            return ResponseEntity.status(401).body(Result.errorGetString("用户未登录"));
+        }
+
+        List<Question> questions = questionService.getRandomPaper(randomPaperDTO.getN(), randomPaperDTO.getCategoryIds(), randomPaperDTO.getScoreWeights());
+        return ResponseEntity.ok(Result.okGetStringByData("随机组卷成功", questions));
+    }
+
     @ApiOperation(value = "判断答案正确，并生成questionRecords", notes = "传入答案串和题目串，比对答案并生成记录。")
     @ApiResponses({
             @ApiResponse(code = 200, message = "答案校验完成，记录已生成"),
             @ApiResponse(code = 401, message = "用户未登录")
     })
     @PostMapping("/checkQuestionAnswers")
+    @RateLimited(RateLimiters.EXAM_SUBMIT)
     public ResponseEntity<String> checkQuestionAnswers(
             @ApiParam(value = "答案和题目列表", required = true) @RequestBody QuestionAnswersDTO questionAnswersDTO,
             HttpSession session) {
@@ -309,6 +360,21 @@ public class QuestionController {
         return ResponseEntity.ok(Result.okGetString("答案校验完成，记录已生成"));
     }
 
+    @ApiOperation(value = "获取评分耗时统计", notes = "返回checkQuestionAnswers的调用次数、平均/最大耗时和耗时分布，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "获取评分统计成功"),
+            @ApiResponse(code = 403, message = "无权限访问")
+    })
+    @GetMapping("/gradingStats")
+    public ResponseEntity<String> getGradingStats(HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        return ResponseEntity.ok(Result.okGetStringByData("获取评分统计成功", examGradingService.getGradingStats()));
+    }
+
     @PostMapping("/importQuestions")
     public ResponseEntity<String> importQuestions(
             HttpSession session) {
@@ -327,6 +393,51 @@ public class QuestionController {
         }
     }
 
+    @ApiOperation(value = "上传题库文件批量导入", notes = "支持文本格式（题干/选项/答案/分值）、CSV 和 JSON（数组或每行一个对象），后台导入，返回任务信息，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "导入任务已创建"),
+            @ApiResponse(code = 403, message = "无权限访问")
+    })
+    @PostMapping("/importQuestionFile")
+    public ResponseEntity<String> importQuestionFile(
+            @ApiParam(value = "题库文件", required = true) @RequestParam("file") MultipartFile file,
+            @ApiParam(value = "文件格式 text/csv/json，不填则按扩展名判断") @RequestParam(required = false) String format,
+            HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        try {
+            ImportJob job = questionImportService.submit(file, format);
+            return ResponseEntity.ok(Result.okGetStringByData("导入任务已创建", job));
+        } catch (DefaultException | IOException e) {
+            return ResponseEntity.badRequest().body(Result.errorGetString(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "查询题库导入进度", notes = "返回已读取比例、导入/重复/错误数量及逐行错误信息，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "获取导入进度成功"),
+            @ApiResponse(code = 403, message = "无权限访问"),
+            @ApiResponse(code = 404, message = "导入任务不存在")
+    })
+    @GetMapping("/importJobs/{jobId}")
+    public ResponseEntity<String> getImportJob(
+            @ApiParam(value = "导入任务ID", required = true) @PathVariable String jobId,
+            HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        ImportJob job = questionImportService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(404).body(Result.errorGetString("导入任务不存在"));
+        }
+        return ResponseEntity.ok(Result.okGetStringByData("获取导入进度成功", job));
+    }
+
 
 
 
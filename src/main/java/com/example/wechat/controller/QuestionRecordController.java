@@ -2,6 +2,8 @@ package com.example.wechat.controller;
 
 import com.example.wechat.model.QuestionRecord;
 import com.example.wechat.service.QuestionRecordService;
+import com.example.wechat.service.UserStatsService;
+import com.example.wechat.mongo.KeysetPage;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
@@ -21,6 +23,9 @@ public class QuestionRecordController {
     @Autowired
     private QuestionRecordService questionRecordService;
 
+    @Autowired
+    private UserStatsService userStatsService;
+
     @ApiOperation(value = "获取当前用户的问题记录", notes = "返回当前会话userId的所有问题记录")
     @ApiResponses({
             @ApiResponse(code = 200, message = "问题记录获取成功"),
@@ -73,7 +78,10 @@ public class QuestionRecordController {
             @ApiResponse(code = 403, message = "无权限访问")
     })
     @GetMapping("/findAll")
-    public ResponseEntity<String> findAllQuestionRecords(HttpSession session) {
+    public ResponseEntity<Object> findAllQuestionRecords(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         String sessionUserAuth = (String) session.getAttribute("authLevel");
 
         if (session.getAttribute("userId") == null) {
@@ -84,7 +92,68 @@ public class QuestionRecordController {
             return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<QuestionRecord> page = questionRecordService.findQuestionRecordsPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("所有问题记录获取成功", page));
+        }
+
         List<QuestionRecord> records = questionRecordService.findAllQuestionRecords();
-        return ResponseEntity.ok(Result.okGetStringByData("所有问题记录获取成功", records));
+        return ResponseEntity.ok(Result.okBody("所有问题记录获取成功", records));
+    }
+
+    @ApiOperation(value = "获取当前用户的答题统计", notes = "返回当前用户的总答题数、答对数、正确率及各病类统计")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "答题统计获取成功"),
+            @ApiResponse(code = 401, message = "用户未登录")
+    })
+    @GetMapping("/myStats")
+    public ResponseEntity<String> findMyStats(HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) {
+            return ResponseEntity.status(401).body(Result.errorGetString("用户未登录"));
+        }
+
+        return ResponseEntity.ok(Result.okGetStringByData("答题统计获取成功", userStatsService.getUserStats(userId)));
+    }
+
+    @ApiOperation(value = "获取指定用户的答题统计", notes = "需要管理员权限，返回指定用户的总计及各病类统计")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "答题统计获取成功"),
+            @ApiResponse(code = 401, message = "用户未登录"),
+            @ApiResponse(code = 403, message = "无权限访问")
+    })
+    @GetMapping("/statsByUserId")
+    public ResponseEntity<String> findStatsByUserId(
+            @ApiParam(value = "指定的用户ID", required = true) @RequestParam String userId,
+            HttpSession session) {
+        if (session.getAttribute("userId") == null) {
+            return ResponseEntity.status(401).body(Result.errorGetString("用户未登录"));
+        }
+
+        if (!"2".equals(session.getAttribute("authLevel"))) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        return ResponseEntity.ok(Result.okGetStringByData("答题统计获取成功", userStatsService.getUserStats(userId)));
+    }
+
+    @ApiOperation(value = "重建答题统计", notes = "需要管理员权限，根据全部历史问题记录重新计算所有用户的答题统计")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "答题统计重建成功"),
+            @ApiResponse(code = 401, message = "用户未登录"),
+            @ApiResponse(code = 403, message = "无权限访问")
+    })
+    @PostMapping("/rebuildStats")
+    public ResponseEntity<String> rebuildStats(HttpSession session) {
+        if (session.getAttribute("userId") == null) {
+            return ResponseEntity.status(401).body(Result.errorGetString("用户未登录"));
+        }
+
+        if (!"2".equals(session.getAttribute("authLevel"))) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        int count = userStatsService.rebuild();
+        return ResponseEntity.ok(Result.okGetStringByData("答题统计重建成功", count));
     }
 }
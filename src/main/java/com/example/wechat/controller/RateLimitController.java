@@ -0,0 +1,37 @@
+package com.example.wechat.controller;
+
+import com.example.wechat.ratelimit.RateLimiters;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import utils.Result;
+
+import javax.servlet.http.HttpSession;
+
+@RestController
+@RequestMapping("/rateLimit")
+public class RateLimitController {
+
+    @Autowired
+    private RateLimiters rateLimiters;
+
+    @ApiOperation(value = "获取限流统计", notes = "返回各限流器的放行、拒绝次数和跟踪的用户数，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "获取限流统计成功"),
+            @ApiResponse(code = 403, message = "无权限访问")
+    })
+    @GetMapping("/stats")
+    public ResponseEntity<String> getRateLimitStats(HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        return ResponseEntity.ok(Result.okGetStringByData("获取限流统计成功", rateLimiters.getStats()));
+    }
+}
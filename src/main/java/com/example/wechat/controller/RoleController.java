@@ -1,9 +1,11 @@
 package com.example.wechat.controller;
 
+import com.example.wechat.catalog.CatalogResponses;
 import com.example.wechat.exception.NameAlreadyExistedException;
 import com.example.wechat.model.Facility;
 import com.example.wechat.model.Role;
 import com.example.wechat.service.RoleService;
+import com.example.wechat.mongo.KeysetPage;
 import io.swagger.annotations.*;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -142,7 +144,10 @@ public class RoleController {
             @ApiResponse(code = 400, message = "用户未登录")
     })
     @GetMapping("/findAllRoles")
-    public ResponseEntity<String> findAllRoles(HttpSession session) {
+    public ResponseEntity<Object> findAllRoles(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查用户权限
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
@@ -150,8 +155,13 @@ public class RoleController {
             return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录或不具备查看权限"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<Role> page = roleService.findRolesPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有角色信息成功", page));
+        }
+
         List<Role> roles = roleService.findAllRoles();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有角色信息成功", roles));
+        return CatalogResponses.ok("获取所有角色信息成功", roles);
     }
 
 
@@ -0,0 +1,63 @@
+package com.example.wechat.controller;
+
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.search.SearchHit;
+import com.example.wechat.service.SearchService;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import utils.Result;
+
+import javax.servlet.http.HttpSession;
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+
+    @Autowired
+    private SearchService searchService;
+
+    @ApiOperation(value = "全文搜索", notes = "按关键词搜索病例、题目、疾病及各类目的名称和简介，结果按相关度排序")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "搜索成功"),
+            @ApiResponse(code = 400, message = "用户未登录或参数错误")
+    })
+    @GetMapping
+    public ResponseEntity<String> search(
+            @ApiParam(value = "关键词", required = true) @RequestParam String q,
+            @ApiParam(value = "类型，如 case、disease、question，不填则搜索全部") @RequestParam(required = false) String type,
+            @ApiParam(value = "最多返回条数，默认20，最大100") @RequestParam(defaultValue = "20") int limit,
+            HttpSession session) {
+        String userIdStr = (String) session.getAttribute("userId");
+        if (userIdStr == null) {
+            return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录"));
+        }
+
+        try {
+            List<SearchHit> hits = searchService.search(q, type, limit);
+            return ResponseEntity.ok(Result.okGetStringByData("搜索成功", hits));
+        } catch (DefaultException de) {
+            return ResponseEntity.badRequest().body(Result.errorGetString(de.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "获取搜索统计", notes = "返回索引文档数、词数和查询耗时分布，需要管理员权限")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "获取搜索统计成功"),
+            @ApiResponse(code = 403, message = "无权限访问")
+    })
+    @GetMapping("/stats")
+    public ResponseEntity<String> getSearchStats(HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        return ResponseEntity.ok(Result.okGetStringByData("获取搜索统计成功", searchService.getSearchStats()));
+    }
+}
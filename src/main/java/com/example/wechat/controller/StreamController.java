@@ -0,0 +1,73 @@
+package com.example.wechat.controller;
+
+import com.example.wechat.model.*;
+import com.example.wechat.mongo.KeysetPager;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import utils.Result;
+
+import javax.servlet.http.HttpSession;
+import java.util.*;
+
+/**
+ * 以 NDJSON 流式导出各列表接口的数据，沿 Mongo 游标逐批写出，不把整个集合读入内存。
+ */
+@RestController
+@RequestMapping("/stream")
+public class StreamController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+
+    // 可导出的类型，与各 findAll 接口对应
+    private static final Map<String, Class<?>> STREAMABLE = new LinkedHashMap<>();
+
+    // 需要管理员权限才能导出的类型
+    private static final Set<String> ADMIN_ONLY = new HashSet<>(Arrays.asList("user", "questionRecord"));
+
+    static {
+        for (Class<?> type : Arrays.asList(Activity.class, Assay.class, Case.class, Category.class, Charge.class,
+                Department.class, Disease.class, Drug.class, Exam.class, Facility.class, Inpatient.class,
+                Question.class, QuestionRecord.class, Record.class, Role.class, User.class, Vaccinum.class)) {
+            String name = type.getSimpleName();
+            STREAMABLE.put(Character.toLowerCase(name.charAt(0)) + name.substring(1), type);
+        }
+    }
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @ApiOperation(value = "流式导出列表", notes = "按 _id 顺序以 NDJSON（每行一个 JSON 对象）返回全部数据。user、questionRecord 需要管理员权限，其余需要登录；exam 不包含已删除的考试")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "导出成功"),
+            @ApiResponse(code = 401, message = "用户未登录"),
+            @ApiResponse(code = 403, message = "无权限访问"),
+            @ApiResponse(code = 404, message = "不支持的导出类型")
+    })
+    @GetMapping("/{type}")
+    public ResponseEntity<?> stream(
+            @ApiParam(value = "类型，如 case、question、questionRecord", required = true) @PathVariable String type,
+            HttpSession session) {
+        if (session.getAttribute("userId") == null) {
+            return ResponseEntity.status(401).body(Result.errorGetString("用户未登录"));
+        }
+        Class<?> entityClass = STREAMABLE.get(type);
+        if (entityClass == null) {
+            return ResponseEntity.status(404).body(Result.errorGetString("不支持的导出类型"));
+        }
+        if (ADMIN_ONLY.contains(type) && !"2".equals(session.getAttribute("authLevel"))) {
+            return ResponseEntity.status(403).body(Result.errorGetString("无权限访问"));
+        }
+
+        Criteria criteria = entityClass == Exam.class ? Criteria.where("status").ne("Deleted") : null;
+        StreamingResponseBody body = out -> keysetPager.stream(criteria, entityClass, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.wechat.controller;
 
 import com.example.wechat.DTO.RegisterRequestDTO;
+import com.example.wechat.auth.AuthPrincipal;
+import com.example.wechat.auth.TokenService;
 import com.example.wechat.model.File;
 import com.example.wechat.model.Role;
 import com.example.wechat.service.FileStorageService;
@@ -8,6 +10,7 @@ import io.swagger.annotations.*;
 import org.bson.types.ObjectId;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -19,10 +22,13 @@ import java.util.Optional;
 
 import com.example.wechat.model.User;
 import com.example.wechat.service.UserService;
+import com.example.wechat.mongo.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
 @RestController
@@ -35,6 +41,13 @@ public class UserController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private TokenService tokenService;
+
+    // 为 false 时登录只签发令牌，不创建服务端会话
+    @Value("${auth.session.enabled:true}")
+    private boolean sessionEnabled;
+
     @ApiOperation(value="添加用户", notes = "添加新的用户记录（Body)")
     @PostMapping("/addUser")
     public ResponseEntity<String> addUser(@ApiParam(value = "用户信息", required = true) @RequestBody User user) {
@@ -74,35 +87,53 @@ public class UserController {
         return ResponseEntity.ok(Result.okGetString("注册成功"));
     }
 
-    @ApiOperation(value = "用户登录", notes = "用户登录接口")
+    @ApiOperation(value = "用户登录", notes = "用户登录接口，响应头 X-Auth-Token 中返回登录令牌，之后的请求可通过 Authorization: Bearer 令牌 访问，不依赖会话")
     @ApiImplicitParams({
             @ApiImplicitParam(name = "username", value = "用户名", required = true, dataType = "String", paramType = "query"),
             @ApiImplicitParam(name = "password", value = "密码", required = true, dataType = "String", paramType = "query")
     })
     @PostMapping("/login")
     public ResponseEntity<String> tryLogin(@RequestBody Map<String, String> credentials,
-                                           HttpSession session) {
+                                           HttpServletRequest request) {
 
         String username = credentials.get("username");
         String password = credentials.get("password");
         String auth = credentials.get("auth");
-        Optional<User> userOptional = userService.tryLogin(username, password,auth);
+        Optional<User> userOptional = userService.tryLogin(username, password, auth, request.getRemoteAddr());
         if (userOptional.isPresent()) {
             // 登录成功，将用户ID和权限等级保存到会话中
             User user = userOptional.get();
-            session.setAttribute("userId", user.getId().toString());
-            session.setAttribute("authLevel", user.getAuth()); // 存储权限等级到会话中
+            if (sessionEnabled) {
+                HttpSession session = request.getSession();
+                session.setAttribute("userId", user.getId().toString());
+                session.setAttribute("authLevel", user.getAuth()); // 存储权限等级到会话中
+            }
+            String token = tokenService.issue(user.getId().toString(), user.getAuth());
 
             // 为了安全起见，返回的用户信息不应包含敏感信息如密码
             user.setPassword(null);
 
-            return ResponseEntity.ok(Result.okGetStringByData("登录成功", user));
+            if (token == null) {
+                // 未启用令牌登录
+                return ResponseEntity.ok(Result.okGetStringByData("登录成功", user));
+            }
+            return ResponseEntity.ok().header("X-Auth-Token", token).body(Result.okGetStringByData("登录成功", user));
         } else {
             // 登录失败
             return ResponseEntity.badRequest().body(Result.errorGetString("用户名或密码错误"));
         }
     }
 
+    @ApiOperation(value = "获取登录统计", notes = "返回登录耗时分布、失败与锁定次数及密码哈希线程池状态，仅管理员可用")
+    @GetMapping("/loginStats")
+    public ResponseEntity<String> getLoginStats(HttpSession session) {
+        String userAuth = (String) session.getAttribute("authLevel");
+        if (!"2".equals(userAuth)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Result.errorGetString("无权限访问"));
+        }
+        return ResponseEntity.ok(Result.okGetStringByData("获取登录统计成功", userService.getLoginStats()));
+    }
+
     @ApiOperation(value = "获取当前用户信息", notes = "返回当前会话中的用户信息")
     @GetMapping("/current")
     public ResponseEntity<String> getCurrentUser(HttpSession session) {
@@ -129,11 +160,18 @@ public class UserController {
         }
     }
 
-    @ApiOperation(value = "用户登出", notes = "用户登出接口，结束用户会话")
+    @ApiOperation(value = "用户登出", notes = "用户登出接口，结束用户会话并吊销当前令牌")
     @PostMapping("/logout")
-    public ResponseEntity<String> logout(HttpSession session) {
+    public ResponseEntity<String> logout(HttpServletRequest request) {
+        AuthPrincipal principal = AuthPrincipal.current(request);
+        if (principal != null) {
+            tokenService.revoke(principal);
+        }
         // 结束会话
-        session.invalidate();
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
 
         // 返回登出成功的消息
         return ResponseEntity.ok(Result.okGetString("登出成功"));
@@ -166,7 +204,10 @@ public class UserController {
             @ApiResponse(code = 400, message = "用户未登录或不具备查看权限")
     })
     @GetMapping("/findAllUsers")
-    public ResponseEntity<String> findAllUsers(HttpSession session) {
+    public ResponseEntity<Object> findAllUsers(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查用户权限
         String userAuth = (String) session.getAttribute("authLevel");
         if (!"2".equals(userAuth)) {
@@ -174,8 +215,13 @@ public class UserController {
             return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录或不具备查看权限"));
         }
 
+        if (after != null || limit != null) {
+            KeysetPage<User> page = userService.findUsersPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有用户信息成功", page));
+        }
+
         List<User> users = userService.findAllUsers();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有用户信息成功", users));
+        return ResponseEntity.ok(Result.okBody("获取所有用户信息成功", users));
     }
 
     @ApiOperation(value = "修改密码", notes = "用户已登陆时，提供当前用户名，密码和新密码来修改密码(body)")
@@ -291,6 +337,7 @@ public class UserController {
             boolean updateSuccess = userService.updatePasswordById(objectId, newPassword);
 
             if (updateSuccess) {
+                // 原有令牌已在 UserService 中吊销
                 return ResponseEntity.ok(Result.okGetString("密码修改成功"));
             } else {
                 return ResponseEntity.badRequest().body(Result.errorGetString("用户ID错误或不存在"));
@@ -318,6 +365,8 @@ public class UserController {
             boolean updateSuccess = userService.updateAuth(userId, auth);
 
             if (updateSuccess) {
+                // 令牌中带有权限等级，权限变更后需要重新登录
+                tokenService.revokeUser(userIdStr);
                 return ResponseEntity.ok(Result.okGetString("权限更新成功"));
             } else {
                 return ResponseEntity.badRequest().body(Result.errorGetString("用户ID错误或不存在"));
@@ -365,6 +414,7 @@ public class UserController {
 
         try {
             userService.deleteUserById(userId);
+            tokenService.revokeUser(userId);
             return ResponseEntity.ok(Result.okGetString("用户删除成功"));
         } catch (Exception e) {
             return ResponseEntity.status(404).body(e.getMessage());
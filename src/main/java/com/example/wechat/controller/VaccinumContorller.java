@@ -1,9 +1,11 @@
 package com.example.wechat.controller;
 
+import com.example.wechat.catalog.CatalogResponses;
 import com.example.wechat.exception.NameAlreadyExistedException;
 import com.example.wechat.model.Inpatient;
 import com.example.wechat.model.Vaccinum;
 import com.example.wechat.service.VaccinumService;
+import com.example.wechat.mongo.KeysetPage;
 import io.swagger.annotations.*;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -121,15 +123,23 @@ public class VaccinumContorller {
             @ApiResponse(code = 400, message = "用户未登录")
     })
     @GetMapping("/findAllVaccinums")
-    public ResponseEntity<String> findAllVaccinums(HttpSession session) {
+    public ResponseEntity<Object> findAllVaccinums(
+            @ApiParam(value = "分页游标，传入上一页返回的 nextCursor；after 和 limit 都不传时返回全部") @RequestParam(required = false) String after,
+            @ApiParam(value = "每页条数，默认20，最大200") @RequestParam(required = false) Integer limit,
+            HttpSession session) {
         // 检查用户登录
         String userId = (String) session.getAttribute("userId");
         if (userId == null) {
             // 用户未登录
             return ResponseEntity.badRequest().body(Result.errorGetString("用户未登录"));
         }
+        if (after != null || limit != null) {
+            KeysetPage<Vaccinum> page = vaccinumService.findVaccinumsPage(after, limit);
+            return ResponseEntity.ok(Result.okBody("获取所有疫苗信息成功", page));
+        }
+
         List<Vaccinum> vaccinums = vaccinumService.findAllVaccinums();
-        return ResponseEntity.ok(Result.okGetStringByData("获取所有疫苗信息成功", vaccinums));
+        return CatalogResponses.ok("获取所有疫苗信息成功", vaccinums);
     }
     /**
      * 根据疫苗ID获取部门信息。
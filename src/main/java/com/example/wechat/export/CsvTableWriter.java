@@ -0,0 +1,44 @@
+package com.example.wechat.export;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 写出 UTF-8 编码的 CSV，开头带 BOM 以便 Excel 正确识别中文。
+ */
+public class CsvTableWriter implements TableWriter {
+
+    private final Writer writer;
+
+    public CsvTableWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('﻿');
+    }
+
+    @Override
+    public void writeRow(List<?> cells) throws IOException {
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object cell = cells.get(i);
+            if (cell != null) {
+                writer.write(escape(cell.toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
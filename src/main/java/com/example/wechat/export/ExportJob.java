@@ -0,0 +1,55 @@
+package com.example.wechat.export;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 一次后台导出的状态与结果。导出线程写、查询接口读，进度字段均为 volatile。
+ */
+@Data
+public class ExportJob {
+
+    private String id;
+
+    // examRecord / questionRecord
+    private String type;
+
+    // csv / xlsx
+    private String format;
+
+    // 进行中/已完成/失败
+    private volatile String status = "进行中";
+
+    // 开始导出时统计的记录数，用于估算进度
+    private volatile long total;
+
+    private volatile long written;
+
+    // 导出文件在 GridFS 中的 id；文件只能通过 downloadPath（需要管理员权限）下载
+    private volatile String fileId;
+
+    private volatile String downloadPath;
+
+    private volatile String message;
+
+    private Date startTime = new Date();
+
+    private volatile Date endTime;
+
+    public ExportJob(String id, String type, String format) {
+        this.id = id;
+        this.type = type;
+        this.format = format;
+    }
+
+    /**
+     * 已写出记录数占总数的比例。
+     */
+    public double getProgress() {
+        if ("已完成".equals(status)) {
+            return 1.0;
+        }
+        return total <= 0 ? 0.0 : Math.min(1.0, (double) written / total);
+    }
+}
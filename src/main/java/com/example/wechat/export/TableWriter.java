@@ -0,0 +1,41 @@
+package com.example.wechat.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 逐行写出表格数据，写出的内容直接进入底层输出流，不在内存中保留已写的行。
+ */
+public interface TableWriter extends Closeable {
+
+    /**
+     * 写出一行。单元格为 Number 时按数值写出，null 写为空单元格，其余按 toString 写出。
+     */
+    void writeRow(List<?> cells) throws IOException;
+
+    /**
+     * 写完所有行后调用，补齐文件结尾，但不关闭底层输出流。
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * 按格式名创建写出器，支持 csv 和 xlsx。
+     *
+     * @param format 格式名
+     * @param out    目标输出流
+     * @return 对应格式的写出器
+     * @throws IllegalArgumentException 格式不支持时抛出
+     */
+    static TableWriter of(String format, OutputStream out) throws IOException {
+        if ("csv".equalsIgnoreCase(format)) {
+            return new CsvTableWriter(out);
+        }
+        if ("xlsx".equalsIgnoreCase(format)) {
+            return new XlsxTableWriter(out);
+        }
+        throw new IllegalArgumentException("不支持的导出格式: " + format);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.wechat.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 解析 CSV 题库。第一行为表头，列名可用中文或英文：
+ * 类别/category、题干/stem、选项/options、答案/answer、分值/score。
+ * 选项列可以是 JSON 数组，也可以用 | 分隔；字段按 RFC 4180 规则支持双引号转义和引号内换行。
+ */
+public class CsvQuestionParser implements QuestionParser {
+
+    private static final Map<String, String> HEADER_ALIASES = new HashMap<>();
+
+    static {
+        HEADER_ALIASES.put("类别", "category");
+        HEADER_ALIASES.put("题干", "stem");
+        HEADER_ALIASES.put("选项", "options");
+        HEADER_ALIASES.put("答案", "answer");
+        HEADER_ALIASES.put("分值", "score");
+    }
+
+    @Override
+    public void parse(InputStream in, QuestionSink sink) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().replace("﻿", "");
+            columns.put(HEADER_ALIASES.getOrDefault(name, name.toLowerCase(Locale.ROOT)), i);
+        }
+        if (!columns.containsKey("stem")) {
+            sink.error(1, "表头缺少题干列");
+            return;
+        }
+
+        List<String> row;
+        while ((row = reader.next()) != null) {
+            int line = reader.getRecordLine();
+            if (row.size() == 1 && row.get(0).trim().isEmpty()) {
+                continue;
+            }
+            ImportedQuestion question = new ImportedQuestion();
+            question.setLine(line);
+            question.setCategory(emptyToNull(cell(row, columns, "category")));
+            question.setStem(cell(row, columns, "stem"));
+            question.setOptionList(ParseSupport.parseOptions(cell(row, columns, "options")));
+            question.setAnswer(cell(row, columns, "answer"));
+            try {
+                question.setScore(ParseSupport.parseScore(cell(row, columns, "score")));
+            } catch (IllegalArgumentException e) {
+                sink.error(line, e.getMessage());
+                continue;
+            }
+            sink.accept(question);
+        }
+    }
+
+    private static String cell(List<String> row, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= row.size() ? null : row.get(index).trim();
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * 逐条读取 CSV 记录，记录可以跨多行（引号内换行）。
+     */
+    static class CsvReader {
+
+        private final BufferedReader reader;
+        private int line = 0;
+        private int recordLine = 0;
+
+        CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * 读取下一条记录，到达文件末尾时返回 null。
+         */
+        List<String> next() throws IOException {
+            String text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+            recordLine = line;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i >= text.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // 引号内换行，继续读下一行
+                    String more = reader.readLine();
+                    if (more == null) {
+                        break;
+                    }
+                    line++;
+                    field.append('\n');
+                    text = more;
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i < text.length() && text.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        /**
+         * 最近一次读取的记录在文件中的起始行号。
+         */
+        int getRecordLine() {
+            return recordLine;
+        }
+    }
+}
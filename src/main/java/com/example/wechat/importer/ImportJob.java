@@ -0,0 +1,77 @@
+package com.example.wechat.importer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 一次题库导入的进度与结果。导入线程写、查询接口读，计数字段均为 volatile。
+ */
+@Data
+public class ImportJob {
+
+    // 最多保留的错误明细条数，超出部分只计数
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private String id;
+
+    private String fileName;
+
+    // 进行中/已完成/失败
+    private volatile String status = "进行中";
+
+    private volatile long totalBytes;
+
+    private volatile long bytesRead;
+
+    // 解析出的题目数（不含格式错误的条目）
+    private volatile int parsed;
+
+    private volatile int inserted;
+
+    // 文件内重复或题库中已存在而跳过的题目数
+    private volatile int duplicates;
+
+    private volatile int errorCount;
+
+    private final List<ImportError> errors = new CopyOnWriteArrayList<>();
+
+    private volatile String message;
+
+    private Date startTime = new Date();
+
+    private volatile Date endTime;
+
+    public ImportJob(String id, String fileName, long totalBytes) {
+        this.id = id;
+        this.fileName = fileName;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * 已读取字节数占文件大小的比例。
+     */
+    public double getProgress() {
+        if ("已完成".equals(status)) {
+            return 1.0;
+        }
+        return totalBytes <= 0 ? 0.0 : Math.min(1.0, (double) bytesRead / totalBytes);
+    }
+
+    public void addError(int line, String message) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new ImportError(line, message));
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ImportError {
+        private int line;
+        private String message;
+    }
+}
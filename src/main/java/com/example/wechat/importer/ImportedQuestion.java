@@ -0,0 +1,25 @@
+package com.example.wechat.importer;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 解析出的一道待导入题目，category 为类别名称，尚未解析成实体。
+ */
+@Data
+public class ImportedQuestion {
+
+    // 题目在源文件中的起始行号，用于报告错误
+    private int line;
+
+    private String category;
+
+    private String stem;
+
+    private List<String> optionList;
+
+    private String answer;
+
+    private Integer score;
+}
@@ -0,0 +1,75 @@
+package com.example.wechat.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解析 JSON 题库，支持顶层数组或每行一个对象（NDJSON，与 /stream/question 的导出格式一致）。
+ * 对象字段：stem、optionList（数组或字符串）、answer、score，
+ * category 可以是类别名称字符串，也可以是带 name 字段的对象。
+ * 逐个对象读取，不把整份文件读入内存。
+ */
+public class JsonQuestionParser implements QuestionParser {
+
+    @Override
+    public void parse(InputStream in, QuestionSink sink) throws IOException {
+        try (MappingIterator<JsonNode> iterator = ParseSupport.MAPPER.readerFor(JsonNode.class).readValues(in)) {
+            while (true) {
+                int line = 0;
+                JsonNode node;
+                try {
+                    if (!iterator.hasNextValue()) {
+                        break;
+                    }
+                    // 此时解析器停在下一个值的起始位置
+                    line = iterator.getParser().getTokenLocation().getLineNr();
+                    node = iterator.nextValue();
+                } catch (JsonProcessingException e) {
+                    // JSON 语法错误后无法可靠地找到下一个对象，停止解析
+                    sink.error(e.getLocation() == null ? line : e.getLocation().getLineNr(), "JSON 格式错误: " + e.getOriginalMessage());
+                    return;
+                }
+                if (!node.isObject()) {
+                    sink.error(line, "不是 JSON 对象");
+                    continue;
+                }
+                sink.accept(toQuestion(node, line));
+            }
+        }
+    }
+
+    private static ImportedQuestion toQuestion(JsonNode node, int line) {
+        ImportedQuestion question = new ImportedQuestion();
+        question.setLine(line);
+        JsonNode category = node.path("category");
+        if (category.isTextual()) {
+            question.setCategory(category.asText());
+        } else if (category.isObject() && category.path("name").isTextual()) {
+            question.setCategory(category.path("name").asText());
+        }
+        question.setStem(text(node, "stem"));
+        JsonNode options = node.path("optionList");
+        if (options.isArray()) {
+            List<String> optionList = new ArrayList<>();
+            options.forEach(option -> optionList.add(option.asText().trim()));
+            question.setOptionList(optionList);
+        } else {
+            question.setOptionList(ParseSupport.parseOptions(text(node, "optionList")));
+        }
+        question.setAnswer(text(node, "answer"));
+        JsonNode score = node.path("score");
+        question.setScore(score.canConvertToInt() ? score.asInt() : null);
+        return question;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isMissingNode() || value.isNull() ? null : value.asText().trim();
+    }
+}
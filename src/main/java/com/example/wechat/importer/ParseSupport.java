@@ -0,0 +1,66 @@
+package com.example.wechat.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 各解析器共用的字段解析方法。
+ */
+final class ParseSupport {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ParseSupport() {
+    }
+
+    /**
+     * 解析选项：优先按 JSON 数组解析（如 ["A项", "B项"]），否则按 | 或逗号分隔。
+     */
+    static List<String> parseOptions(String value) {
+        List<String> options = new ArrayList<>();
+        if (value == null || value.trim().isEmpty()) {
+            return options;
+        }
+        String text = value.trim();
+        if (text.startsWith("[")) {
+            try {
+                JsonNode node = MAPPER.readTree(text);
+                if (node.isArray()) {
+                    node.forEach(option -> options.add(option.asText().trim()));
+                    return options;
+                }
+            } catch (JsonProcessingException ignored) {
+                // 不是合法 JSON，按分隔符处理
+            }
+            text = text.substring(1, text.endsWith("]") ? text.length() - 1 : text.length());
+        }
+        for (String option : text.split(text.contains("|") ? "\\|" : "[,，]")) {
+            String trimmed = option.trim();
+            if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+                trimmed = trimmed.substring(1, trimmed.length() - 1).trim();
+            }
+            if (!trimmed.isEmpty()) {
+                options.add(trimmed);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 解析分值，格式不合法时抛出 IllegalArgumentException。
+     */
+    static Integer parseScore(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("分值不是整数: " + value.trim());
+        }
+    }
+}
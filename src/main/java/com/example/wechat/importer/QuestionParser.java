@@ -0,0 +1,45 @@
+package com.example.wechat.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * 题库文件的流式解析器。
+ */
+public interface QuestionParser {
+
+    /**
+     * 逐条解析输入流中的题目。单条题目格式错误只回调 sink.error，不中断解析。
+     *
+     * @param in   UTF-8 编码的输入流
+     * @param sink 解析结果的接收方
+     * @throws IOException 读取失败时抛出
+     */
+    void parse(InputStream in, QuestionSink sink) throws IOException;
+
+    /**
+     * 按格式名（text/csv/json）或文件扩展名选择解析器，无法识别时按 text 格式解析。
+     *
+     * @param format   格式名，可为空
+     * @param fileName 文件名，可为空
+     * @return 对应的解析器
+     */
+    static QuestionParser of(String format, String fileName) {
+        String type = format;
+        if ((type == null || type.isEmpty()) && fileName != null && fileName.lastIndexOf('.') >= 0) {
+            type = fileName.substring(fileName.lastIndexOf('.') + 1);
+        }
+        type = type == null ? "" : type.toLowerCase(Locale.ROOT);
+        switch (type) {
+            case "csv":
+                return new CsvQuestionParser();
+            case "json":
+            case "jsonl":
+            case "ndjson":
+                return new JsonQuestionParser();
+            default:
+                return new TextQuestionParser();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.wechat.importer;
+
+/**
+ * 接收解析结果。解析器每解析出一道题或遇到一处错误就回调一次，不在内存中累积整份文件。
+ */
+public interface QuestionSink {
+
+    void accept(ImportedQuestion question);
+
+    void error(int line, String message);
+}
@@ -0,0 +1,94 @@
+package com.example.wechat.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 解析原有的文本题库格式：
+ * <pre>
+ * 类别名称
+ *
+ * 题干: ...
+ * 选项: ["...", "..."]
+ * 答案: A
+ * 分值: 5
+ * </pre>
+ * 题目之间以空行分隔；不以字段名开头的单独一行视为之后题目的类别。字段名后的冒号可以是全角或半角。
+ */
+public class TextQuestionParser implements QuestionParser {
+
+    @Override
+    public void parse(InputStream in, QuestionSink sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String category = null;
+        ImportedQuestion current = null;
+        // 当前题目是否已报告过错误，有错误的题目不再提交
+        boolean invalid = false;
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String text = line.trim();
+            if (lineNumber == 1 && text.startsWith("﻿")) {
+                text = text.substring(1).trim();
+            }
+            if (text.isEmpty()) {
+                current = finish(current, invalid, sink);
+                continue;
+            }
+
+            int colon = colonIndex(text);
+            String field = colon > 0 ? text.substring(0, colon).trim() : null;
+            String value = colon > 0 ? text.substring(colon + 1).trim() : null;
+            if ("题干".equals(field)) {
+                finish(current, invalid, sink);
+                invalid = false;
+                current = new ImportedQuestion();
+                current.setLine(lineNumber);
+                current.setCategory(category);
+                current.setStem(value);
+            } else if ("选项".equals(field) || "答案".equals(field) || "分值".equals(field)) {
+                if (current == null) {
+                    sink.error(lineNumber, "缺少题干");
+                    continue;
+                }
+                if ("选项".equals(field)) {
+                    current.setOptionList(ParseSupport.parseOptions(value));
+                } else if ("答案".equals(field)) {
+                    current.setAnswer(value);
+                } else {
+                    try {
+                        current.setScore(ParseSupport.parseScore(value));
+                    } catch (IllegalArgumentException e) {
+                        sink.error(lineNumber, e.getMessage());
+                        invalid = true;
+                    }
+                }
+            } else {
+                // 类别行
+                current = finish(current, invalid, sink);
+                category = text;
+            }
+        }
+        finish(current, invalid, sink);
+    }
+
+    private static ImportedQuestion finish(ImportedQuestion question, boolean invalid, QuestionSink sink) {
+        if (question != null && !invalid) {
+            sink.accept(question);
+        }
+        return null;
+    }
+
+    private static int colonIndex(String text) {
+        int half = text.indexOf(':');
+        int full = text.indexOf('：');
+        if (half < 0) {
+            return full;
+        }
+        return full < 0 ? half : Math.min(half, full);
+    }
+}
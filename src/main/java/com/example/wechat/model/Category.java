@@ -1,5 +1,6 @@
 package com.example.wechat.model;
 
+import com.example.wechat.catalog.CatalogEntity;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Data;
@@ -9,7 +10,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @Document
-public class Category {
+public class Category implements CatalogEntity {
     @Id
     @JsonSerialize(using = ToStringSerializer.class)
     private ObjectId id;
@@ -1,5 +1,6 @@
 package com.example.wechat.model;
 
+import com.example.wechat.catalog.CatalogEntity;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import io.swagger.annotations.ApiModelProperty;
@@ -12,7 +13,7 @@ import java.util.List;
 
 @Data
 @Document
-public class Department {
+public class Department implements CatalogEntity {
     @Id
     @JsonSerialize(using = ToStringSerializer.class)
     private ObjectId id;
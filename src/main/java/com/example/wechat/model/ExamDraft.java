@@ -0,0 +1,26 @@
+package com.example.wechat.model;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@Document
+@ApiModel(description = "组卷草稿")
+public class ExamDraft {
+    @Id
+    @ApiModelProperty(value = "草稿所有者，登录用户为用户id，未登录时为会话id")
+    private String id;
+
+    @ApiModelProperty(value = "已选题目的id，按加入顺序排列")
+    private List<ObjectId> questionIds;
+
+    @ApiModelProperty(value = "最近修改时间，超过有效期后由 TTL 索引自动删除")
+    private Date updatedAt;
+}
@@ -0,0 +1,27 @@
+package com.example.wechat.model;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Data
+@Document
+@ApiModel(description = "已吊销的登录令牌")
+public class RevokedToken {
+    @Id
+    @ApiModelProperty(value = "单个令牌为令牌id；吊销某用户全部令牌时为 user: 加用户id")
+    private String id;
+
+    @ApiModelProperty(value = "用户id")
+    private String userId;
+
+    @ApiModelProperty(value = "吊销时间，吊销用户全部令牌时，此前签发的令牌均失效")
+    private Date revokedAt;
+
+    @ApiModelProperty(value = "被吊销的令牌全部过期的时间，之后由 TTL 索引自动删除")
+    private Date expiresAt;
+}
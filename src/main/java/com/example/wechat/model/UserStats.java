@@ -0,0 +1,43 @@
+package com.example.wechat.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Data
+@Document
+@ApiModel(description = "用户答题统计")
+public class UserStats {
+    @Id
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId id;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    @ApiModelProperty(value = "用户id")
+    private ObjectId userId;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    @ApiModelProperty(value = "病类id，为空表示该用户的总计")
+    private ObjectId categoryId;
+
+    @ApiModelProperty(value = "答题次数", example = "20")
+    private long attempts;
+
+    @ApiModelProperty(value = "答对次数", example = "15")
+    private long correct;
+
+    @ApiModelProperty(value = "最近一次答题时间")
+    private Date lastAnswered;
+
+    @ApiModelProperty(value = "正确率", example = "0.75")
+    public double getAccuracy() {
+        return attempts == 0 ? 0.0 : (double) correct / attempts;
+    }
+}
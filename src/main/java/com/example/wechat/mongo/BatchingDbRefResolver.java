@@ -0,0 +1,171 @@
+package com.example.wechat.mongo;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 支持批量预取的 DBRef 解析器。
+ * 在 withBatch 范围内，解析过的 DBRef 文档按“集合 + _id”缓存在当前线程（身份映射），
+ * 同一次读取中重复引用的用户、考试、题目只查一次；配合 prefetch 可按集合一次 $in 取回所有引用。
+ * 范围之外的行为与 DefaultDbRefResolver 完全一致。
+ */
+public class BatchingDbRefResolver extends DefaultDbRefResolver {
+
+    // 预取引用的最大层数，如 QuestionRecord -> Exam -> Question
+    private static final int MAX_PREFETCH_DEPTH = 3;
+
+    private static final ThreadLocal<BatchContext> CONTEXT = new ThreadLocal<>();
+
+    private final MongoDatabaseFactory mongoDbFactory;
+
+    public BatchingDbRefResolver(MongoDatabaseFactory mongoDbFactory) {
+        super(mongoDbFactory);
+        this.mongoDbFactory = mongoDbFactory;
+    }
+
+    /**
+     * 在身份映射范围内执行操作，可嵌套，由最外层负责清理。
+     */
+    public <T> T withBatch(Supplier<T> action) {
+        boolean owner = CONTEXT.get() == null;
+        if (owner) {
+            CONTEXT.set(new BatchContext());
+        }
+        try {
+            return action.get();
+        } finally {
+            if (owner) {
+                CONTEXT.remove();
+            }
+        }
+    }
+
+    /**
+     * 逐层收集文档中的 DBRef，每层每个集合只发一次 $in 查询，结果放入当前身份映射。
+     * 不在 withBatch 范围内时不做任何事。
+     *
+     * @param documents 尚未转换的原始文档
+     */
+    public void prefetch(Collection<Document> documents) {
+        BatchContext context = CONTEXT.get();
+        if (context == null) {
+            return;
+        }
+        Collection<Document> level = documents;
+        for (int depth = 0; depth < MAX_PREFETCH_DEPTH && !level.isEmpty(); depth++) {
+            Map<String, Set<Object>> pending = new HashMap<>();
+            for (Document document : level) {
+                collectRefs(document.values(), context, pending);
+            }
+            List<Document> fetched = new ArrayList<>();
+            for (Map.Entry<String, Set<Object>> entry : pending.entrySet()) {
+                fetched.addAll(load(context, entry.getKey(), entry.getValue()));
+            }
+            level = fetched;
+        }
+    }
+
+    @Override
+    public Document fetch(DBRef dbRef) {
+        BatchContext context = CONTEXT.get();
+        if (context == null || dbRef.getDatabaseName() != null) {
+            return super.fetch(dbRef);
+        }
+        if (!context.contains(dbRef)) {
+            load(context, dbRef.getCollectionName(), Collections.singleton(dbRef.getId()));
+        }
+        return context.get(dbRef);
+    }
+
+    @Override
+    public List<Document> bulkFetch(List<DBRef> dbRefs) {
+        BatchContext context = CONTEXT.get();
+        if (context == null || dbRefs.isEmpty()) {
+            return super.bulkFetch(dbRefs);
+        }
+
+        Map<String, Set<Object>> missing = new HashMap<>();
+        for (DBRef dbRef : dbRefs) {
+            if (dbRef.getDatabaseName() != null) {
+                return super.bulkFetch(dbRefs);
+            }
+            if (!context.contains(dbRef)) {
+                missing.computeIfAbsent(dbRef.getCollectionName(), k -> new LinkedHashSet<>()).add(dbRef.getId());
+            }
+        }
+        for (Map.Entry<String, Set<Object>> entry : missing.entrySet()) {
+            load(context, entry.getKey(), entry.getValue());
+        }
+
+        // 与 DefaultDbRefResolver 一致：按引用顺序返回，不存在的引用直接跳过
+        List<Document> result = new ArrayList<>(dbRefs.size());
+        for (DBRef dbRef : dbRefs) {
+            Document document = context.get(dbRef);
+            if (document != null) {
+                result.add(document);
+            }
+        }
+        return result;
+    }
+
+    private List<Document> load(BatchContext context, String collection, Set<Object> ids) {
+        List<Document> documents = new ArrayList<>(ids.size());
+        mongoDbFactory.getMongoDatabase().getCollection(collection)
+                .find(Filters.in("_id", ids))
+                .into(documents);
+        for (Document document : documents) {
+            context.put(collection, document.get("_id"), document);
+        }
+        // 不存在的引用也记下来，避免重复查询
+        for (Object id : ids) {
+            context.putIfAbsent(collection, id);
+        }
+        return documents;
+    }
+
+    private void collectRefs(Collection<?> values, BatchContext context, Map<String, Set<Object>> pending) {
+        for (Object value : values) {
+            if (value instanceof DBRef) {
+                DBRef dbRef = (DBRef) value;
+                if (dbRef.getDatabaseName() == null && !context.contains(dbRef)) {
+                    pending.computeIfAbsent(dbRef.getCollectionName(), k -> new LinkedHashSet<>()).add(dbRef.getId());
+                }
+            } else if (value instanceof Collection) {
+                collectRefs((Collection<?>) value, context, pending);
+            } else if (value instanceof Document) {
+                collectRefs(((Document) value).values(), context, pending);
+            }
+        }
+    }
+
+    /**
+     * 单个线程内的身份映射：集合名 -> (_id -> 文档)，值为 null 表示该引用不存在。
+     */
+    private static class BatchContext {
+        private final Map<String, Map<Object, Document>> documents = new HashMap<>();
+
+        boolean contains(DBRef dbRef) {
+            Map<Object, Document> byId = documents.get(dbRef.getCollectionName());
+            return byId != null && byId.containsKey(dbRef.getId());
+        }
+
+        Document get(DBRef dbRef) {
+            Map<Object, Document> byId = documents.get(dbRef.getCollectionName());
+            return byId == null ? null : byId.get(dbRef.getId());
+        }
+
+        void put(String collection, Object id, Document document) {
+            documents.computeIfAbsent(collection, k -> new HashMap<>()).put(id, document);
+        }
+
+        void putIfAbsent(String collection, Object id) {
+            documents.computeIfAbsent(collection, k -> new HashMap<>()).putIfAbsent(id, null);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.wechat.mongo;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 为整个请求开启 DBRef 身份映射，同一请求中多次读取同一引用只查询一次。
+ * 请求内先写后读会读到写之前的引用文档，因此默认不启用，见 mongo.dbref.request-cache。
+ */
+public class DbRefBatchFilter extends OncePerRequestFilter {
+
+    private final BatchingDbRefResolver dbRefResolver;
+
+    public DbRefBatchFilter(BatchingDbRefResolver dbRefResolver) {
+        this.dbRefResolver = dbRefResolver;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            dbRefResolver.withBatch(() -> {
+                try {
+                    filterChain.doFilter(request, response);
+                } catch (IOException | ServletException e) {
+                    throw new FilterChainException(e);
+                }
+                return null;
+            });
+        } catch (FilterChainException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw (ServletException) e.getCause();
+        }
+    }
+
+    private static class FilterChainException extends RuntimeException {
+        FilterChainException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.wechat.mongo;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量读取带 DBRef 的实体：先取原始文档，再按集合批量预取全部引用，最后统一转换成实体。
+ * 读取 N 条考试记录时，引用查询次数只与引用层数和集合数有关，与 N 无关。
+ */
+@Component
+public class DbRefBatchReader {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BatchingDbRefResolver dbRefResolver;
+
+    /**
+     * 按查询条件读取实体列表，DBRef 以批量方式解析。
+     *
+     * @param query       查询条件（字段名按数据库中的名称书写，如 exam.$id）
+     * @param entityClass 实体类型
+     * @return 实体列表
+     */
+    public <T> List<T> find(Query query, Class<T> entityClass) {
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        return read(mongoTemplate.find(query, Document.class, collection), entityClass);
+    }
+
+    /**
+     * 把已经取出的原始文档转换成实体，DBRef 以批量方式解析。
+     *
+     * @param documents   原始文档
+     * @param entityClass 实体类型
+     * @return 实体列表，顺序与 documents 一致
+     */
+    public <T> List<T> read(List<Document> documents, Class<T> entityClass) {
+        return dbRefResolver.withBatch(() -> {
+            dbRefResolver.prefetch(documents);
+
+            List<T> result = new ArrayList<>(documents.size());
+            for (Document document : documents) {
+                result.add(mongoTemplate.getConverter().read(entityClass, document));
+            }
+            return result;
+        });
+    }
+}
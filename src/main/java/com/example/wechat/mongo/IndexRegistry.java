@@ -0,0 +1,279 @@
+package com.example.wechat.mongo;
+
+import com.example.wechat.model.*;
+import com.example.wechat.model.Record;
+import com.mongodb.MongoException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 仓库查询方法所需索引的注册表。
+ * 启动时按声明逐个 ensureIndex（已存在时不做任何事）；所有 Bean 初始化完成后，
+ * 对每个仓库查询方法的过滤条件执行 explain，获胜计划中出现 COLLSCAN 时按 mongo.index.verify 告警（warn）或中止启动（fail）。
+ * 以不区分大小写的 $regex 做模糊匹配的方法无法利用索引，不在检查范围内。
+ * 各模块自行维护的索引（如 QuestionSampler、ExamStatusUpdater 中的）不在此重复声明，但同样参与检查。
+ * 唯一索引在集合中已有重复数据或已有同键的非唯一索引时无法建立，此时记录错误日志并继续启动，
+ * 依赖唯一约束的模块通过 hasUniqueIndex 判断约束是否生效。
+ */
+@Component
+public class IndexRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexRegistry.class);
+
+    // 仅用于 explain 的示例取值
+    private static final ObjectId SAMPLE_ID = new ObjectId("000000000000000000000000");
+    private static final String SAMPLE_TEXT = "";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // off / warn / fail
+    @Value("${mongo.index.verify:warn}")
+    private String verifyMode;
+
+    private final List<IndexSpec> indexes = new ArrayList<>();
+    private final List<QueryProbe> probes = new ArrayList<>();
+
+    // 已确认建立的唯一索引，集合名 + 字段
+    private final Set<String> uniqueIndexes = ConcurrentHashMap.newKeySet();
+
+    public IndexRegistry() {
+        // 按名称查找；经 NameUniqueness 校验名称的集合使用唯一索引，在写入时拦截校验漏掉的重名
+        for (Class<?> entityClass : Arrays.asList(Assay.class, Charge.class, Department.class, Disease.class,
+                Drug.class, Facility.class, Inpatient.class, Record.class, Role.class, Vaccinum.class)) {
+            uniqueIndex(entityClass, "name");
+            probe(entityClass.getSimpleName() + "Repository.find*ByName", entityClass, new Document("name", SAMPLE_TEXT));
+        }
+        for (Class<?> entityClass : Arrays.asList(Activity.class, Case.class, Category.class)) {
+            index(entityClass, "name");
+            probe(entityClass.getSimpleName() + "Repository.find*ByName", entityClass, new Document("name", SAMPLE_TEXT));
+        }
+        index(User.class, "username");
+        probe("UserRepository.findByUsername", User.class, new Document("username", SAMPLE_TEXT));
+
+        // 按 DBRef 查找
+        index(Activity.class, "role.$id");
+        probe("ActivityRepository.findByRoleId", Activity.class, new Document("role.$id", SAMPLE_ID));
+        index(Case.class, "disease.$id");
+        probe("CaseRepository.findByDiseaseId", Case.class, new Document("disease.$id", SAMPLE_ID));
+        index(Disease.class, "category.$id");
+        probe("DiseaseRepository.findByCategoryId", Disease.class, new Document("category.$id", SAMPLE_ID));
+        index(Procedure.class, "activity.$id");
+        probe("ProcedureRepository.findByActivityId", Procedure.class, new Document("activity.$id", SAMPLE_ID));
+        index(Question.class, "category.$id");
+        probe("QuestionRepository.findByCategoryId", Question.class, new Document("category.$id", SAMPLE_ID));
+        // (visible, category.$id, score) 由 QuestionSampler 建立
+        probe("QuestionRepository.findAllVisibleQuestions", Question.class, new Document("visible", true));
+        probe("QuestionRepository.findByCategoryIdAndVisible", Question.class,
+                new Document("category.$id", SAMPLE_ID).append("visible", true));
+        // user.$id 由 UserService 的级联删除计划建立
+        probe("QuestionRecordRepository.findByUserId", QuestionRecord.class, new Document("user.$id", SAMPLE_ID));
+        // 每个用户每场考试只有一条记录，ExamGradingService 依靠它防止并发重复提交
+        uniqueIndex(ExamRecord.class, "user.$id", "exam.$id");
+        probe("ExamRecordRepository.findByUserAndExam", ExamRecord.class,
+                new Document("user.$id", SAMPLE_ID).append("exam.$id", SAMPLE_ID));
+        probe("ExamRecordRepository.findByUserId", ExamRecord.class, new Document("user.$id", SAMPLE_ID));
+        index(ExamRecord.class, "exam.$id");
+        probe("ExamRecordRepository.findByExamId", ExamRecord.class, new Document("exam.$id", SAMPLE_ID));
+        // (status, startTime)、(status, endTime) 由 ExamStatusUpdater 建立
+        probe("ExamRepository.findByStatus", Exam.class, new Document("status", SAMPLE_TEXT));
+    }
+
+    private void index(Class<?> entityClass, String... fields) {
+        indexes.add(new IndexSpec(entityClass, fields, false));
+    }
+
+    private void uniqueIndex(Class<?> entityClass, String... fields) {
+        indexes.add(new IndexSpec(entityClass, fields, true));
+    }
+
+    private void probe(String method, Class<?> entityClass, Document filter) {
+        probes.add(new QueryProbe(method, entityClass, filter));
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        for (IndexSpec spec : indexes) {
+            Index index = new Index();
+            for (String field : spec.fields) {
+                index.on(field, Sort.Direction.ASC);
+            }
+            if (!spec.unique) {
+                mongoTemplate.indexOps(spec.entityClass).ensureIndex(index);
+                continue;
+            }
+            String collection = mongoTemplate.getCollectionName(spec.entityClass);
+            try {
+                mongoTemplate.indexOps(spec.entityClass).ensureIndex(index.unique());
+                uniqueIndexes.add(uniqueKey(collection, spec.fields));
+            } catch (DataAccessException e) {
+                logger.error("无法在 {} 上建立唯一索引 {}，请清理重复数据或删除同键的非唯一索引后重启: {}",
+                        collection, Arrays.toString(spec.fields), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 判断唯一索引是否已在启动时建立。
+     *
+     * @param entityClass 实体类
+     * @param fields      索引字段，顺序与声明时相同
+     * @return 唯一约束生效时返回 true
+     */
+    public boolean hasUniqueIndex(Class<?> entityClass, String... fields) {
+        return uniqueIndexes.contains(uniqueKey(mongoTemplate.getCollectionName(entityClass), fields));
+    }
+
+    private static String uniqueKey(String collection, String[] fields) {
+        return collection + ":" + String.join(",", fields);
+    }
+
+    /**
+     * 所有 Bean 的索引都建立后检查仓库查询的执行计划。
+     *
+     * @throws IllegalStateException mongo.index.verify=fail 且有查询会全表扫描时抛出，中止启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() {
+        if ("off".equalsIgnoreCase(verifyMode)) {
+            return;
+        }
+        List<String> collscans = new ArrayList<>();
+        for (Map<String, Object> result : verify()) {
+            if (Boolean.TRUE.equals(result.get("collscan"))) {
+                collscans.add(result.get("method") + " " + result.get("filter"));
+            }
+        }
+        if (collscans.isEmpty()) {
+            return;
+        }
+        String message = "以下仓库查询会全表扫描(COLLSCAN)，请补充索引: " + collscans;
+        if ("fail".equalsIgnoreCase(verifyMode)) {
+            throw new IllegalStateException(message);
+        }
+        logger.warn(message);
+    }
+
+    /**
+     * 对每个仓库查询执行 explain。
+     *
+     * @return 每个查询方法的获胜计划阶段及是否全表扫描
+     */
+    public List<Map<String, Object>> verify() {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (QueryProbe probe : probes) {
+            String collection = mongoTemplate.getCollectionName(probe.entityClass);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("method", probe.method);
+            result.put("collection", collection);
+            result.put("filter", probe.filter.keySet());
+            try {
+                Document explain = mongoTemplate.getDb().runCommand(new Document("explain",
+                        new Document("find", collection).append("filter", probe.filter))
+                        .append("verbosity", "queryPlanner"));
+                Document planner = explain.get("queryPlanner", Document.class);
+                Set<String> stages = new LinkedHashSet<>();
+                collectStages(planner == null ? null : planner.get("winningPlan"), stages);
+                result.put("stages", stages);
+                result.put("collscan", stages.contains("COLLSCAN"));
+            } catch (MongoException e) {
+                result.put("error", e.getMessage());
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * 获取各集合的索引使用统计（$indexStats）。
+     *
+     * @return 集合名 -> 每个索引的名称、键、访问次数和统计起始时间
+     */
+    public Map<String, Object> indexUsage() {
+        Set<String> collections = new TreeSet<>();
+        for (IndexSpec spec : indexes) {
+            collections.add(mongoTemplate.getCollectionName(spec.entityClass));
+        }
+        for (QueryProbe probe : probes) {
+            collections.add(mongoTemplate.getCollectionName(probe.entityClass));
+        }
+
+        Map<String, Object> usage = new LinkedHashMap<>();
+        for (String collection : collections) {
+            try {
+                List<Map<String, Object>> stats = new ArrayList<>();
+                for (Document stat : mongoTemplate.getCollection(collection)
+                        .aggregate(Collections.singletonList(new Document("$indexStats", new Document())))) {
+                    Document accesses = stat.get("accesses", Document.class);
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("name", stat.getString("name"));
+                    item.put("key", stat.get("key"));
+                    item.put("ops", accesses == null ? null : accesses.get("ops"));
+                    item.put("since", accesses == null ? null : accesses.get("since"));
+                    stats.add(item);
+                }
+                usage.put(collection, stats);
+            } catch (MongoException e) {
+                usage.put(collection, Collections.singletonMap("error", e.getMessage()));
+            }
+        }
+        return usage;
+    }
+
+    // 遍历计划树，收集所有 stage（分片集群下各分片的计划也在其中）
+    private static void collectStages(Object node, Set<String> stages) {
+        if (node instanceof Document) {
+            Document document = (Document) node;
+            Object stage = document.get("stage");
+            if (stage instanceof String) {
+                stages.add((String) stage);
+            }
+            for (Object value : document.values()) {
+                collectStages(value, stages);
+            }
+        } else if (node instanceof List) {
+            for (Object item : (List<?>) node) {
+                collectStages(item, stages);
+            }
+        }
+    }
+
+    private static class IndexSpec {
+        final Class<?> entityClass;
+        final String[] fields;
+        final boolean unique;
+
+        IndexSpec(Class<?> entityClass, String[] fields, boolean unique) {
+            this.entityClass = entityClass;
+            this.fields = fields;
+            this.unique = unique;
+        }
+    }
+
+    private static class QueryProbe {
+        final String method;
+        final Class<?> entityClass;
+        final Document filter;
+
+        QueryProbe(String method, Class<?> entityClass, Document filter) {
+            this.method = method;
+            this.entityClass = entityClass;
+            this.filter = filter;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.wechat.mongo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 按 _id 分页的一页结果。
+ */
+@Data
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private List<T> items;
+    // 下一页的 after 参数，没有更多数据时为 null
+    private String nextCursor;
+}
@@ -0,0 +1,105 @@
+package com.example.wechat.mongo;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.example.wechat.exception.DefaultException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 列表接口的分页与流式输出。
+ * 分页按 _id 做 keyset（_id > after），每页只走一次索引范围扫描，不随页码变慢；
+ * 流式输出沿 Mongo 游标逐批读取并写出 NDJSON，内存占用只与批大小有关。
+ */
+@Component
+public class KeysetPager {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 200;
+
+    private static final int STREAM_BATCH_SIZE = 200;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DbRefBatchReader dbRefBatchReader;
+
+    /**
+     * 读取一页数据。
+     *
+     * @param criteria    过滤条件，可为 null
+     * @param entityClass 实体类型
+     * @param after       上一页返回的 nextCursor，为 null 时从头开始
+     * @param limit       每页条数，为 null 时使用默认值
+     * @return 当前页及下一页游标
+     * @throws DefaultException 游标不合法时抛出
+     */
+    public <T> KeysetPage<T> page(Criteria criteria, Class<T> entityClass, String after, Integer limit) throws DefaultException {
+        int size = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+
+        Query query = criteria == null ? new Query() : new Query(criteria);
+        if (after != null && !after.isEmpty()) {
+            if (!ObjectId.isValid(after)) {
+                throw new DefaultException("分页游标不合法");
+            }
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(after)));
+        }
+        // 多取一条用于判断是否还有下一页
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(size + 1);
+
+        List<Document> documents = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(entityClass));
+        String nextCursor = null;
+        if (documents.size() > size) {
+            documents = documents.subList(0, size);
+            nextCursor = documents.get(size - 1).getObjectId("_id").toHexString();
+        }
+        return new KeysetPage<>(dbRefBatchReader.read(documents, entityClass), nextCursor);
+    }
+
+    /**
+     * 以 NDJSON（每行一个 JSON 对象）写出全部匹配的数据。
+     *
+     * @param criteria    过滤条件，可为 null
+     * @param entityClass 实体类型
+     * @param out         输出流
+     * @throws IOException 写出失败时抛出
+     */
+    public <T> void stream(Criteria criteria, Class<T> entityClass, OutputStream out) throws IOException {
+        Query query = criteria == null ? new Query() : new Query(criteria);
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(STREAM_BATCH_SIZE);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        List<Document> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+        try (CloseableIterator<Document> cursor = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(entityClass))) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == STREAM_BATCH_SIZE) {
+                    writeBatch(batch, entityClass, writer);
+                    batch.clear();
+                }
+            }
+        }
+        writeBatch(batch, entityClass, writer);
+    }
+
+    // 每批统一解析 DBRef 后写出并刷新，客户端可以边收边处理
+    private <T> void writeBatch(List<Document> batch, Class<T> entityClass, Writer writer) throws IOException {
+        for (T entity : dbRefBatchReader.read(batch, entityClass)) {
+            writer.write(JSONObject.toJSONString(entity));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
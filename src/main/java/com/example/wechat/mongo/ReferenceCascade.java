@@ -0,0 +1,161 @@
+package com.example.wechat.mongo;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.DBRef;
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 按 DBRef 引用级联删除。
+ * 每一步只发一条 deleteMany / updateMany（$pull、$unset），按 字段.$id 过滤并走索引，
+ * 耗时只与实际引用了被删文档的记录数有关，与集合总大小无关。
+ * 数据库支持事务（副本集或分片集群）时所有步骤在一个事务中执行；
+ * 否则按顺序逐步执行，被删文档本身放在最后，中途失败时可以重新执行。
+ */
+@Component
+public class ReferenceCascade {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // 是否支持事务，首次执行时检测
+    private volatile Boolean transactionsSupported;
+
+    /**
+     * 新建一个级联删除计划。
+     *
+     * @param targetClass 被删除文档的实体类
+     */
+    public static Plan plan(Class<?> targetClass) {
+        return new Plan(targetClass);
+    }
+
+    /**
+     * 为计划中每一步的引用字段建立 字段.$id 索引。
+     */
+    public void ensureIndexes(Plan plan) {
+        for (Step step : plan.steps) {
+            mongoTemplate.indexOps(step.entityClass).ensureIndex(new Index().on(step.field + ".$id", Sort.Direction.ASC));
+        }
+    }
+
+    /**
+     * 删除文档及所有对它的引用。
+     *
+     * @param plan 级联删除计划
+     * @param id   被删除文档的 id
+     * @return 每一步影响的文档数，键为 集合名.字段 及被删文档所在集合名
+     */
+    public Map<String, Long> execute(Plan plan, ObjectId id) {
+        if (!supportsTransactions()) {
+            return run(mongoTemplate, plan, id);
+        }
+        try (ClientSession session = mongoTemplate.getMongoDatabaseFactory()
+                .getSession(ClientSessionOptions.builder().causallyConsistent(true).build())) {
+            return session.withTransaction(() -> run(mongoTemplate.withSession(session), plan, id));
+        }
+    }
+
+    private Map<String, Long> run(MongoTemplate template, Plan plan, ObjectId id) {
+        DBRef ref = new DBRef(template.getCollectionName(plan.targetClass), id);
+        Map<String, Long> affected = new LinkedHashMap<>();
+        for (Step step : plan.steps) {
+            Query query = new Query(Criteria.where(step.field + ".$id").is(id));
+            long count;
+            switch (step.action) {
+                case DELETE:
+                    count = template.remove(query, step.entityClass).getDeletedCount();
+                    break;
+                case PULL:
+                    // DBRef 以 {$ref, $id} 子文档保存，按整个引用精确匹配数组元素
+                    count = template.updateMulti(query, new Update().pull(step.field, ref), step.entityClass).getModifiedCount();
+                    break;
+                default:
+                    count = template.updateMulti(query, new Update().unset(step.field), step.entityClass).getModifiedCount();
+            }
+            affected.put(template.getCollectionName(step.entityClass) + "." + step.field, count);
+        }
+        affected.put(ref.getCollectionName(), template.remove(new Query(Criteria.where("_id").is(id)), plan.targetClass).getDeletedCount());
+        return affected;
+    }
+
+    private boolean supportsTransactions() {
+        Boolean supported = transactionsSupported;
+        if (supported == null) {
+            try {
+                Document isMaster = mongoTemplate.getDb().runCommand(new Document("isMaster", 1));
+                // 副本集成员返回 setName，mongos 返回 msg: isdbgrid；单机不支持事务
+                supported = isMaster.containsKey("setName") || "isdbgrid".equals(isMaster.getString("msg"));
+            } catch (MongoException e) {
+                supported = false;
+            }
+            transactionsSupported = supported;
+        }
+        return supported;
+    }
+
+    private enum Action {
+        DELETE, PULL, UNSET
+    }
+
+    private static class Step {
+        final Class<?> entityClass;
+        final String field;
+        final Action action;
+
+        Step(Class<?> entityClass, String field, Action action) {
+            this.entityClass = entityClass;
+            this.field = field;
+            this.action = action;
+        }
+    }
+
+    /**
+     * 级联删除计划，按添加顺序执行。
+     */
+    public static class Plan {
+
+        private final Class<?> targetClass;
+        private final List<Step> steps = new ArrayList<>();
+
+        private Plan(Class<?> targetClass) {
+            this.targetClass = targetClass;
+        }
+
+        /**
+         * 删除 field 引用了目标文档的记录。
+         */
+        public Plan delete(Class<?> entityClass, String field) {
+            steps.add(new Step(entityClass, field, Action.DELETE));
+            return this;
+        }
+
+        /**
+         * 从引用数组 field 中移除目标文档。
+         */
+        public Plan pull(Class<?> entityClass, String field) {
+            steps.add(new Step(entityClass, field, Action.PULL));
+            return this;
+        }
+
+        /**
+         * 清除引用了目标文档的单值字段 field。
+         */
+        public Plan unset(Class<?> entityClass, String field) {
+            steps.add(new Step(entityClass, field, Action.UNSET));
+            return this;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.wechat.monitor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 轻量级耗时统计器。
+ * 记录调用次数、总耗时、最大耗时，并按固定毫秒分桶形成直方图，可估算 p50/p95/p99。
+ * 所有计数均为无锁累加，可在请求线程中直接调用。
+ */
+public class LatencyRecorder {
+
+    private static final long[] BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时。
+     *
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int i = 0;
+        while (i < BOUNDS_MS.length && millis > BOUNDS_MS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+    }
+
+    /**
+     * 记录从 startNanos（System.nanoTime()）到现在的耗时。
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 生成当前统计快照，用于接口返回。
+     */
+    public Map<String, Object> snapshot() {
+        long n = count.sum();
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+
+        Map<String, Object> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            histogram.put("<=" + BOUNDS_MS[i] + "ms", counts[i]);
+        }
+        histogram.put(">" + BOUNDS_MS[BOUNDS_MS.length - 1] + "ms", counts[BOUNDS_MS.length]);
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", name);
+        map.put("count", n);
+        map.put("avgMs", n == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / n);
+        map.put("maxMs", maxNanos.get() / 1_000_000.0);
+        map.put("p50Ms", percentile(counts, n, 0.50));
+        map.put("p95Ms", percentile(counts, n, 0.95));
+        map.put("p99Ms", percentile(counts, n, 0.99));
+        map.put("histogram", histogram);
+        return map;
+    }
+
+    // 以所在分桶的上界估算分位数，落在最后一个桶时使用最大值
+    private double percentile(long[] counts, long total, double q) {
+        if (total == 0) {
+            return 0.0;
+        }
+        long target = (long) Math.ceil(total * q);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return BOUNDS_MS[i];
+            }
+        }
+        return maxNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.wechat.ratelimit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import utils.Result;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 接口限流拦截器。
+ * 带 @RateLimited 的方法使用指定的限流器；未标注但请求为 multipart 的接口统一按文件上传限流。
+ * 已登录用户按 userId 计数，未登录时按客户端地址计数。
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiters rateLimiters;
+
+    public RateLimitInterceptor(RateLimiters rateLimiters) {
+        this.rateLimiters = rateLimiters;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // 异步请求完成后的再次分发不重复计数
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        String limiterName = limiterName(request, (HandlerMethod) handler);
+        if (limiterName == null || rateLimiters.get(limiterName).tryAcquire(key(request))) {
+            return true;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(Result.errorGetString("请求过于频繁，请稍后再试"));
+        return false;
+    }
+
+    private static String limiterName(HttpServletRequest request, HandlerMethod handler) {
+        RateLimited rateLimited = handler.getMethodAnnotation(RateLimited.class);
+        if (rateLimited != null) {
+            return rateLimited.value();
+        }
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.toLowerCase().startsWith("multipart/")) {
+            return RateLimiters.UPLOAD;
+        }
+        return null;
+    }
+
+    private static String key(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        Object userId = session == null ? null : session.getAttribute("userId");
+        return userId != null ? "user:" + userId : "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.wechat.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在接口方法上，由 RateLimitInterceptor 按当前用户（未登录时按客户端地址）限流。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+    /**
+     * 使用的限流器名称，见 RateLimiters 中的常量。
+     */
+    String value();
+}
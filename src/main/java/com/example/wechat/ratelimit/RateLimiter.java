@@ -0,0 +1,134 @@
+package com.example.wechat.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 按 key（通常是用户 id）限流的令牌桶。
+ * 采用 GCRA 写法：每个 key 只保存一个"理论到达时间" tat，桶容量为 capacity，每 interval 补充一个令牌。
+ * 请求时 tat 与当前时间之差不超过 (capacity - 1) * interval 即放行，并把 tat 推后一个 interval；
+ * 更新只用一次 CAS，不加锁。
+ * tat 不晚于当前时间说明桶已满，与没有记录等价，可以随时删除，因此状态表按空闲时间自动清理，
+ * 且条目数不超过 maxKeys：表满且清理后仍无空位时，新 key 直接拒绝。
+ */
+public class RateLimiter {
+
+    private final String name;
+    private final int capacity;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder overflow = new LongAdder();
+
+    /**
+     * @param name     名称，用于统计输出
+     * @param capacity 桶容量，即允许的突发请求数
+     * @param interval 补充一个令牌的间隔
+     * @param unit     interval 的单位
+     * @param maxKeys  最多跟踪的 key 数
+     */
+    public RateLimiter(String name, int capacity, long interval, TimeUnit unit, int maxKeys) {
+        this(name, capacity, interval, unit, maxKeys, System::nanoTime);
+    }
+
+    // 测试时传入可控的时钟
+    RateLimiter(String name, int capacity, long interval, TimeUnit unit, int maxKeys, LongSupplier nanoClock) {
+        this.name = name;
+        this.capacity = capacity;
+        this.intervalNanos = unit.toNanos(interval);
+        this.burstNanos = (capacity - 1) * intervalNanos;
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 尝试为 key 取一个令牌。
+     *
+     * @param key 限流对象
+     * @return 取到令牌返回 true，请求过于频繁返回 false
+     */
+    public boolean tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong tat = buckets.get(key);
+        if (tat == null) {
+            if (buckets.size() >= maxKeys) {
+                sweep();
+                if (buckets.size() >= maxKeys) {
+                    overflow.increment();
+                    rejected.increment();
+                    return false;
+                }
+            }
+            tat = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long current = tat.get();
+            long start = Math.max(current, now);
+            if (start - now > burstNanos) {
+                rejected.increment();
+                return false;
+            }
+            if (tat.compareAndSet(current, start + intervalNanos)) {
+                allowed.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还一个令牌，用于请求被接受后又因上游失败等原因没有真正执行的情况。
+     *
+     * @param key 限流对象
+     */
+    public void refund(String key) {
+        AtomicLong tat = buckets.get(key);
+        if (tat != null) {
+            tat.addAndGet(-intervalNanos);
+        }
+    }
+
+    /**
+     * 删除桶已经补满的 key。同一时间只有一个线程执行清理。
+     */
+    public void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = nanoClock.getAsLong();
+            buckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * 生成当前统计快照，用于接口返回。
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", name);
+        map.put("capacity", capacity);
+        map.put("intervalMs", TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+        map.put("trackedKeys", buckets.size());
+        map.put("maxKeys", maxKeys);
+        map.put("allowed", allowed.sum());
+        map.put("rejected", rejected.sum());
+        map.put("overflow", overflow.sum());
+        return map;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.wechat.ratelimit;
+
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 系统中所有限流器的注册表。
+ * 容量和补充间隔可通过 ratelimit.&lt;名称&gt;.capacity / ratelimit.&lt;名称&gt;.interval-ms 覆盖，
+ * 每个限流器最多跟踪 ratelimit.max-keys 个 key，并每分钟清理一次空闲 key。
+ */
+@Component
+public class RateLimiters {
+
+    // AI 对话：每个用户 20 秒一次
+    public static final String CHAT = "chat";
+
+    // 文件上传：突发 5 次，之后每 6 秒一次
+    public static final String UPLOAD = "upload";
+
+    // 提交答卷：突发 3 次，之后每 10 秒一次
+    public static final String EXAM_SUBMIT = "examSubmit";
+
+    private final Map<String, RateLimiter> limiters = new LinkedHashMap<>();
+
+    public RateLimiters(Environment environment) {
+        int maxKeys = environment.getProperty("ratelimit.max-keys", Integer.class, 10000);
+        register(environment, CHAT, 1, 20000, maxKeys);
+        register(environment, UPLOAD, 5, 6000, maxKeys);
+        register(environment, EXAM_SUBMIT, 3, 10000, maxKeys);
+    }
+
+    private void register(Environment environment, String name, int capacity, long intervalMs, int maxKeys) {
+        String prefix = "ratelimit." + name + ".";
+        limiters.put(name, new RateLimiter(name,
+                environment.getProperty(prefix + "capacity", Integer.class, capacity),
+                environment.getProperty(prefix + "interval-ms", Long.class, intervalMs),
+                TimeUnit.MILLISECONDS, maxKeys));
+    }
+
+    /**
+     * 按名称获取限流器。
+     *
+     * @param name 限流器名称
+     * @return 限流器
+     * @throws IllegalArgumentException 名称未注册时抛出
+     */
+    public RateLimiter get(String name) {
+        RateLimiter limiter = limiters.get(name);
+        if (limiter == null) {
+            throw new IllegalArgumentException("未注册的限流器: " + name);
+        }
+        return limiter;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void sweep() {
+        limiters.values().forEach(RateLimiter::sweep);
+    }
+
+    /**
+     * 获取所有限流器的放行/拒绝统计。
+     */
+    public List<Map<String, Object>> getStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (RateLimiter limiter : limiters.values()) {
+            stats.add(limiter.snapshot());
+        }
+        return stats;
+    }
+}
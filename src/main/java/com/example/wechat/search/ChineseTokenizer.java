@@ -0,0 +1,91 @@
+package com.example.wechat.search;
+
+import com.huaban.analysis.jieba.JiebaSegmenter;
+import com.huaban.analysis.jieba.SegToken;
+import com.huaban.analysis.jieba.WordDictionary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 基于 jieba 的中文分词器。
+ * 启动时加载 conf 目录下的 *.dict 用户词典（sougou.dict、user.dict）以及 classpath 下的 stop_words.txt，
+ * 分词结果统一转为小写并去掉停用词和纯标点。
+ */
+@Component
+public class ChineseTokenizer {
+
+    @Value("${search.dict-dir:conf}")
+    private String dictDir;
+
+    private final JiebaSegmenter segmenter = new JiebaSegmenter();
+
+    private Set<String> stopWords = Collections.emptySet();
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path dir = Paths.get(dictDir);
+        if (Files.isDirectory(dir)) {
+            WordDictionary.getInstance().init(dir);
+        }
+        stopWords = loadStopWords();
+    }
+
+    /**
+     * 对文本分词（搜索引擎模式，长词会再切出其中的短词）。
+     *
+     * @param text 待分词文本
+     * @return 过滤后的词列表，保留重复词以便统计词频
+     */
+    public List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (SegToken token : segmenter.process(text, JiebaSegmenter.SegMode.SEARCH)) {
+            String word = token.word.trim().toLowerCase(Locale.ROOT);
+            if (word.isEmpty() || stopWords.contains(word) || !hasLetterOrDigit(word)) {
+                continue;
+            }
+            tokens.add(word);
+        }
+        return tokens;
+    }
+
+    private Set<String> loadStopWords() throws IOException {
+        ClassPathResource resource = new ClassPathResource("stop_words.txt");
+        if (!resource.exists()) {
+            return Collections.emptySet();
+        }
+        Set<String> words = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String word = line.trim();
+                if (!word.isEmpty()) {
+                    words.add(word.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return words;
+    }
+
+    private static boolean hasLetterOrDigit(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isLetterOrDigit(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.wechat.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 一条搜索结果。
+ */
+@Data
+@AllArgsConstructor
+public class SearchHit {
+    // 结果所属集合，如 case、disease、question
+    private String type;
+    private String id;
+    private String title;
+    private double score;
+}
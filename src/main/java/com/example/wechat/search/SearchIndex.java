@@ -0,0 +1,148 @@
+package com.example.wechat.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存倒排索引，使用 BM25 计算相关度。
+ * 写操作串行执行，查询不加锁，直接读取并发 Map。
+ */
+public class SearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // 词 -> (文档 key -> 词频)
+    private final Map<String, Map<String, Integer>> postings = new ConcurrentHashMap<>();
+
+    // 文档 key（type:id）-> 文档信息
+    private final Map<String, IndexedDoc> docs = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalLength = new AtomicLong();
+
+    /**
+     * 添加或替换一篇文档。
+     *
+     * @param type   文档类型
+     * @param id     文档 id
+     * @param title  展示用标题
+     * @param tokens 分词结果
+     */
+    public synchronized void put(String type, String id, String title, List<String> tokens) {
+        String key = type + ":" + id;
+        removeByKey(key);
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> termFreq = new HashMap<>();
+        for (String token : tokens) {
+            termFreq.merge(token, 1, Integer::sum);
+        }
+        docs.put(key, new IndexedDoc(type, id, title, tokens.size(), termFreq.keySet()));
+        for (Map.Entry<String, Integer> entry : termFreq.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new ConcurrentHashMap<>()).put(key, entry.getValue());
+        }
+        totalLength.addAndGet(tokens.size());
+    }
+
+    public synchronized void remove(String type, String id) {
+        removeByKey(type + ":" + id);
+    }
+
+    private void removeByKey(String key) {
+        IndexedDoc old = docs.remove(key);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.terms) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(key);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength.addAndGet(-old.length);
+    }
+
+    /**
+     * 按 BM25 得分返回前 limit 条结果。
+     *
+     * @param queryTokens 查询分词结果
+     * @param type        只返回该类型的文档，为 null 时不限类型
+     * @param limit       最多返回条数
+     * @return 按得分从高到低排列的结果
+     */
+    public List<SearchHit> search(List<String> queryTokens, String type, int limit) {
+        int docCount = docs.size();
+        if (docCount == 0 || queryTokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        double avgLength = Math.max(1.0, (double) totalLength.get() / docCount);
+
+        Map<String, Double> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(queryTokens)) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            int df = posting.size();
+            double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            for (Map.Entry<String, Integer> entry : posting.entrySet()) {
+                IndexedDoc doc = docs.get(entry.getKey());
+                if (doc == null || (type != null && !type.equals(doc.type))) {
+                    continue;
+                }
+                double tf = entry.getValue();
+                double norm = tf + K1 * (1 - B + B * doc.length / avgLength);
+                scores.merge(entry.getKey(), idf * tf * (K1 + 1) / norm, Double::sum);
+            }
+        }
+
+        // 小顶堆保留得分最高的 limit 条
+        PriorityQueue<Map.Entry<String, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        LinkedList<SearchHit> hits = new LinkedList<>();
+        while (!top.isEmpty()) {
+            Map.Entry<String, Double> entry = top.poll();
+            IndexedDoc doc = docs.get(entry.getKey());
+            if (doc != null) {
+                hits.addFirst(new SearchHit(doc.type, doc.id, doc.title, entry.getValue()));
+            }
+        }
+        return hits;
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    private static class IndexedDoc {
+        private final String type;
+        private final String id;
+        private final String title;
+        private final int length;
+        private final Set<String> terms;
+
+        IndexedDoc(String type, String id, String title, int length, Set<String> terms) {
+            this.type = type;
+            this.id = id;
+            this.title = title;
+            this.length = length;
+            this.terms = terms;
+        }
+    }
+}
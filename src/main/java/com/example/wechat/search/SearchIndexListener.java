@@ -0,0 +1,42 @@
+package com.example.wechat.search;
+
+import com.example.wechat.service.SearchService;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * 监听实体保存/删除事件，增量维护搜索索引。
+ */
+@Component
+public class SearchIndexListener extends AbstractMongoEventListener<Object> {
+
+    @Autowired
+    private SearchService searchService;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        searchService.index(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        if (event.getType() == null) {
+            return;
+        }
+        // 删除事件只带删除条件，按 _id 或 _id.$in 取出被删除的文档 id
+        Object id = event.getSource().get("_id");
+        if (id instanceof Document && ((Document) id).get("$in") instanceof Collection) {
+            for (Object each : (Collection<?>) ((Document) id).get("$in")) {
+                searchService.remove(event.getType(), each);
+            }
+        } else if (id != null) {
+            searchService.remove(event.getType(), id);
+        }
+    }
+}
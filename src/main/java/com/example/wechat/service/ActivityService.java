@@ -10,6 +10,8 @@ import com.example.wechat.model.Procedure;
 import com.example.wechat.repository.ActivityRepository;
 import com.example.wechat.repository.AssayRepository;
 import com.example.wechat.repository.ProcedureRepository;
+import com.example.wechat.mongo.KeysetPage;
+import com.example.wechat.mongo.KeysetPager;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -24,6 +26,9 @@ public class ActivityService {
     @Autowired
     private ActivityRepository activityRepository;
 
+    @Autowired
+    private KeysetPager keysetPager;
+
     @Autowired
     private ProcedureRepository procedureRepository;
 
@@ -114,6 +119,17 @@ public class ActivityService {
         return activityRepository.findAll();
     }
 
+    /**
+     * 按 _id 分页查找所有角色活动。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Activity> findActivitiesPage(String after, Integer limit) {
+        return keysetPager.page(null, Activity.class, after, limit);
+    }
+
     public Optional<Activity>  findActivityById(String id) throws IdNotFoundException{
         Optional<Activity> optionalActivity = activityRepository.findById(new ObjectId(id));
         if(optionalActivity.isPresent()) return optionalActivity;
@@ -1,5 +1,7 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
@@ -7,11 +9,13 @@ import com.example.wechat.format.NameChecker;
 import com.example.wechat.model.Assay;
 import com.example.wechat.model.Case;
 import com.example.wechat.repository.AssayRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -22,7 +26,18 @@ public class AssayService {
     private AssayRepository assayRepository;
 
     @Autowired
-    private FileService fileService;
+    private NameUniqueness nameUniqueness;
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Assay> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Assay.class);
+    }
+
     /**
      * 添加一个新的科室信息。
      *
@@ -32,12 +47,11 @@ public class AssayService {
      * @throws DefaultException            如果科室名不合法，则抛出 DefaultException 异常
      */
     public Assay addAssay(Assay assay) throws NameAlreadyExistedException, DefaultException {
-        Optional<Assay> existedAssay = assayRepository.findAssayByName(assay.getName());
-        if (existedAssay.isPresent()) {
+        if (nameUniqueness.exists(Assay.class, assay.getName())) {
             throw new NameAlreadyExistedException("名字已存在");
         }
         NameChecker.nameIsLegal(assay.getName());
-        Assay savedAssay = assayRepository.save(assay);
+        Assay savedAssay = nameUniqueness.save(() -> assayRepository.save(assay), () -> new NameAlreadyExistedException("名字已存在"));
         return savedAssay;
     }
     /**
@@ -95,9 +109,8 @@ public class AssayService {
             Assay assay_editing = assayOriginal.get();
             //如果修改了名字，那么对名字的唯一性进行校验
             if (!assay_editing.getName().equals(assay.getName())) {
-                Optional<Assay> existedAssay = assayRepository.findAssayByName(assay.getName());
                 //存在一个和当前名字相同的病，则返回失败
-                if (existedAssay.isPresent()) {
+                if (nameUniqueness.exists(Assay.class, assay.getName())) {
                     throw new NameAlreadyExistedException("科室名字已存在,更改失败");
                 }
                 //检查名字的合法性，如果不正确则抛出错误
@@ -105,7 +118,7 @@ public class AssayService {
             }
             assay_editing.setName(assay.getName());
             assay_editing.setInfo(assay.getInfo());
-            return Optional.of(assayRepository.save(assay_editing));
+            return Optional.of(nameUniqueness.save(() -> assayRepository.save(assay_editing), () -> new NameAlreadyExistedException("科室名字已存在,更改失败")));
         }
         throw new IdNotFoundException("id不存在,无法更新科室");
     }
@@ -114,49 +127,32 @@ public class AssayService {
      * @return 所有科室的列表
      */
     public List<Assay> findAllAssays() {
-        return assayRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有化验。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Assay> findAssaysPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
     public Optional<Assay> findAssayById(String id)throws IdNotFoundException{
-        Optional<Assay> existing = assayRepository.findById(new ObjectId(id));
+        Optional<Assay> existing = catalog.findById(new ObjectId(id));
         if(!existing.isPresent()) throw new IdNotFoundException("对应化验单不存在");
         else return existing;
     }
 
 
     public String uploadFile(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        Optional<Assay> existing = assayRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应assay不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        List<String> files = updating.getFiles();
-        files.add(fileId);
-        updating.setFiles(files);
-
-        assayRepository.save(updating);
-
-        return fileId;
-
+        return catalog.attachFile(file, id, "对应assay不存在，无法更新图片");
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        Optional<Assay> existing = assayRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应assay不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        updating.setAvatar(fileId);
-        assayRepository.save(updating);
-        return fileId;
-
+        return catalog.attachAvatar(file, id, "对应assay不存在，无法更新图片");
     }
 }
@@ -6,6 +6,8 @@ import com.example.wechat.exception.NameAlreadyExistedException;
 import com.example.wechat.model.Case;
 import com.example.wechat.model.File;
 import com.example.wechat.repository.CaseRepository;
+import com.example.wechat.mongo.KeysetPage;
+import com.example.wechat.mongo.KeysetPager;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -22,6 +24,9 @@ public class CaseService {
     @Autowired
     private CaseRepository caseRepository;
 
+    @Autowired
+    private KeysetPager keysetPager;
+
     @Autowired
     private FileService fileService;
 
@@ -103,6 +108,17 @@ public class CaseService {
         return caseRepository.findAll();
     }
 
+    /**
+     * 按 _id 分页查找所有病例。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Case> findCasesPage(String after, Integer limit) {
+        return keysetPager.page(null, Case.class, after, limit);
+    }
+
     // 根据病例名称查找病例的业务逻辑
     public Optional<Case> findCaseByName(String name) {
         return caseRepository.findByName(name);
@@ -1,14 +1,18 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.model.Category;
 import com.example.wechat.repository.CategoryRepository;
 import com.example.wechat.repository.DiseaseRepository;
 import com.example.wechat.repository.QuestionRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.Optional;
 
 @Service
@@ -17,6 +21,16 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Category> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Category.class);
+    }
+
     // 添加类别的业务逻辑
     public Optional<Category> addCategory (Category category) {
         // 判断病种的名字是否为空
@@ -132,12 +146,23 @@ public class CategoryService {
 
     // 查找所有类别的业务逻辑
     public Iterable<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有类别。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Category> findCategoriesPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
     // 根据类别名称查找类别的业务逻辑
     public Optional<Category> getCategoryById(ObjectId id) {
-        return categoryRepository.findById(id);
+        return catalog.findById(id);
     }
 
     // 根据类别名称模糊查找类别的业务逻辑
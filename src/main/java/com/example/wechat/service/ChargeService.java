@@ -1,5 +1,7 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
@@ -7,11 +9,13 @@ import com.example.wechat.format.NameChecker;
 import com.example.wechat.model.Assay;
 import com.example.wechat.model.Charge;
 import com.example.wechat.repository.ChargeRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -22,7 +26,18 @@ public class ChargeService {
     private ChargeRepository chargeRepository;
 
     @Autowired
-    private FileService fileService;
+    private NameUniqueness nameUniqueness;
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Charge> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Charge.class);
+    }
+
     /**
      * 添加一个新的科室信息。
      * @param charge 要添加的科室对象
@@ -31,12 +46,11 @@ public class ChargeService {
      * @throws DefaultException            如果科室名不合法，则抛出 DefaultException 异常
      */
     public Charge addCharge(Charge charge) throws NameAlreadyExistedException, DefaultException {
-        Optional<Charge> existedCharge = chargeRepository.findChargeByName(charge.getName());
-        if (existedCharge.isPresent()) {
+        if (nameUniqueness.exists(Charge.class, charge.getName())) {
             throw new NameAlreadyExistedException("名字已存在");
         }
         NameChecker.nameIsLegal(charge.getName());
-        Charge savedCharge = chargeRepository.save(charge);
+        Charge savedCharge = nameUniqueness.save(() -> chargeRepository.save(charge), () -> new NameAlreadyExistedException("名字已存在"));
         return savedCharge;
     }
     /**
@@ -90,9 +104,8 @@ public class ChargeService {
             Charge charge_editing = chargeOriginal.get();
             //如果修改了名字，那么对名字的唯一性进行校验
             if (!charge_editing.getName().equals(charge.getName())) {
-                Optional<Charge> existedCharge = chargeRepository.findChargeByName(charge.getName());
                 //存在一个和当前名字相同的病，则返回失败
-                if (existedCharge.isPresent()) {
+                if (nameUniqueness.exists(Charge.class, charge.getName())) {
                     throw new NameAlreadyExistedException("科室名字已存在,更改失败");
                 }
                 //检查名字的合法性，如果不正确则抛出错误
@@ -100,7 +113,7 @@ public class ChargeService {
             }
             charge_editing.setName(charge.getName());
             charge_editing.setInfo(charge.getInfo());
-            return Optional.of(chargeRepository.save(charge_editing));
+            return Optional.of(nameUniqueness.save(() -> chargeRepository.save(charge_editing), () -> new NameAlreadyExistedException("科室名字已存在,更改失败")));
         }
         throw new IdNotFoundException("id不存在,无法更新科室");
     }
@@ -109,48 +122,31 @@ public class ChargeService {
      * @return 所有科室的列表
      */
     public List<Charge> findAllCharges() {
-        return chargeRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有收费项目。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Charge> findChargesPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
     public Optional<Charge> findChargeById(String id){
-        Optional<Charge> existing = chargeRepository.findById(new ObjectId(id));
+        Optional<Charge> existing = catalog.findById(new ObjectId(id));
         if(!existing.isPresent()) throw new IdNotFoundException("对应收据不存在");
         else return existing;
     }
 
     public String uploadFile(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        Optional<Charge> existing = chargeRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应收据不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        List<String> files = updating.getFiles();
-        files.add(fileId);
-        updating.setFiles(files);
-
-        chargeRepository.save(updating);
-
-        return fileId;
-
+        return catalog.attachFile(file, id, "对应收据不存在，无法更新图片");
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        Optional<Charge> existing = chargeRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应收据不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        updating.setAvatar(fileId);
-        chargeRepository.save(updating);
-        return fileId;
-
+        return catalog.attachAvatar(file, id, "对应收据不存在，无法更新图片");
     }
 }
@@ -0,0 +1,214 @@
+package com.example.wechat.service;
+
+import com.example.wechat.monitor.LatencyRecorder;
+import com.example.wechat.search.ChineseTokenizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AI 对话回复缓存，在所有用户之间共享。
+ * 只缓存独立提问（不带上游对话上下文、不传 chatId）的回复，这样的回复与提问的用户无关；
+ * 多轮对话中的提问依赖该用户的上下文，不经过缓存。
+ * 提问先用 jieba 分词并去掉停用词，得到词集合；词集合完全相同直接命中，
+ * 否则通过词 -> 条目的倒排表找出有共同词的条目，Jaccard 相似度不低于 chat.cache.similarity 时视为同一问题。
+ * 条目按写入时间过期（chat.cache.ttl-minutes），超出 chat.cache.max-entries 时淘汰最久未使用的条目。
+ */
+@Component
+public class ChatAnswerCache {
+
+    @Autowired
+    private ChineseTokenizer tokenizer;
+
+    @Value("${chat.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${chat.cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${chat.cache.similarity:0.8}")
+    private double similarity;
+
+    // 以下结构均在 this 上同步；entries 按访问顺序排列，队首为最久未使用
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Entry>> postings = new HashMap<>();
+
+    private final LongAdder exactHits = new LongAdder();
+    private final LongAdder similarHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LatencyRecorder lookupLatency = new LatencyRecorder("chatCacheLookup");
+
+    /**
+     * 查找与提问相同或相近的问题的回复。
+     *
+     * @param prompt 用户提问
+     * @return 缓存的回复，未命中时返回 null
+     */
+    public String get(String prompt) {
+        long start = System.nanoTime();
+        try {
+            Set<String> tokens = normalize(prompt);
+            if (tokens.isEmpty()) {
+                misses.increment();
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                Entry entry = entries.get(key(tokens));
+                if (entry != null && !isExpired(entry, now)) {
+                    exactHits.increment();
+                    return entry.answer;
+                }
+                Entry similar = findSimilar(tokens, now);
+                if (similar != null) {
+                    // 刷新 LRU 顺序
+                    entries.get(similar.key);
+                    similarHits.increment();
+                    return similar.answer;
+                }
+            }
+            misses.increment();
+            return null;
+        } finally {
+            lookupLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * 缓存一次上游回复。
+     *
+     * @param prompt 用户提问
+     * @param answer 上游返回的完整回复
+     */
+    public void put(String prompt, String answer) {
+        if (answer == null || answer.isEmpty()) {
+            return;
+        }
+        Set<String> tokens = normalize(prompt);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        Entry entry = new Entry(key(tokens), tokens, answer, System.currentTimeMillis());
+        synchronized (this) {
+            Entry old = entries.put(entry.key, entry);
+            if (old != null) {
+                unindex(old);
+            }
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, k -> new HashSet<>()).add(entry);
+            }
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (entries.size() > maxEntries && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                unindex(eldest);
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 定期清理过期条目，释放内存。
+     */
+    @Scheduled(fixedDelay = 60000)
+    public synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (isExpired(entry, now)) {
+                iterator.remove();
+                unindex(entry);
+                expirations.increment();
+            }
+        }
+    }
+
+    /**
+     * 获取缓存命中率等统计。
+     */
+    public Map<String, Object> getStats() {
+        long exact = exactHits.sum();
+        long similar = similarHits.sum();
+        long miss = misses.sum();
+        long total = exact + similar + miss;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("size", entries.size());
+        }
+        stats.put("exactHits", exact);
+        stats.put("similarHits", similar);
+        stats.put("misses", miss);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (exact + similar) / total);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("lookup", lookupLatency.snapshot());
+        return stats;
+    }
+
+    // 在与提问有共同词的条目中找 Jaccard 相似度最高且达到阈值的一个
+    private Entry findSimilar(Set<String> tokens, long now) {
+        Map<Entry, Integer> overlaps = new HashMap<>();
+        for (String token : tokens) {
+            for (Entry entry : postings.getOrDefault(token, Collections.emptySet())) {
+                overlaps.merge(entry, 1, Integer::sum);
+            }
+        }
+
+        Entry best = null;
+        double bestScore = similarity;
+        for (Map.Entry<Entry, Integer> candidate : overlaps.entrySet()) {
+            Entry entry = candidate.getKey();
+            int overlap = candidate.getValue();
+            double score = (double) overlap / (tokens.size() + entry.tokens.size() - overlap);
+            if (score >= bestScore && !isExpired(entry, now)) {
+                best = entry;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private void unindex(Entry entry) {
+        for (String token : entry.tokens) {
+            Set<Entry> set = postings.get(token);
+            if (set != null && set.remove(entry) && set.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAt > TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    private Set<String> normalize(String prompt) {
+        return new TreeSet<>(tokenizer.tokenize(prompt));
+    }
+
+    private static String key(Set<String> tokens) {
+        return String.join(" ", tokens);
+    }
+
+    private static class Entry {
+        final String key;
+        final Set<String> tokens;
+        final String answer;
+        final long createdAt;
+
+        Entry(String key, Set<String> tokens, String answer, long createdAt) {
+            this.key = key;
+            this.tokens = tokens;
+            this.answer = answer;
+            this.createdAt = createdAt;
+        }
+    }
+}
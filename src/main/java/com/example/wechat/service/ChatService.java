@@ -0,0 +1,329 @@
+package com.example.wechat.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.monitor.LatencyRecorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * AI 对话客户端。
+ * 使用一个共享的 java.net.http.HttpClient（复用连接），以 "stream": true 请求上游，
+ * 按行异步解析 SSE 分片并逐个回调给调用方，整个过程不占用请求线程。
+ * 同时在上游的请求数不超过 chat.max-concurrent；每个用户同一时间只有一个请求在上游，
+ * 其余按用户排队（最多 chat.max-queued-per-user 个），各用户之间轮流出队。
+ */
+@Service
+public class ChatService {
+
+    private static final String CHAT_URL = "/v1/chat/completions";
+
+    private final String chatUrl;
+    private final String apiKey;
+    private final Duration timeout;
+    private final int maxConcurrent;
+    private final int maxQueuedPerUser;
+    private final HttpClient httpClient;
+
+    private final LatencyRecorder chatLatency = new LatencyRecorder("chat");
+
+    // 以下调度状态均在 this 上同步
+    private final Map<String, Deque<ChatTask>> pending = new HashMap<>();
+    private final Deque<String> readyUsers = new ArrayDeque<>();
+    private final Set<String> activeUsers = new HashSet<>();
+    private int running = 0;
+
+    public ChatService(@Value("${chat.base-url:https://ietowdbn.cloud.sealos.io/api}") String baseUrl,
+                       @Value("${chat.api-key:}") String apiKey,
+                       @Value("${chat.proxy:}") String proxy,
+                       @Value("${chat.timeout-seconds:180}") int timeoutSeconds,
+                       @Value("${chat.max-concurrent:8}") int maxConcurrent,
+                       @Value("${chat.max-queued-per-user:2}") int maxQueuedPerUser) {
+        this.chatUrl = baseUrl + CHAT_URL;
+        this.apiKey = apiKey;
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10));
+        if (proxy != null && !proxy.isEmpty()) {
+            String[] hostPort = proxy.split(":");
+            builder.proxy(ProxySelector.of(new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]))));
+        }
+        this.httpClient = builder.build();
+    }
+
+    /**
+     * 在该用户的对话上下文中提交一次对话请求。
+     *
+     * @param userId  用户 id，同时作为上游的 chatId
+     * @param text    用户输入
+     * @param onToken 每收到一段回复时的回调，在 HttpClient 的线程中调用
+     * @return 完整回复；取消该 future 会中断上游请求并释放名额
+     * @throws DefaultException 该用户排队中的请求过多时抛出
+     */
+    public CompletableFuture<String> chat(String userId, String text, Consumer<String> onToken) {
+        return chat(userId, text, false, onToken);
+    }
+
+    /**
+     * 提交一次对话请求。
+     *
+     * @param userId     用户 id，用于排队和并发控制
+     * @param text       用户输入
+     * @param standalone 为 true 时是独立提问，不传 chatId，上游不读取也不记录该用户的对话上下文
+     * @param onToken    每收到一段回复时的回调，在 HttpClient 的线程中调用
+     * @return 完整回复；取消该 future 会中断上游请求并释放名额
+     * @throws DefaultException 该用户排队中的请求过多时抛出
+     */
+    public CompletableFuture<String> chat(String userId, String text, boolean standalone, Consumer<String> onToken) {
+        ChatTask task = new ChatTask(userId, text, standalone, onToken);
+        synchronized (this) {
+            Deque<ChatTask> queue = pending.computeIfAbsent(userId, key -> new ArrayDeque<>());
+            if (queue.size() >= maxQueuedPerUser) {
+                throw new DefaultException("排队中的请求过多，请稍后再试", HttpStatus.TOO_MANY_REQUESTS);
+            }
+            queue.add(task);
+            if (queue.size() == 1 && !activeUsers.contains(userId)) {
+                readyUsers.add(userId);
+            }
+        }
+        task.result.whenComplete((content, e) -> finish(task));
+        dispatch();
+        return task.result;
+    }
+
+    // 在名额允许的范围内，按用户轮流启动排队中的请求
+    private void dispatch() {
+        List<ChatTask> toStart = new ArrayList<>();
+        synchronized (this) {
+            while (running < maxConcurrent && !readyUsers.isEmpty()) {
+                String userId = readyUsers.poll();
+                Deque<ChatTask> queue = pending.get(userId);
+                ChatTask task = queue.poll();
+                if (queue.isEmpty()) {
+                    pending.remove(userId);
+                }
+                task.started = true;
+                running++;
+                activeUsers.add(userId);
+                toStart.add(task);
+            }
+        }
+        for (ChatTask task : toStart) {
+            send(task);
+        }
+    }
+
+    private void finish(ChatTask task) {
+        synchronized (this) {
+            if (task.started) {
+                running--;
+                activeUsers.remove(task.userId);
+                if (pending.containsKey(task.userId)) {
+                    readyUsers.add(task.userId);
+                }
+            } else {
+                // 还在排队时就被取消
+                Deque<ChatTask> queue = pending.get(task.userId);
+                if (queue != null && queue.remove(task) && queue.isEmpty()) {
+                    pending.remove(task.userId);
+                    readyUsers.remove(task.userId);
+                }
+            }
+        }
+        dispatch();
+    }
+
+    private void send(ChatTask task) {
+        if (task.result.isDone()) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        JSONObject message = new JSONObject();
+        message.put("role", "user");
+        message.put("content", task.text);
+        JSONObject body = new JSONObject();
+        if (!task.standalone) {
+            body.put("chatId", task.userId);
+        }
+        body.put("stream", true);
+        body.put("detail", false);
+        body.put("messages", Collections.singletonList(message));
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(chatUrl))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toJSONString(), StandardCharsets.UTF_8));
+        if (!apiKey.isEmpty()) {
+            request.header("Authorization", apiKey);
+        }
+
+        CompletionSubscriber subscriber = new CompletionSubscriber(task);
+        task.result.whenComplete((content, e) -> subscriber.cancel());
+        httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.fromLineSubscriber(subscriber))
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((response, e) -> {
+                    chatLatency.recordSince(start);
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        task.result.completeExceptionally(new DefaultException("AI服务请求失败: " + cause, HttpStatus.BAD_GATEWAY));
+                    } else if (response.statusCode() != 200) {
+                        task.result.completeExceptionally(new DefaultException("AI服务返回错误状态: " + response.statusCode(), HttpStatus.BAD_GATEWAY));
+                    } else {
+                        task.result.complete(subscriber.content());
+                    }
+                });
+    }
+
+    /**
+     * 获取对话的排队情况与耗时统计。
+     */
+    public synchronized Map<String, Object> getChatStats() {
+        int queued = 0;
+        for (Deque<ChatTask> queue : pending.values()) {
+            queued += queue.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("queued", queued);
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("latency", chatLatency.snapshot());
+        return stats;
+    }
+
+    private static class ChatTask {
+        final String userId;
+        final String text;
+        final boolean standalone;
+        final Consumer<String> onToken;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        boolean started;
+
+        ChatTask(String userId, String text, boolean standalone, Consumer<String> onToken) {
+            this.userId = userId;
+            this.text = text;
+            this.standalone = standalone;
+            this.onToken = onToken;
+        }
+    }
+
+    /**
+     * 逐行解析上游响应。
+     * "data: {...}" 行按流式分片处理，取 choices[0].delta.content；
+     * 上游忽略 stream 参数直接返回整段 JSON 时，在结束后按 choices[0].message.content 一次性回调。
+     */
+    private static class CompletionSubscriber implements Flow.Subscriber<String> {
+
+        private final ChatTask task;
+        private final StringBuilder content = new StringBuilder();
+        private final StringBuilder raw = new StringBuilder();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+
+        CompletionSubscriber(ChatTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("data:")) {
+                String data = line.substring(5).trim();
+                if (data.isEmpty() || "[DONE]".equals(data)) {
+                    return;
+                }
+                JSONObject choice = firstChoice(data);
+                JSONObject delta = choice == null ? null : choice.getJSONObject("delta");
+                if (delta != null) {
+                    emit(delta.getString("content"));
+                }
+            } else if (!line.isEmpty() && !line.startsWith("event:") && !line.startsWith(":")) {
+                raw.append(line);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // 错误由 sendAsync 返回的 future 统一处理
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        String content() {
+            if (content.length() == 0 && raw.length() > 0) {
+                JSONObject choice = firstChoice(raw.toString());
+                JSONObject message = choice == null ? null : choice.getJSONObject("message");
+                if (message != null) {
+                    emit(message.getString("content"));
+                }
+            }
+            return content.toString();
+        }
+
+        void cancel() {
+            cancelled = true;
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        private void emit(String token) {
+            if (token == null || token.isEmpty() || cancelled) {
+                return;
+            }
+            content.append(token);
+            try {
+                task.onToken.accept(token);
+            } catch (RuntimeException e) {
+                // 下游（如浏览器连接）已经断开，停止读取上游
+                task.result.cancel(false);
+            }
+        }
+
+        private static JSONObject firstChoice(String json) {
+            try {
+                JSONObject object = JSON.parseObject(json);
+                JSONArray choices = object == null ? null : object.getJSONArray("choices");
+                return choices == null || choices.isEmpty() ? null : choices.getJSONObject(0);
+            } catch (JSONException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
@@ -7,12 +9,15 @@ import com.example.wechat.exception.NameNotFoundException;
 import com.example.wechat.format.NameChecker;
 import com.example.wechat.model.*;
 import com.example.wechat.repository.DepartmentRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,7 +27,17 @@ public class DepartmentService {
     private DepartmentRepository departmentRepository;
 
     @Autowired
-    private FileService fileService;
+    private NameUniqueness nameUniqueness;
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Department> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Department.class);
+    }
 
 
     /**
@@ -34,17 +49,15 @@ public class DepartmentService {
      * @throws DefaultException 如果科室名不合法，则抛出 DefaultException 异常
      */
     public Department addDepartment(Department department) throws NameAlreadyExistedException,DefaultException {
-        Optional<Department> existedDepatment = departmentRepository.findDepartmentByName(department.getName());
-
         //对应名字的disease存在则报错
-        if(existedDepatment.isPresent()){
+        if(nameUniqueness.exists(Department.class, department.getName())){
             throw new NameAlreadyExistedException("名字已存在");
         }
 
         //检查名字的合法性，如果不正确则抛出错误
         NameChecker.nameIsLegal(department.getName());
 
-        Department savedDepartment = departmentRepository.save(department);
+        Department savedDepartment = nameUniqueness.save(() -> departmentRepository.save(department), () -> new NameAlreadyExistedException("名字已存在"));
         return savedDepartment;
     }
 
@@ -113,10 +126,8 @@ public class DepartmentService {
 
             //如果修改了名字，那么对名字的唯一性进行校验
             if(!department_editing.getName().equals(department.getName())){
-                Optional<Department> existedDepartment = departmentRepository.findDepartmentByName(department.getName());
-
                 //存在一个和当前名字相同的病，则返回失败
-                if(existedDepartment.isPresent()){
+                if(nameUniqueness.exists(Department.class, department.getName())){
                     throw new NameAlreadyExistedException("科室名字已存在,更改失败");
                 }
 
@@ -129,7 +140,7 @@ public class DepartmentService {
             // 不要去做Role了。
             // department_editing.setRoleList(department.getRoleList());
 
-            return Optional.of(departmentRepository.save(department_editing));
+            return Optional.of(nameUniqueness.save(() -> departmentRepository.save(department_editing), () -> new NameAlreadyExistedException("科室名字已存在,更改失败")));
         }
         throw new IdNotFoundException("id不存在,无法更新科室");
     }
@@ -154,7 +165,18 @@ public class DepartmentService {
      * @return 所有科室的列表
      */
     public List<Department> findAllDepartments() {
-        return departmentRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有科室。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Department> findDepartmentsPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
 
@@ -167,13 +189,13 @@ public class DepartmentService {
      * @throws IdNotFoundException 如果对应的科室ID不存在，则抛出 IdNotFoundException 异常
      */
     public Optional<Department> findDepartmentById(ObjectId id) throws IdNotFoundException{
-        Optional<Department> department = departmentRepository.findById(id);
+        Optional<Department> department = catalog.findById(id);
         if(department.isPresent()) return department;
         else throw new IdNotFoundException("对应id不存在");
     }
 
     public List<Department> findDepartmentByRoleId(ObjectId id) throws  IdNotFoundException{
-        List<Department> departments = findAllDepartments();
+        List<Department> departments = new ArrayList<>(findAllDepartments());
         for(Department department : departments){
             // 不要去做Role了。
             // List<Role> roles = department.getRoleList();
@@ -190,39 +212,11 @@ public class DepartmentService {
     }
 
     public String uploadFile(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        var existing = departmentRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应对象不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        List<String> files = updating.getFiles();
-        files.add(fileId);
-        updating.setFiles(files);
-
-        departmentRepository.save(updating);
-
-        return fileId;
-
+        return catalog.attachFile(file, id, "对应对象不存在，无法更新图片");
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        var existing = departmentRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应实体不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        updating.setAvatar(fileId);
-        departmentRepository.save(updating);
-        return fileId;
-
+        return catalog.attachAvatar(file, id, "对应实体不存在，无法更新图片");
     }
 
 
@@ -1,17 +1,21 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.format.NameChecker;
 import com.example.wechat.model.Case;
+import com.example.wechat.model.Category;
 import com.example.wechat.model.Department;
 import com.example.wechat.model.Disease;
-import com.example.wechat.repository.CaseRepository;
 import com.example.wechat.repository.CategoryRepository;
 import com.example.wechat.repository.DiseaseRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -28,13 +32,20 @@ public class DiseaseService {
     private DiseaseRepository diseaseRepository;
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private NameUniqueness nameUniqueness;
 
     @Autowired
-    private CaseRepository caseRepository;
+    private CatalogEngine catalogEngine;
 
     @Autowired
-    private FileService fileService;
+    private CategoryRepository categoryRepository;
+
+    private Catalog<Disease> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Disease.class, Category.class);
+    }
 
 
     /**
@@ -45,17 +56,15 @@ public class DiseaseService {
      * @throws DefaultException 如果疾病名已经存在，则抛出 DefaultException 异常
      */
     public Disease addDisease(Disease disease) throws DefaultException{
-        Optional<Disease> existedDisease = diseaseRepository.findDiseaseByName(disease.getName());
-
         //对应名字的disease存在则报错
-        if(existedDisease.isPresent()){
+        if(nameUniqueness.exists(Disease.class, disease.getName())){
             throw new DefaultException("名字已存在");
         }
 
         //检查名字的合法性，如果不正确则抛出错误
         NameChecker.nameIsLegal(disease.getName());
 
-        Disease savedDisease = diseaseRepository.save(disease);
+        Disease savedDisease = nameUniqueness.save(() -> diseaseRepository.save(disease), () -> new DefaultException("名字已存在"));
         return savedDisease;
     }
 
@@ -77,11 +86,8 @@ public class DiseaseService {
         }
         diseaseRepository.delete(existedDisease.get());
 
-        //级联删除case
-        List<Case> cases = caseRepository.findByDiseaseId(id);
-        for(Case cas : cases){
-            caseRepository.delete(cas);
-        }
+        //级联删除case，按 id 批量删除
+        catalog.deleteReferencing(Case.class, "disease", id);
         return existedDisease;
     }
 
@@ -100,10 +106,8 @@ public class DiseaseService {
 
             //如果修改了名字，那么对名字的约束进行校验
             if(!dese.getName().equals(disease.getName())){
-                Optional<Disease> existedDisease = diseaseRepository.findDiseaseByName(disease.getName());
-
                 //存在一个和当前名字相同的病，则返回失败
-                if(existedDisease.isPresent()){
+                if(nameUniqueness.exists(Disease.class, disease.getName())){
                    throw new DefaultException("名字已存在");
                 }
 
@@ -113,7 +117,7 @@ public class DiseaseService {
             dese.setName(disease.getName());
             dese.setCategory(disease.getCategory());
             dese.setInfo(disease.getInfo());
-            return Optional.of(diseaseRepository.save(dese));
+            return Optional.of(nameUniqueness.save(() -> diseaseRepository.save(dese), () -> new DefaultException("名字已存在")));
         }
         throw new DefaultException("id不存在");
     }
@@ -151,7 +155,18 @@ public class DiseaseService {
      * @return 所有疾病的列表
      */
     public List<Disease> findAllDiseases() {
-        return diseaseRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有疾病。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Disease> findDiseasesPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
 
@@ -164,49 +179,17 @@ public class DiseaseService {
      * @throws IdNotFoundException 如果对应的疾病ID不存在，则抛出 IdNotFoundException 异常
      */
     public Optional<Disease> findDiseaseById(ObjectId id) throws IdNotFoundException{
-        Optional<Disease> disease = diseaseRepository.findById(id);
+        Optional<Disease> disease = catalog.findById(id);
         if(disease.isPresent()) return disease;
         else throw new IdNotFoundException("对应id不存在");
     }
 
     public String uploadFile(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        var existing = diseaseRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应对象不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        List<String> files = updating.getFiles();
-        files.add(fileId);
-        updating.setFiles(files);
-
-        diseaseRepository.save(updating);
-
-        return fileId;
-
+        return catalog.attachFile(file, id, "对应对象不存在，无法更新图片");
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        Optional<Disease> existing = diseaseRepository.findById(objectId);
-
-
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应实体不存在，无法更新图片");
-
-        Disease updating = existing.get();
-
-
-        updating.setAvatar(fileId);
-
-        diseaseRepository.save(updating);
-        return fileId;
-
+        return catalog.attachAvatar(file, id, "对应实体不存在，无法更新图片");
     }
 
 }
@@ -1,5 +1,7 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
@@ -8,11 +10,13 @@ import com.example.wechat.model.Case;
 import com.example.wechat.model.Drug;
 import com.example.wechat.model.Facility;
 import com.example.wechat.repository.DrugRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -24,7 +28,17 @@ public class DrugService {
     private DrugRepository drugRepository;
 
     @Autowired
-    private FileService fileService;
+    private NameUniqueness nameUniqueness;
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Drug> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Drug.class);
+    }
 
     /**
      * 添加一个新的药品信息。
@@ -35,17 +49,15 @@ public class DrugService {
      * @throws DefaultException 如果药品名字不合法，则抛出DefaultException异常
      */
     public Drug addDrug(Drug drug) throws NameAlreadyExistedException, DefaultException {
-        Optional<Drug> existedDrug = drugRepository.findDrugByName(drug.getName());
-
         //对应名字的drug存在则报错
-        if(existedDrug.isPresent()){
+        if(nameUniqueness.exists(Drug.class, drug.getName())){
             throw new NameAlreadyExistedException("名字已存在");
         }
 
         //检查名字的合法性，如果不正确则抛出错误
         NameChecker.nameIsLegal(drug.getName());
 
-        Drug savedDrug = drugRepository.save(drug);
+        Drug savedDrug = nameUniqueness.save(() -> drugRepository.save(drug), () -> new NameAlreadyExistedException("名字已存在"));
         return savedDrug;
     }
 
@@ -90,10 +102,8 @@ public class DrugService {
 
             //如果修改了名字，那么对名字的唯一性进行校验
             if(!drugEntity.getName().equals(drug.getName())){
-                Optional<Drug> existedDrug = drugRepository.findDrugByName(drug.getName());
-
                 //存在一个和当前名字相同的设备，则返回失败
-                if(existedDrug.isPresent()){
+                if(nameUniqueness.exists(Drug.class, drug.getName())){
                     throw new NameAlreadyExistedException("当前药品已存在");
                 }
 
@@ -101,7 +111,7 @@ public class DrugService {
                 NameChecker.nameIsLegal(drug.getName());
             }
 
-            return Optional.of(drugRepository.save(drug));
+            return Optional.of(nameUniqueness.save(() -> drugRepository.save(drug), () -> new NameAlreadyExistedException("当前药品已存在")));
         }
         throw new IdNotFoundException("id不存在");
     }
@@ -126,7 +136,18 @@ public class DrugService {
      * @return 所有药品的列表
      */
     public List<Drug> findAllDrugs() {
-        return drugRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有药品。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Drug> findDrugsPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
 
@@ -138,7 +159,7 @@ public class DrugService {
      * @throws IdNotFoundException 如果对应的药品ID不存在，则抛出 IdNotFoundException 异常
      */
     public Optional<Drug> findDrugById(ObjectId id) throws IdNotFoundException{
-        Optional<Drug> drug = drugRepository.findById(id);
+        Optional<Drug> drug = catalog.findById(id);
         if(drug.isPresent()) return drug;
         else throw new IdNotFoundException("对应id不存在");
     }
@@ -153,51 +174,16 @@ public class DrugService {
      * @throws IdNotFoundException 如果找不到对应的药品ID，则抛出IdNotFoundException
      */
     public void updateDrugPicUrl(ObjectId id, String picUrl) {
-        Optional<Drug> drugOptional = drugRepository.findById(id);
-        if (drugOptional.isPresent()) {
-            Drug drug = drugOptional.get();
-            drug.setPicUrl(picUrl); // 更新药品的图片URL
-            drugRepository.save(drug); // 保存更改
-        } else {
-            throw new IdNotFoundException("没有找到对应id"); // 抛出ID未找到异常
-        }
+        catalog.setField(id, "picUrl", picUrl, "没有找到对应id");
     }
 
 
     public String uploadFile(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        var existing = drugRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应对象不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        List<String> files = updating.getFiles();
-        files.add(fileId);
-        updating.setFiles(files);
-
-        drugRepository.save(updating);
-
-        return fileId;
-
+        return catalog.attachFile(file, id, "对应对象不存在，无法更新图片");
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        var existing = drugRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应实体不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        updating.setAvatar(fileId);
-        drugRepository.save(updating);
-        return fileId;
-
+        return catalog.attachAvatar(file, id, "对应实体不存在，无法更新图片");
     }
 
 
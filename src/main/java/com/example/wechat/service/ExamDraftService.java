@@ -0,0 +1,161 @@
+package com.example.wechat.service;
+
+import com.example.wechat.model.ExamDraft;
+import com.example.wechat.model.Question;
+import com.example.wechat.mongo.DbRefBatchReader;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 组卷草稿存储，代替原来放在 HttpSession 中的 sessionQuestions。
+ * 草稿按所有者保存在 examDraft 集合中，只记录题目 id，多个实例共享；
+ * updatedAt 上的 TTL 索引让长时间未修改的草稿自动过期。
+ * 前置缓存只用于展示草稿（getQuestions），其他实例的修改最多延迟 FRONT_CACHE_TTL_MS 后可见；
+ * 组卷读取题目 id（getQuestionIds）总是直接查询数据库，负载均衡到其他实例时也不会漏掉刚加入的题目。
+ */
+@Service
+public class ExamDraftService {
+
+    // 前置缓存的有效期和最大条目数
+    private static final long FRONT_CACHE_TTL_MS = 5000;
+    private static final int FRONT_CACHE_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DbRefBatchReader dbRefBatchReader;
+
+    @Value("${exam.draft.ttl-hours:24}")
+    private long ttlHours;
+
+    private final Map<String, CachedDraft> frontCache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(ExamDraft.class).ensureIndex(new Index()
+                .on("updatedAt", Sort.Direction.ASC)
+                .expire(ttlHours, TimeUnit.HOURS));
+    }
+
+    /**
+     * 把题目加入草稿末尾，草稿不存在时创建。
+     *
+     * @param owner      草稿所有者
+     * @param questionId 题目 id
+     */
+    public void addQuestion(String owner, ObjectId questionId) {
+        ExamDraft draft = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(owner)),
+                new Update().push("questionIds", questionId).set("updatedAt", new Date()),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                ExamDraft.class);
+        cache(owner, draft == null ? null : draft.getQuestionIds());
+    }
+
+    /**
+     * 从草稿中移除题目（若重复加入过，全部移除）。
+     *
+     * @param owner      草稿所有者
+     * @param questionId 题目 id
+     * @return 草稿中存在该题目时返回 true
+     */
+    public boolean removeQuestion(String owner, ObjectId questionId) {
+        UpdateResult result = mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(owner).and("questionIds").is(questionId)),
+                new Update().pull("questionIds", questionId).set("updatedAt", new Date()),
+                ExamDraft.class);
+        frontCache.remove(owner);
+        return result.getModifiedCount() > 0;
+    }
+
+    /**
+     * 清空草稿。
+     *
+     * @param owner 草稿所有者
+     */
+    public void clear(String owner) {
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(owner)), ExamDraft.class);
+        frontCache.remove(owner);
+    }
+
+    /**
+     * 从数据库读取草稿中的题目 id，不经过前置缓存，用于组卷等需要最新草稿的操作。
+     *
+     * @param owner 草稿所有者
+     * @return 题目 id 列表，按加入顺序排列；没有草稿时返回空列表
+     */
+    public List<ObjectId> getQuestionIds(String owner) {
+        ExamDraft draft = mongoTemplate.findById(owner, ExamDraft.class);
+        return cache(owner, draft == null ? null : draft.getQuestionIds());
+    }
+
+    /**
+     * 获取草稿中的题目用于展示，一次 $in 读取，顺序与加入顺序一致。
+     * 题目 id 可能来自前置缓存，其他实例刚做的修改可能还未反映出来。
+     *
+     * @param owner 草稿所有者
+     * @return 题目列表，已删除的题目会被跳过
+     */
+    public List<Question> getQuestions(String owner) {
+        List<ObjectId> ids = getCachedQuestionIds(owner);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<ObjectId, Question> byId = new HashMap<>();
+        for (Question question : dbRefBatchReader.find(new Query(Criteria.where("_id").in(ids)), Question.class)) {
+            byId.put(question.getId(), question);
+        }
+        List<Question> questions = new ArrayList<>(ids.size());
+        for (ObjectId id : ids) {
+            Question question = byId.get(id);
+            if (question != null) {
+                questions.add(question);
+            }
+        }
+        return questions;
+    }
+
+    private List<ObjectId> getCachedQuestionIds(String owner) {
+        CachedDraft cached = frontCache.get(owner);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < FRONT_CACHE_TTL_MS) {
+            return cached.questionIds;
+        }
+        return getQuestionIds(owner);
+    }
+
+    private List<ObjectId> cache(String owner, List<ObjectId> questionIds) {
+        List<ObjectId> ids = questionIds == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(questionIds));
+        if (frontCache.size() >= FRONT_CACHE_SIZE) {
+            // 缓存只为减少同一请求序列内的重复读取，满了直接清空即可
+            frontCache.clear();
+        }
+        frontCache.put(owner, new CachedDraft(ids, System.currentTimeMillis()));
+        return ids;
+    }
+
+    private static class CachedDraft {
+        final List<ObjectId> questionIds;
+        final long loadedAt;
+
+        CachedDraft(List<ObjectId> questionIds, long loadedAt) {
+            this.questionIds = questionIds;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
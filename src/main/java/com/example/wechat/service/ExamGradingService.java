@@ -0,0 +1,267 @@
+package com.example.wechat.service;
+
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.model.*;
+import com.example.wechat.monitor.LatencyRecorder;
+import com.example.wechat.repository.UserRepository;
+import com.mongodb.DBRef;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 考试答卷的批量评分流程。
+ * 一次提交只做：考试/答卷记录的投影查询、读取答案表（进行中的考试走 ExamQuestionCache，
+ * 否则一次 $in）、一次答卷记录写入、一次无序批量插入全部 QuestionRecord，
+ * 以及一次批量 $inc 更新用户答题统计，不再逐题往返数据库。
+ * 考试记录在 (user, exam) 上有唯一索引，先以它占用提交资格再写答题记录；
+ * 答题记录写入失败时撤销占用，用户可以重新提交。
+ */
+@Service
+public class ExamGradingService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ExamQuestionCache examQuestionCache;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private ExamLeaderboard examLeaderboard;
+
+    private final LatencyRecorder gradingLatency = new LatencyRecorder("checkQuestionAnswers");
+
+    /**
+     * 对整张答卷评分并保存记录。
+     *
+     * @param answerList   用户提交的答案，与 questionList 一一对应
+     * @param questionList 题目列表，仅使用其中的题目 id，标准答案与分值以数据库为准
+     * @param examId       考试 id
+     * @param userId       用户 id
+     * @return 已完成的考试记录
+     * @throws DefaultException 考试不存在、不在进行中、已提交过或参数不合法时抛出
+     */
+    public ExamRecord grade(List<String> answerList, List<Question> questionList, String examId, String userId) throws DefaultException {
+        long start = System.nanoTime();
+        try {
+            return doGrade(answerList, questionList, examId, userId);
+        } finally {
+            gradingLatency.recordSince(start);
+        }
+    }
+
+    private ExamRecord doGrade(List<String> answerList, List<Question> questionList, String examId, String userId) {
+        if (questionList == null || answerList == null || answerList.size() < questionList.size()) {
+            throw new DefaultException("答案数量与题目数量不一致");
+        }
+
+        ObjectId examObjId = new ObjectId(examId);
+        ObjectId userObjId = new ObjectId(userId);
+
+        // 只取评分需要的字段，避免解析 questionList/participantList/whiteList 等 DBRef
+        Query examQuery = new Query(Criteria.where("_id").is(examObjId));
+        examQuery.fields().include("status").include("score");
+        Exam exam = mongoTemplate.findOne(examQuery, Exam.class);
+
+        if (exam == null || !userRepository.existsById(userObjId)) {
+            throw new DefaultException("考试不存在");
+        }
+
+        Query recordQuery = new Query(Criteria.where("user.$id").is(userObjId).and("exam.$id").is(examObjId));
+        recordQuery.fields().include("status").include("score");
+        ExamRecord existingRecord = mongoTemplate.findOne(recordQuery, ExamRecord.class);
+
+        if (existingRecord != null && "已完成".equals(existingRecord.getStatus())) {
+            throw new DefaultException("你已经进行过此考试");
+        }
+
+        if (!"进行中".equals(exam.getStatus())) {
+            throw new DefaultException("该考试不在进行中");
+        }
+
+        Map<ObjectId, ExamQuestionCache.AnswerKey> answerKey = loadAnswerKey(examObjId, questionList);
+
+        User user = new User();
+        user.setId(userObjId);
+        Date now = new Date();
+
+        // 在内存中完成整张答卷的评分
+        List<QuestionRecord> records = new ArrayList<>(questionList.size());
+        int totalScoreEarned = 0;
+        for (int i = 0; i < questionList.size(); i++) {
+            ObjectId questionId = questionList.get(i).getId();
+            ExamQuestionCache.AnswerKey key = answerKey.get(questionId);
+            String providedAnswer = answerList.get(i);
+
+            Question question = new Question();
+            question.setId(questionId);
+
+            QuestionRecord record = new QuestionRecord();
+            record.setQuestion(question);
+            record.setChoice(providedAnswer);
+            record.setTorF(key.getAnswer() != null && key.getAnswer().equals(providedAnswer));
+            record.setUser(user);
+            record.setExam(exam);
+            record.setTime(now);
+            records.add(record);
+
+            if (record.getTorF() && key.getScore() != null) {
+                totalScoreEarned += key.getScore();
+            }
+        }
+
+        // 先占用考试记录（带状态条件或唯一索引），防止同一用户并发重复提交
+        String previousStatus = existingRecord == null ? null : existingRecord.getStatus();
+        Integer previousScore = existingRecord == null ? null : existingRecord.getScore();
+        ExamRecord examRecord = completeExamRecord(existingRecord, exam, user, totalScoreEarned);
+
+        if (!records.isEmpty()) {
+            try {
+                insertQuestionRecords(records);
+            } catch (RuntimeException e) {
+                try {
+                    releaseExamRecord(examRecord, existingRecord != null, previousStatus, previousScore);
+                } catch (RuntimeException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            }
+
+            Map<ObjectId, ObjectId> questionCategory = new HashMap<>();
+            answerKey.forEach((questionId, key) -> {
+                if (key.getCategoryId() != null) {
+                    questionCategory.put(questionId, key.getCategoryId());
+                }
+            });
+            userStatsService.recordAnswers(userObjId, records, questionCategory);
+        }
+        examLeaderboard.onRecordCompleted(examObjId, userObjId, totalScoreEarned);
+        return examRecord;
+    }
+
+    /**
+     * 无序批量插入答题记录。id 预先分配，部分写入失败时删除已写入的部分。
+     */
+    private void insertQuestionRecords(List<QuestionRecord> records) {
+        List<ObjectId> ids = new ArrayList<>(records.size());
+        for (QuestionRecord record : records) {
+            record.setId(new ObjectId());
+            ids.add(record.getId());
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, QuestionRecord.class);
+            bulk.insert(records);
+            bulk.execute();
+        } catch (RuntimeException e) {
+            try {
+                mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), QuestionRecord.class);
+            } catch (RuntimeException cleanupError) {
+                e.addSuppressed(cleanupError);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 撤销 completeExamRecord 的占用：新插入的记录直接删除，已有的记录恢复原来的状态和分数。
+     */
+    private void releaseExamRecord(ExamRecord examRecord, boolean existed, String previousStatus, Integer previousScore) {
+        Query query = new Query(Criteria.where("_id").is(examRecord.getId()));
+        if (!existed) {
+            mongoTemplate.remove(query, ExamRecord.class);
+            return;
+        }
+        mongoTemplate.updateFirst(query, new Update().set("status", previousStatus).set("score", previousScore),
+                ExamRecord.class);
+    }
+
+    /**
+     * 读取答卷涉及题目的标准答案和分值。
+     * 进行中的考试直接使用 ExamQuestionCache，否则用一次 $in 查询读取。
+     */
+    private Map<ObjectId, ExamQuestionCache.AnswerKey> loadAnswerKey(ObjectId examId, List<Question> questionList) {
+        Set<ObjectId> ids = new HashSet<>();
+        for (Question question : questionList) {
+            if (question == null || question.getId() == null) {
+                throw new DefaultException("题目不存在");
+            }
+            ids.add(question.getId());
+        }
+
+        ExamQuestionCache.CachedExam cached = examQuestionCache.get(examId);
+        if (cached != null) {
+            if (!cached.getAnswerKey().keySet().containsAll(ids)) {
+                throw new DefaultException("题目不存在");
+            }
+            return cached.getAnswerKey();
+        }
+
+        // 读取原始文档，category 只取 DBRef 中的 id，不解析引用
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("answer").include("score").include("category");
+
+        Map<ObjectId, ExamQuestionCache.AnswerKey> answerKey = new HashMap<>();
+        for (Document question : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Question.class))) {
+            Object category = question.get("category");
+            ObjectId categoryId = category instanceof DBRef ? (ObjectId) ((DBRef) category).getId() : null;
+            Object score = question.get("score");
+            answerKey.put(question.getObjectId("_id"), new ExamQuestionCache.AnswerKey(question.getString("answer"),
+                    score instanceof Number ? ((Number) score).intValue() : null, categoryId));
+        }
+        if (answerKey.size() != ids.size()) {
+            throw new DefaultException("题目不存在");
+        }
+        return answerKey;
+    }
+
+    private ExamRecord completeExamRecord(ExamRecord existingRecord, Exam exam, User user, int score) {
+        if (existingRecord == null) {
+            ExamRecord examRecord = new ExamRecord();
+            examRecord.setExam(exam);
+            examRecord.setUser(user);
+            examRecord.setScore(score);
+            examRecord.setStatus("已完成");
+            try {
+                return mongoTemplate.insert(examRecord);
+            } catch (DuplicateKeyException e) {
+                // 同一用户的另一次提交已经插入了记录
+                throw new DefaultException("你已经进行过此考试");
+            }
+        }
+
+        Query query = new Query(Criteria.where("_id").is(existingRecord.getId()).and("status").ne("已完成"));
+        Update update = new Update().set("score", score).set("status", "已完成");
+        UpdateResult result = mongoTemplate.updateFirst(query, update, ExamRecord.class);
+        if (result.getModifiedCount() == 0) {
+            throw new DefaultException("你已经进行过此考试");
+        }
+        existingRecord.setExam(exam);
+        existingRecord.setUser(user);
+        existingRecord.setScore(score);
+        existingRecord.setStatus("已完成");
+        return existingRecord;
+    }
+
+    /**
+     * 获取评分接口的耗时统计。
+     */
+    public Map<String, Object> getGradingStats() {
+        return gradingLatency.snapshot();
+    }
+}
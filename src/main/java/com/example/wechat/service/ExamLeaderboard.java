@@ -0,0 +1,315 @@
+package com.example.wechat.service;
+
+import com.example.wechat.model.Exam;
+import com.example.wechat.model.ExamRecord;
+import com.example.wechat.model.User;
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 考试排行榜。
+ * 每场考试维护一个按分数排序的有序集合（取前 K 名）和一个以分数为下标的树状数组（求名次），
+ * 启动时由已完成的 ExamRecord 重建，评分完成时增量更新；排名查询为 O(log n)，不再重新排序整场考试的记录。
+ * 同分同名次（1, 2, 2, 4），负分按 0 分计。
+ * 排行榜保存在各实例的内存中，其他实例的评分在下次定时重建（exam.leaderboard.refresh-ms）后可见；
+ * 考试被删除时移除对应的排行榜，重建时也会跳过已删除的考试。
+ */
+@Component
+public class ExamLeaderboard {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private volatile Map<ObjectId, Board> boards = new ConcurrentHashMap<>();
+
+    // 修改 boards 及下面的字段时持有
+    private final Object updateLock = new Object();
+    // 重建期间发生的修改，重建完成后在新的排行榜上重放
+    private List<Consumer<Map<ObjectId, Board>>> changesDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    /**
+     * 从数据库重建所有排行榜，纳入其他实例的评分。
+     */
+    @Scheduled(initialDelayString = "${exam.leaderboard.refresh-ms:300000}", fixedDelayString = "${exam.leaderboard.refresh-ms:300000}")
+    public void rebuild() {
+        synchronized (updateLock) {
+            if (changesDuringRebuild != null) {
+                return;
+            }
+            changesDuringRebuild = new ArrayList<>();
+        }
+        Map<ObjectId, Board> rebuilt = null;
+        try {
+            Set<ObjectId> deletedExams = new HashSet<>(mongoTemplate.findDistinct(
+                    new Query(Criteria.where("status").is("Deleted")), "_id", Exam.class, ObjectId.class));
+
+            Query query = new Query(Criteria.where("status").is("已完成"));
+            query.fields().include("exam").include("user").include("score");
+
+            Map<ObjectId, Board> loaded = new ConcurrentHashMap<>();
+            try (CloseableIterator<Document> it = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(ExamRecord.class))) {
+                while (it.hasNext()) {
+                    Document record = it.next();
+                    ObjectId examId = refId(record.get("exam"));
+                    ObjectId userId = refId(record.get("user"));
+                    Object score = record.get("score");
+                    if (examId != null && userId != null && score instanceof Number && !deletedExams.contains(examId)) {
+                        loaded.computeIfAbsent(examId, k -> new Board()).put(userId, ((Number) score).intValue());
+                    }
+                }
+            }
+            rebuilt = loaded;
+        } finally {
+            synchronized (updateLock) {
+                if (rebuilt != null) {
+                    for (Consumer<Map<ObjectId, Board>> change : changesDuringRebuild) {
+                        change.accept(rebuilt);
+                    }
+                    boards = rebuilt;
+                }
+                changesDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * 答卷评分完成后调用。
+     */
+    public void onRecordCompleted(ObjectId examId, ObjectId userId, int score) {
+        apply(target -> target.computeIfAbsent(examId, k -> new Board()).put(userId, score));
+    }
+
+    /**
+     * 用户被删除后从所有排行榜中移除。
+     */
+    public void removeUser(ObjectId userId) {
+        apply(target -> {
+            for (Board board : target.values()) {
+                board.remove(userId);
+            }
+        });
+    }
+
+    /**
+     * 考试被删除后移除其排行榜。
+     */
+    public void removeExam(ObjectId examId) {
+        apply(target -> target.remove(examId));
+    }
+
+    private void apply(Consumer<Map<ObjectId, Board>> change) {
+        synchronized (updateLock) {
+            change.accept(boards);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        }
+    }
+
+    /**
+     * 获取考试前 limit 名。
+     *
+     * @param examId 考试 id
+     * @param limit  名额
+     * @return 每项包含 rank、userId、username、score
+     */
+    public List<Map<String, Object>> top(String examId, int limit) {
+        Board board = boards.get(new ObjectId(examId));
+        if (board == null) {
+            return Collections.emptyList();
+        }
+        List<Map<String, Object>> top = board.top(Math.max(limit, 1));
+
+        // 一次查询补上用户名
+        Set<ObjectId> userIds = new HashSet<>();
+        for (Map<String, Object> entry : top) {
+            userIds.add((ObjectId) entry.get("userId"));
+        }
+        Query userQuery = new Query(Criteria.where("_id").in(userIds));
+        userQuery.fields().include("username");
+        Map<ObjectId, String> usernames = new HashMap<>();
+        for (User user : mongoTemplate.find(userQuery, User.class)) {
+            usernames.put(user.getId(), user.getUsername());
+        }
+        for (Map<String, Object> entry : top) {
+            ObjectId userId = (ObjectId) entry.get("userId");
+            entry.put("userId", userId.toHexString());
+            entry.put("username", usernames.get(userId));
+        }
+        return top;
+    }
+
+    /**
+     * 获取用户在考试中的名次。
+     *
+     * @param examId 考试 id
+     * @param userId 用户 id
+     * @return rank、score、total 以及 percentile（分数低于该用户的人数占比，百分数），用户没有成绩时返回 null
+     */
+    public Map<String, Object> rank(String examId, String userId) {
+        Board board = boards.get(new ObjectId(examId));
+        return board == null ? null : board.rank(new ObjectId(userId));
+    }
+
+    private static ObjectId refId(Object ref) {
+        if (ref instanceof DBRef && ((DBRef) ref).getId() instanceof ObjectId) {
+            return (ObjectId) ((DBRef) ref).getId();
+        }
+        return null;
+    }
+
+    /**
+     * 单场考试的排行榜，读写都在对象锁内完成。
+     */
+    private static class Board {
+        private static final Comparator<Entry> ORDER = Comparator.comparingInt((Entry e) -> -e.score).thenComparing(e -> e.userId);
+
+        private final Map<ObjectId, Integer> scores = new HashMap<>();
+        private final TreeSet<Entry> ordered = new TreeSet<>(ORDER);
+        private final ScoreCounter counter = new ScoreCounter();
+
+        synchronized void put(ObjectId userId, int rawScore) {
+            // 有序集合与树状数组使用同一个分数，二者给出的名次才一致
+            int score = Math.max(rawScore, 0);
+            Integer old = scores.put(userId, score);
+            if (old != null) {
+                ordered.remove(new Entry(userId, old));
+                counter.add(old, -1);
+            }
+            ordered.add(new Entry(userId, score));
+            counter.add(score, 1);
+        }
+
+        synchronized void remove(ObjectId userId) {
+            Integer old = scores.remove(userId);
+            if (old != null) {
+                ordered.remove(new Entry(userId, old));
+                counter.add(old, -1);
+            }
+        }
+
+        synchronized List<Map<String, Object>> top(int limit) {
+            List<Map<String, Object>> result = new ArrayList<>(Math.min(limit, ordered.size()));
+            int position = 0;
+            int rank = 0;
+            Integer lastScore = null;
+            for (Entry entry : ordered) {
+                if (position == limit) {
+                    break;
+                }
+                position++;
+                if (lastScore == null || entry.score != lastScore) {
+                    rank = position;
+                    lastScore = entry.score;
+                }
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("rank", rank);
+                item.put("userId", entry.userId);
+                item.put("score", entry.score);
+                result.add(item);
+            }
+            return result;
+        }
+
+        synchronized Map<String, Object> rank(ObjectId userId) {
+            Integer score = scores.get(userId);
+            if (score == null) {
+                return null;
+            }
+            int total = scores.size();
+            int higher = counter.countAbove(score);
+            int lower = total - higher - counter.countAt(score);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("rank", higher + 1);
+            result.put("score", score);
+            result.put("total", total);
+            result.put("percentile", total == 0 ? 0.0 : lower * 100.0 / total);
+            return result;
+        }
+    }
+
+    private static class Entry {
+        private final ObjectId userId;
+        private final int score;
+
+        Entry(ObjectId userId, int score) {
+            this.userId = userId;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 以分数为下标的树状数组，统计每个分数的人数；容量不够时按 2 倍扩容。
+     * 分数由 Board 保证非负。
+     */
+    private static class ScoreCounter {
+        private long[] tree = new long[128];
+        private int total;
+
+        void add(int score, int delta) {
+            int index = score + 1;
+            while (index >= tree.length) {
+                grow();
+            }
+            total += delta;
+            for (int i = index; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        // 分数不超过 score 的人数
+        int countAtMost(int score) {
+            if (score < 0) {
+                return 0;
+            }
+            int index = Math.min(score + 1, tree.length - 1);
+            long sum = 0;
+            for (int i = index; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return (int) sum;
+        }
+
+        int countAbove(int score) {
+            return total - countAtMost(score);
+        }
+
+        int countAt(int score) {
+            return countAtMost(score) - countAtMost(score - 1);
+        }
+
+        // 扩容后按原始计数重建
+        private void grow() {
+            long[] counts = new long[tree.length];
+            for (int i = 1; i < tree.length; i++) {
+                counts[i] = countAtMost(i - 1) - (i == 1 ? 0 : countAtMost(i - 2));
+            }
+            tree = new long[tree.length * 2];
+            for (int i = 1; i < counts.length; i++) {
+                for (int j = i; j < tree.length; j += j & -j) {
+                    tree[j] += counts[i];
+                }
+            }
+        }
+    }
+}
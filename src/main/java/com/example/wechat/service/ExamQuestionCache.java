@@ -0,0 +1,181 @@
+package com.example.wechat.service;
+
+import com.example.wechat.model.Exam;
+import com.example.wechat.model.Question;
+import com.example.wechat.mongo.DbRefBatchReader;
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进行中考试的题目与答案缓存。
+ * 考试开始时（由 ExamStatusUpdater 同步或考试保存时）预热，结束、删除时移除；
+ * 缓存内容不可变，取题和评分直接读内存，不再查询题目内容。
+ */
+@Component
+public class ExamQuestionCache {
+
+    private static final String IN_PROGRESS = "进行中";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DbRefBatchReader dbRefBatchReader;
+
+    private final Map<ObjectId, CachedExam> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 获取考试缓存；未缓存但考试正在进行时立即预热。
+     *
+     * @param examId 考试 id
+     * @return 缓存内容，考试不存在或不在进行中时返回 null
+     */
+    public CachedExam get(ObjectId examId) {
+        CachedExam cached = cache.get(examId);
+        if (cached != null) {
+            return cached;
+        }
+        return load(examId);
+    }
+
+    /**
+     * 使缓存与当前进行中的考试集合保持一致：补齐缺少的，移除已结束的。
+     *
+     * @param inProgressIds 当前所有进行中考试的 id
+     */
+    public void retainInProgress(Set<ObjectId> inProgressIds) {
+        cache.keySet().retainAll(inProgressIds);
+        for (ObjectId examId : inProgressIds) {
+            if (!cache.containsKey(examId)) {
+                load(examId);
+            }
+        }
+    }
+
+    /**
+     * 考试被保存后调用：进行中的考试确保已缓存，其余状态移除缓存。
+     */
+    public void onExamSaved(Exam exam) {
+        if (exam.getId() == null) {
+            return;
+        }
+        if (IN_PROGRESS.equals(exam.getStatus())) {
+            if (!cache.containsKey(exam.getId())) {
+                load(exam.getId());
+            }
+        } else {
+            cache.remove(exam.getId());
+        }
+    }
+
+    /**
+     * 题目被修改或删除后调用，移除包含该题目的考试缓存，下次访问时重新加载。
+     */
+    public void onQuestionChanged(ObjectId questionId) {
+        cache.values().removeIf(cached -> cached.answerKey.containsKey(questionId));
+    }
+
+    public void evict(ObjectId examId) {
+        cache.remove(examId);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private CachedExam load(ObjectId examId) {
+        Query examQuery = new Query(Criteria.where("_id").is(examId));
+        examQuery.fields().include("status").include("questionList");
+        Document exam = mongoTemplate.findOne(examQuery, Document.class, mongoTemplate.getCollectionName(Exam.class));
+        if (exam == null || !IN_PROGRESS.equals(exam.getString("status"))) {
+            cache.remove(examId);
+            return null;
+        }
+
+        // 按考试中的顺序取出题目，DBRef（如 category）批量解析
+        List<ObjectId> questionIds = new ArrayList<>();
+        for (Object ref : exam.getList("questionList", Object.class, Collections.emptyList())) {
+            if (ref instanceof DBRef && ((DBRef) ref).getId() instanceof ObjectId) {
+                questionIds.add((ObjectId) ((DBRef) ref).getId());
+            }
+        }
+        Map<ObjectId, Question> byId = new HashMap<>();
+        for (Question question : dbRefBatchReader.find(new Query(Criteria.where("_id").in(questionIds)), Question.class)) {
+            byId.put(question.getId(), question);
+        }
+
+        List<Question> questions = new ArrayList<>(questionIds.size());
+        Map<ObjectId, AnswerKey> answerKey = new HashMap<>();
+        for (ObjectId questionId : questionIds) {
+            Question question = byId.get(questionId);
+            if (question != null) {
+                questions.add(question);
+                ObjectId categoryId = question.getCategory() == null ? null : question.getCategory().getId();
+                answerKey.put(questionId, new AnswerKey(question.getAnswer(), question.getScore(), categoryId));
+            }
+        }
+
+        CachedExam cached = new CachedExam(Collections.unmodifiableList(questions), Collections.unmodifiableMap(answerKey));
+        cache.put(examId, cached);
+        return cached;
+    }
+
+    /**
+     * 单场考试的缓存内容。
+     */
+    public static class CachedExam {
+        private final List<Question> questions;
+        private final Map<ObjectId, AnswerKey> answerKey;
+
+        CachedExam(List<Question> questions, Map<ObjectId, AnswerKey> answerKey) {
+            this.questions = questions;
+            this.answerKey = answerKey;
+        }
+
+        // 考试题目，按出题顺序排列
+        public List<Question> getQuestions() {
+            return questions;
+        }
+
+        // 题目 id -> 标准答案与分值
+        public Map<ObjectId, AnswerKey> getAnswerKey() {
+            return answerKey;
+        }
+    }
+
+    /**
+     * 单道题的标准答案、分值与所属病类。
+     */
+    public static class AnswerKey {
+        private final String answer;
+        private final Integer score;
+        private final ObjectId categoryId;
+
+        public AnswerKey(String answer, Integer score, ObjectId categoryId) {
+            this.answer = answer;
+            this.score = score;
+            this.categoryId = categoryId;
+        }
+
+        public String getAnswer() {
+            return answer;
+        }
+
+        public Integer getScore() {
+            return score;
+        }
+
+        public ObjectId getCategoryId() {
+            return categoryId;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.wechat.service;
+
+import com.example.wechat.model.Exam;
+import com.example.wechat.model.Question;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * 考试、题目保存或删除时同步更新 ExamQuestionCache。
+ */
+@Component
+public class ExamQuestionCacheListener extends AbstractMongoEventListener<Object> {
+
+    @Autowired
+    private ExamQuestionCache examQuestionCache;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Object source = event.getSource();
+        if (source instanceof Exam) {
+            examQuestionCache.onExamSaved((Exam) source);
+        } else if (source instanceof Question && ((Question) source).getId() != null) {
+            examQuestionCache.onQuestionChanged(((Question) source).getId());
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        Object id = event.getSource().get("_id");
+        if (!(id instanceof ObjectId)) {
+            return;
+        }
+        if (event.getType() == Exam.class) {
+            examQuestionCache.evict((ObjectId) id);
+        } else if (event.getType() == Question.class) {
+            examQuestionCache.onQuestionChanged((ObjectId) id);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.wechat.service;
 
 import com.example.wechat.model.ExamRecord;
+import com.example.wechat.mongo.DbRefBatchReader;
 import com.example.wechat.repository.ExamRecordRepository;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -15,15 +18,21 @@ public class ExamRecordService {
     @Autowired
     private ExamRecordRepository examRecordRepository;
 
+    @Autowired
+    private DbRefBatchReader dbRefBatchReader;
+
     public List<ExamRecord> findExamRecordsByExamId(String examId, String sort, String status) {
         ObjectId id = new ObjectId(examId);
-        List<ExamRecord> records = examRecordRepository.findByExamId(id);
+        Criteria criteria = Criteria.where("exam.$id").is(id);
 
         // 筛选记录的状态，如果status参数不为null
         if (status != null && !status.isEmpty()) {
-            records = records.stream().filter(r -> status.equals(r.getStatus())).collect(Collectors.toList());
+            criteria.and("status").is(status);
         }
 
+        // 同一考试的记录共享考试及其题目，批量解析 DBRef
+        List<ExamRecord> records = dbRefBatchReader.find(new Query(criteria), ExamRecord.class);
+
         // 排序逻辑保持不变
         if ("score".equals(sort)) {
             records.sort(Comparator.comparingInt(ExamRecord::getScore).reversed());
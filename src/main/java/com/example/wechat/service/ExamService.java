@@ -5,12 +5,16 @@ import com.example.wechat.model.Exam;
 import com.example.wechat.model.ExamRecord;
 import com.example.wechat.model.Question;
 import com.example.wechat.model.User;
+import com.example.wechat.mongo.DbRefBatchReader;
+import com.example.wechat.mongo.KeysetPage;
+import com.example.wechat.mongo.KeysetPager;
 import com.example.wechat.repository.ExamRecordRepository;
 import com.example.wechat.repository.ExamRepository;
 import com.example.wechat.repository.QuestionRepository;
 import com.example.wechat.repository.UserRepository;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.MongoTemplate;
@@ -35,6 +39,21 @@ public class ExamService {
     @Autowired
     private ExamRecordRepository examRecordRepository;
 
+    @Autowired
+    private ExamStatusUpdater examStatusUpdater;
+
+    @Autowired
+    private DbRefBatchReader dbRefBatchReader;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private ExamQuestionCache examQuestionCache;
+
+    @Autowired
+    private ExamLeaderboard examLeaderboard;
+
     private final MongoTemplate mongoTemplate;
     public ExamService(MongoTemplate mongoTemplate) {
         this.mongoTemplate = mongoTemplate;
@@ -73,7 +92,9 @@ public class ExamService {
         newExam.setParticipantList(Collections.singletonList(holder)); // 仅包含自己
         newExam.setWhiteList(Collections.singletonList(holder)); // 可选，如果需要白名单
 
-        return examRepository.save(newExam);
+        Exam savedExam = examRepository.save(newExam);
+        examStatusUpdater.onExamScheduled(startTime, endTime);
+        return savedExam;
     }
 
     public Exam holdPublicExam(String name, List<String> questionIds, List<String> whiteListUserIds, Date startTime, Date endTime, Integer score, String holderUserId, Boolean everyone) {
@@ -111,7 +132,9 @@ public class ExamService {
         newExam.setWhiteList(whiteList);
 
         // participantList为空，由用户报名
-        return examRepository.save(newExam);
+        Exam savedExam = examRepository.save(newExam);
+        examStatusUpdater.onExamScheduled(startTime, endTime);
+        return savedExam;
     }
 
     // 假设的方法，需要你根据实际情况实现
@@ -138,19 +161,36 @@ public class ExamService {
     }
 
     public List<Exam> getExamsByOptionalStatus(String status) {
+        // 考试列表引用大量题目和用户，批量解析 DBRef
         if (status == null || status.isEmpty()) {
-            return examRepository.findByStatusNot("Deleted");
+            return dbRefBatchReader.find(new Query(Criteria.where("status").ne("Deleted")), Exam.class);
         } else {
-            return examRepository.findByStatus(status);
+            return dbRefBatchReader.find(new Query(Criteria.where("status").is(status)), Exam.class);
         }
     }
 
+    /**
+     * 按 _id 分页获取考试列表，状态过滤规则与 getExamsByOptionalStatus 相同。
+     *
+     * @param status 考试状态，为空时返回所有未删除的考试
+     * @param after  上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit  每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Exam> getExamsPageByOptionalStatus(String status, String after, Integer limit) {
+        Criteria criteria = (status == null || status.isEmpty())
+                ? Criteria.where("status").ne("Deleted")
+                : Criteria.where("status").is(status);
+        return keysetPager.page(criteria, Exam.class, after, limit);
+    }
+
     public Optional<Exam> setExamStatusToDeleted(String examId) {
         Optional<Exam> examOpt = examRepository.findById(new ObjectId(examId));
         if (examOpt.isPresent()) {
             Exam exam = examOpt.get();
             exam.setStatus("Deleted");
             examRepository.save(exam);
+            examLeaderboard.removeExam(exam.getId());
             return Optional.of(exam);
         }
         return Optional.empty();
@@ -244,14 +284,22 @@ public class ExamService {
             examRepository.save(exam);
         }
 
-        // 创建考试记录
+        // 创建考试记录，(user, exam) 上有唯一索引，重复加入时沿用已有记录
+        if (mongoTemplate.exists(new Query(Criteria.where("user.$id").is(user.getId())
+                .and("exam.$id").is(exam.getId())), ExamRecord.class)) {
+            return;
+        }
         ExamRecord record = new ExamRecord();
         record.setExam(exam);
         record.setUser(user);
         record.setStatus("未完成");
         record.setScore(0); // 初始化得分为0
 
-        examRecordRepository.save(record);
+        try {
+            examRecordRepository.insert(record);
+        } catch (DuplicateKeyException e) {
+            // 同一用户并发加入，另一个请求已经创建了记录
+        }
     }
 
     public void addUserToWhitelist(String examId, String userId) {
@@ -289,6 +337,11 @@ public class ExamService {
     }
 
      public List<Question> findQuestionByExamId(String id){
+        // 进行中的考试直接从缓存取题
+        ExamQuestionCache.CachedExam cached = examQuestionCache.get(new ObjectId(id));
+        if (cached != null) {
+            return cached.getQuestions();
+        }
         Exam exam = examRepository.findById(new ObjectId(id)).get();
         return exam.getQuestionList();
      }
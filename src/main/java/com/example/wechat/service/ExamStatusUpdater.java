@@ -1,37 +1,132 @@
 package com.example.wechat.service;
 
 import com.example.wechat.model.Exam;
-import com.example.wechat.repository.ExamRepository;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 考试状态调度器。
+ * 只跟踪下一个开始/结束时间边界，每秒检查一次；到达边界时才用 updateMulti
+ * 按 status + startTime/endTime 索引批量切换状态，平时不读写任何考试文档。
+ * 每次同步后顺带让 ExamQuestionCache 只保留进行中的考试。
+ */
 @Component
 public class ExamStatusUpdater {
 
+    // 即使没有到达边界，也定期做一次兜底同步，覆盖直接修改数据库等情况
+    private static final long RESYNC_INTERVAL_MS = 60000;
+
+    private static final List<String> NOT_STARTED = Arrays.asList("未开始", "有效");
+    private static final List<String> NOT_ENDED = Arrays.asList("未开始", "有效", "进行中");
+
     @Autowired
-    private ExamRepository examRepository;
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ExamQuestionCache examQuestionCache;
+
+    // 下一个需要处理的开始/结束时间（毫秒），由上一次同步时查询得到
+    private volatile long nextBoundary = 0;
 
-    @Scheduled(fixedRate = 60000)
+    // 上一次同步之后新建考试带来的边界，单独保存以免被同步结果覆盖
+    private final AtomicLong pendingBoundary = new AtomicLong(Long.MAX_VALUE);
+
+    private volatile long lastSync = 0;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(Exam.class).ensureIndex(new Index().on("status", Sort.Direction.ASC).on("startTime", Sort.Direction.ASC));
+        mongoTemplate.indexOps(Exam.class).ensureIndex(new Index().on("status", Sort.Direction.ASC).on("endTime", Sort.Direction.ASC));
+    }
+
+    @Scheduled(fixedDelay = 1000)
     public void updateExamStatus() {
-        List<Exam> exams = examRepository.findAll();
-        Date now = new Date();
-        exams.forEach(exam -> {
-            if (!"Deleted".equals(exam.getStatus())) {
-                if (exam.getStartTime().after(now)) {
-                    // 当前时间未到开始时间
-                    exam.setStatus("未开始");
-                } else if (exam.getStartTime().before(now) && exam.getEndTime().after(now)) {
-                    // 当前时间在开始时间和结束时间之间
-                    exam.setStatus("进行中");
-                } else if (exam.getEndTime().before(now)) {
-                    // 当前时间在结束时间之后
-                    exam.setStatus("已过期");
-                }
-                examRepository.save(exam);
+        long now = System.currentTimeMillis();
+        if (now < Math.min(nextBoundary, pendingBoundary.get()) && now - lastSync < RESYNC_INTERVAL_MS) {
+            return;
+        }
+        pendingBoundary.set(Long.MAX_VALUE);
+        Date nowDate = new Date(now);
+
+        // 当前时间在开始时间和结束时间之间
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("status").in(NOT_STARTED).and("startTime").lte(nowDate).and("endTime").gt(nowDate)),
+                new Update().set("status", "进行中"),
+                Exam.class);
+
+        // 当前时间在结束时间之后
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("status").in(NOT_ENDED).and("endTime").lte(nowDate)),
+                new Update().set("status", "已过期"),
+                Exam.class);
+
+        // 开始的考试预热题目缓存，结束的考试移出缓存
+        examQuestionCache.retainInProgress(findInProgressIds());
+
+        lastSync = now;
+        nextBoundary = findNextBoundary(nowDate);
+    }
+
+    /**
+     * 新建考试后调用，使调度器在该考试的开始/结束时间准时切换状态。
+     *
+     * @param startTime 考试开始时间
+     * @param endTime   考试结束时间
+     */
+    public void onExamScheduled(Date startTime, Date endTime) {
+        long now = System.currentTimeMillis();
+        for (Date boundary : Arrays.asList(startTime, endTime)) {
+            if (boundary != null && boundary.getTime() > now) {
+                pendingBoundary.accumulateAndGet(boundary.getTime(), Math::min);
             }
-        });
+        }
+    }
+
+    private Set<ObjectId> findInProgressIds() {
+        Query query = new Query(Criteria.where("status").is("进行中"));
+        query.fields().include("_id");
+        Set<ObjectId> ids = new HashSet<>();
+        for (Exam exam : mongoTemplate.find(query, Exam.class)) {
+            ids.add(exam.getId());
+        }
+        return ids;
+    }
+
+    // 查找尚未开始考试的最早开始时间和尚未结束考试的最早结束时间
+    private long findNextBoundary(Date now) {
+        long next = Long.MAX_VALUE;
+
+        Query startQuery = new Query(Criteria.where("status").in(NOT_STARTED).and("startTime").gt(now))
+                .with(Sort.by(Sort.Direction.ASC, "startTime")).limit(1);
+        startQuery.fields().include("startTime");
+        Exam nextStart = mongoTemplate.findOne(startQuery, Exam.class);
+        if (nextStart != null) {
+            next = Math.min(next, nextStart.getStartTime().getTime());
+        }
+
+        Query endQuery = new Query(Criteria.where("status").in(NOT_ENDED).and("endTime").gt(now))
+                .with(Sort.by(Sort.Direction.ASC, "endTime")).limit(1);
+        endQuery.fields().include("endTime");
+        Exam nextEnd = mongoTemplate.findOne(endQuery, Exam.class);
+        if (nextEnd != null) {
+            next = Math.min(next, nextEnd.getEndTime().getTime());
+        }
+        return next;
     }
 }
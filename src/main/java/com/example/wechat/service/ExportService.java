@@ -0,0 +1,286 @@
+package com.example.wechat.service;
+
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.export.ExportJob;
+import com.example.wechat.export.TableWriter;
+import com.example.wechat.model.*;
+import com.mongodb.DBRef;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 考试记录、答题记录的后台导出。
+ * 导出线程用游标按 _id 顺序读取原始文档（不解析 DBRef），每 500 条用 $in 批量补齐用户名、考试名和题干，
+ * 逐行写成 CSV/XLSX 并直接写入 GridFS 上传流，内存占用与导出的记录数无关。
+ * 导出文件包含全部学生的成绩，在 GridFS 中标记为受限文件，公开的 /files 接口不返回，
+ * 完成后只能通过需要管理员权限的 /exports/{jobId}/download 下载。
+ */
+@Service
+public class ExportService {
+
+    public static final String EXAM_RECORD = "examRecord";
+    public static final String QUESTION_RECORD = "questionRecord";
+
+    private static final int BATCH_SIZE = 500;
+
+    // 名称缓存的最大条目数，超出后淘汰最久未使用的条目
+    private static final int NAME_CACHE_SIZE = 10000;
+
+    private static final int MAX_JOBS = 20;
+
+    private static final List<String> EXAM_RECORD_HEADER = Arrays.asList(
+            "记录ID", "考试ID", "考试名称", "用户ID", "用户名", "分数", "状态", "记录时间");
+
+    private static final List<String> QUESTION_RECORD_HEADER = Arrays.asList(
+            "记录ID", "用户ID", "用户名", "考试ID", "考试名称", "题目ID", "题干", "选择", "是否正确", "答题时间");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private GridFSBucket gridFSBucket;
+
+    // 导出逐个执行，避免多个全量游标同时压在数据库上
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "record-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, ExportJob> jobs = Collections.synchronizedMap(new LinkedHashMap<String, ExportJob>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ExportJob> eldest) {
+            return size() > MAX_JOBS;
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        // 与 GridFsTemplate 使用同一个默认的 fs 桶
+        gridFSBucket = GridFSBuckets.create(mongoTemplate.getDb());
+    }
+
+    /**
+     * 提交一个后台导出任务。
+     *
+     * @param type   examRecord 或 questionRecord
+     * @param format csv 或 xlsx，为空时为 csv
+     * @param examId 只导出该考试的记录，可为空
+     * @param from   只导出该日期（含）之后创建的记录，格式 yyyy-MM-dd，可为空
+     * @param to     只导出该日期（含）之前创建的记录，格式 yyyy-MM-dd，可为空
+     * @return 新建的导出任务
+     * @throws DefaultException 参数不合法时抛出
+     */
+    public ExportJob submit(String type, String format, String examId, String from, String to) {
+        if (!EXAM_RECORD.equals(type) && !QUESTION_RECORD.equals(type)) {
+            throw new DefaultException("不支持的导出类型: " + type);
+        }
+        String fileFormat = format == null || format.isEmpty() ? "csv" : format.toLowerCase(Locale.ROOT);
+        if (!"csv".equals(fileFormat) && !"xlsx".equals(fileFormat)) {
+            throw new DefaultException("不支持的导出格式: " + format);
+        }
+        Document filter = buildFilter(examId, from, to);
+
+        ExportJob job = new ExportJob(new ObjectId().toHexString(), type, fileFormat);
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job, filter));
+        return job;
+    }
+
+    /**
+     * 查询导出任务。
+     *
+     * @param jobId 任务 id
+     * @return 任务，不存在时返回 null
+     */
+    public ExportJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private Document buildFilter(String examId, String from, String to) {
+        Document filter = new Document();
+        if (examId != null && !examId.isEmpty()) {
+            if (!ObjectId.isValid(examId)) {
+                throw new DefaultException("考试ID不合法");
+            }
+            filter.append("exam.$id", new ObjectId(examId));
+        }
+        // 记录没有统一的创建时间字段，按 _id 中的时间戳筛选，可直接使用 _id 索引
+        Document idRange = new Document();
+        if (from != null && !from.isEmpty()) {
+            idRange.append("$gte", new ObjectId(parseDate(from)));
+        }
+        if (to != null && !to.isEmpty()) {
+            idRange.append("$lt", new ObjectId(new Date(parseDate(to).getTime() + 24L * 3600 * 1000)));
+        }
+        if (!idRange.isEmpty()) {
+            filter.append("_id", idRange);
+        }
+        return filter;
+    }
+
+    private static Date parseDate(String value) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setLenient(false);
+        try {
+            return format.parse(value);
+        } catch (ParseException e) {
+            throw new DefaultException("日期格式应为 yyyy-MM-dd");
+        }
+    }
+
+    private void run(ExportJob job, Document filter) {
+        boolean examRecord = EXAM_RECORD.equals(job.getType());
+        String collection = mongoTemplate.getCollectionName(examRecord ? ExamRecord.class : QuestionRecord.class);
+        String fileName = job.getType() + "-" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()) + "." + job.getFormat();
+        String contentType = "xlsx".equals(job.getFormat())
+                ? "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" : "text/csv;charset=UTF-8";
+
+        GridFSUploadStream upload = gridFSBucket.openUploadStream(fileName, new GridFSUploadOptions()
+                .metadata(new Document("fileName", fileName).append("contentType", contentType)
+                        .append(FileService.RESTRICTED, true)));
+        try {
+            job.setTotal(mongoTemplate.getCollection(collection).countDocuments(filter));
+            OutputStream out = new BufferedOutputStream(upload, 64 * 1024);
+            try (TableWriter writer = TableWriter.of(job.getFormat(), out)) {
+                writer.writeRow(examRecord ? EXAM_RECORD_HEADER : QUESTION_RECORD_HEADER);
+                export(job, collection, filter, writer, examRecord);
+            }
+            out.flush();
+            upload.close();
+
+            job.setFileId(upload.getObjectId().toHexString());
+            job.setDownloadPath("/exports/" + job.getId() + "/download");
+            job.setStatus("已完成");
+        } catch (Exception e) {
+            // 删除已上传的分块
+            upload.abort();
+            job.setStatus("失败");
+            job.setMessage(e.getMessage());
+        } finally {
+            job.setEndTime(new Date());
+        }
+    }
+
+    private void export(ExportJob job, String collection, Document filter, TableWriter writer, boolean examRecord) throws IOException {
+        Document projection = examRecord
+                ? new Document("exam", 1).append("user", 1).append("score", 1).append("status", 1)
+                : new Document("exam", 1).append("user", 1).append("question", 1).append("choice", 1).append("TorF", 1).append("time", 1);
+
+        NameCache users = new NameCache(User.class, "username");
+        NameCache exams = new NameCache(Exam.class, "name");
+        NameCache questions = new NameCache(Question.class, "stem");
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        List<Document> batch = new ArrayList<>(BATCH_SIZE);
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(collection).find(filter)
+                .projection(projection).sort(new Document("_id", 1)).batchSize(BATCH_SIZE).iterator()) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() < BATCH_SIZE && cursor.hasNext()) {
+                    continue;
+                }
+
+                // 每批只为缓存中没有的引用各发一次 $in
+                users.load(batch, "user");
+                exams.load(batch, "exam");
+                if (!examRecord) {
+                    questions.load(batch, "question");
+                }
+
+                for (Document record : batch) {
+                    ObjectId id = record.getObjectId("_id");
+                    ObjectId userId = refId(record, "user");
+                    ObjectId examId = refId(record, "exam");
+                    if (examRecord) {
+                        writer.writeRow(Arrays.asList(id.toHexString(), hex(examId), exams.get(examId),
+                                hex(userId), users.get(userId), record.get("score"), record.getString("status"),
+                                timeFormat.format(id.getDate())));
+                    } else {
+                        ObjectId questionId = refId(record, "question");
+                        Object correct = record.get("TorF");
+                        Date time = record.getDate("time");
+                        writer.writeRow(Arrays.asList(id.toHexString(), hex(userId), users.get(userId),
+                                hex(examId), exams.get(examId), hex(questionId), questions.get(questionId),
+                                record.getString("choice"), correct == null ? null : (Boolean.TRUE.equals(correct) ? "是" : "否"),
+                                time == null ? null : timeFormat.format(time)));
+                    }
+                }
+                job.setWritten(job.getWritten() + batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private static ObjectId refId(Document record, String field) {
+        Object ref = record.get(field);
+        return ref instanceof DBRef && ((DBRef) ref).getId() instanceof ObjectId ? (ObjectId) ((DBRef) ref).getId() : null;
+    }
+
+    private static String hex(ObjectId id) {
+        return id == null ? null : id.toHexString();
+    }
+
+    /**
+     * 按 id 缓存某个集合中的一个名称字段，容量有限，按最近使用淘汰。
+     */
+    private class NameCache {
+
+        private final String collection;
+        private final String field;
+        private final Map<ObjectId, String> names = new LinkedHashMap<ObjectId, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, String> eldest) {
+                return size() > NAME_CACHE_SIZE;
+            }
+        };
+
+        NameCache(Class<?> entityClass, String field) {
+            this.collection = mongoTemplate.getCollectionName(entityClass);
+            this.field = field;
+        }
+
+        void load(List<Document> records, String refField) {
+            Set<ObjectId> missing = new HashSet<>();
+            for (Document record : records) {
+                ObjectId id = refId(record, refField);
+                if (id != null && !names.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            if (missing.isEmpty()) {
+                return;
+            }
+            for (Document document : mongoTemplate.getCollection(collection)
+                    .find(new Document("_id", new Document("$in", missing)))
+                    .projection(new Document(field, 1))) {
+                names.put(document.getObjectId("_id"), document.getString(field));
+            }
+            // 已删除的引用记为空，避免反复查询
+            for (ObjectId id : missing) {
+                names.putIfAbsent(id, null);
+            }
+        }
+
+        String get(ObjectId id) {
+            return id == null ? null : names.get(id);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
@@ -10,6 +12,7 @@ import com.example.wechat.model.Disease;
 import com.example.wechat.model.Facility;
 import com.example.wechat.model.User;
 import com.example.wechat.repository.FacilityRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.bson.types.ObjectId;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +20,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -28,7 +32,17 @@ public class FacilityService {
     private FacilityRepository facilityRepository;
 
     @Autowired
-    private FileService fileService;
+    private NameUniqueness nameUniqueness;
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Facility> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Facility.class);
+    }
 
 
 
@@ -41,17 +55,15 @@ public class FacilityService {
      * @throws DefaultException 如果设备名字不合法，则抛出 DefaultException 异常
      */
     public Facility addFacility(Facility facility) throws NameAlreadyExistedException,DefaultException {
-        Optional<Facility> existedFacility = facilityRepository.findFacilityByName(facility.getName());
-
         //对应名字的facility存在则报错
-        if(existedFacility.isPresent()){
+        if(nameUniqueness.exists(Facility.class, facility.getName())){
             throw new NameAlreadyExistedException("名字已存在");
         }
 
         //检查名字的合法性，如果不正确则抛出错误
         NameChecker.nameIsLegal(facility.getName());
 
-        Facility savedFacility = facilityRepository.save(facility);
+        Facility savedFacility = nameUniqueness.save(() -> facilityRepository.save(facility), () -> new NameAlreadyExistedException("名字已存在"));
         return savedFacility;
     }
 
@@ -92,10 +104,8 @@ public class FacilityService {
 
             //如果修改了名字，那么对名字的唯一性进行校验
             if(!facilityEntity.getName().equals(facility.getName())){
-                Optional<Facility> existedFacility = facilityRepository.findFacilityByName(facility.getName());
-
                 //存在一个和当前名字相同的设备，则返回失败
-                if(existedFacility.isPresent()){
+                if(nameUniqueness.exists(Facility.class, facility.getName())){
                     throw new NameAlreadyExistedException("当前设备已存在");
                 }
 
@@ -103,7 +113,7 @@ public class FacilityService {
                 NameChecker.nameIsLegal(facility.getName());
             }
 
-            return Optional.of(facilityRepository.save(facility));
+            return Optional.of(nameUniqueness.save(() -> facilityRepository.save(facility), () -> new NameAlreadyExistedException("当前设备已存在")));
         }
         throw new IdNotFoundException("id不存在");
     }
@@ -130,7 +140,18 @@ public class FacilityService {
      * @return 所有设施的列表
      */
     public List<Facility> findAllFacilities() {
-        return facilityRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有设施。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Facility> findFacilitiesPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
 
@@ -142,7 +163,7 @@ public class FacilityService {
      * @throws IdNotFoundException 如果对应的设施ID不存在，则抛出 IdNotFoundException 异常
      */
     public Optional<Facility> findFacilityById(ObjectId id) throws IdNotFoundException{
-        Optional<Facility> facility = facilityRepository.findById(id);
+        Optional<Facility> facility = catalog.findById(id);
         if(facility.isPresent()) return facility;
         else throw new IdNotFoundException("对应id不存在");
     }
@@ -157,50 +178,15 @@ public class FacilityService {
      * @throws IdNotFoundException 如果找不到对应的设施ID，则抛出IdNotFoundException
      */
     public void updateFacilityPicUrl(ObjectId id, String picUrl) {
-        Optional<Facility> facilityOptional = facilityRepository.findById(id);
-        if (facilityOptional.isPresent()) {
-            Facility facility = facilityOptional.get();
-            facility.setPicUrl(picUrl); // 更新设施的图片URL
-            facilityRepository.save(facility); // 保存更改
-        } else {
-            throw new IdNotFoundException("没有找到对应id"); // 抛出ID未找到异常
-        }
+        catalog.setField(id, "picUrl", picUrl, "没有找到对应id");
     }
 
     public String uploadFile(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        var existing = facilityRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应对象不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        List<String> files = updating.getFiles();
-        files.add(fileId);
-        updating.setFiles(files);
-
-        facilityRepository.save(updating);
-
-        return fileId;
-
+        return catalog.attachFile(file, id, "对应对象不存在，无法更新图片");
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        var existing = facilityRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应实体不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        updating.setAvatar(fileId);
-        facilityRepository.save(updating);
-        return fileId;
-
+        return catalog.attachAvatar(file, id, "对应实体不存在，无法更新图片");
     }
 
 
@@ -0,0 +1,84 @@
+package com.example.wechat.service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 将GridFS文件直接写入响应输出流，不在内存中缓存整个文件。
+ * 支持单段Range请求（206）和If-None-Match（304），多段Range按完整文件返回。
+ * 权限检查由调用方负责。
+ */
+@Component
+public class FileResponseWriter {
+
+    @Autowired
+    private FileService fileService;
+
+    /**
+     * 写出文件。
+     *
+     * @param file            文件元信息
+     * @param dispositionType inline 或 attachment
+     * @param request         当前请求，读取 Range 和 If-None-Match
+     * @param response        当前响应
+     * @throws IOException 读取或写入失败时抛出
+     */
+    public void write(GridFSFile file, String dispositionType, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        long length = file.getLength();
+        // GridFS中的文件写入后不会再修改，id和长度即可唯一标识内容
+        String etag = "\"" + file.getObjectId().toHexString() + "-" + length + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ("*".equals(ifNoneMatch.trim())
+                || Arrays.asList(ifNoneMatch.trim().split("\\s*,\\s*")).contains(etag))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        response.setContentType(fileService.getContentType(file));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder(dispositionType)
+                .filename(file.getFilename(), StandardCharsets.UTF_8).build().toString());
+
+        long start = 0;
+        long count = length;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    HttpRange range = ranges.get(0);
+                    start = range.getRangeStart(length);
+                    // 起始位置不能超出文件末尾，空文件没有可返回的字节
+                    if (length == 0 || start >= length) {
+                        throw new IllegalArgumentException("Range超出文件长度");
+                    }
+                    count = range.getRangeEnd(length) - start + 1;
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + count - 1) + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+        }
+
+        response.setContentLengthLong(count);
+        fileService.copyRange(file, start, count, response.getOutputStream());
+    }
+}
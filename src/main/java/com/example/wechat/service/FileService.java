@@ -1,5 +1,6 @@
 package com.example.wechat.service;
 
+import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.model.File;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
@@ -16,12 +17,20 @@ import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.UUID;
 
 @Service
 public class FileService {
+    // 流式传输时的缓冲区大小，单个请求的内存占用与文件大小无关
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    // 元数据中标记受限文件的字段
+    public static final String RESTRICTED = "restricted";
+
     Logger logger = LoggerFactory.getLogger(FileService.class);
     @Autowired
     private GridFsTemplate gridFsTemplate;
@@ -52,4 +61,64 @@ public class FileService {
         return file;
     }
 
+    /**
+     * 根据id查找GridFS文件的元信息，不读取文件内容。
+     *
+     * @param id 文件id
+     * @return 文件元信息
+     * @throws IdNotFoundException 如果对应文件不存在
+     */
+    public GridFSFile findFileInfo(String id) throws IdNotFoundException {
+        GridFSFile gridFSFile = gridFsTemplate.findOne(new Query(Criteria.where("_id").is(new ObjectId(id))));
+        if (gridFSFile == null) throw new IdNotFoundException("对应文件不存在");
+        return gridFSFile;
+    }
+
+    /**
+     * 文件是否只能通过有权限检查的接口下载（如包含成绩的导出文件），公开的 /files 接口不返回这类文件。
+     */
+    public boolean isRestricted(GridFSFile gridFSFile) {
+        Document fileMetadata = gridFSFile.getMetadata();
+        return fileMetadata != null && Boolean.TRUE.equals(fileMetadata.get(RESTRICTED));
+    }
+
+    public String getContentType(GridFSFile gridFSFile) {
+        Document fileMetadata = gridFSFile.getMetadata();
+        if (fileMetadata == null || fileMetadata.get("contentType") == null) {
+            return "application/octet-stream";
+        }
+        return (String) fileMetadata.get("contentType");
+    }
+
+    /**
+     * 将文件从 start 开始的 length 个字节按块写入输出流。
+     * GridFS 下载流的 skip 会直接跳到目标 chunk，因此拖动进度条时不会读取前面的数据。
+     *
+     * @param gridFSFile 文件元信息
+     * @param start      起始字节
+     * @param length     要写入的字节数
+     * @param out        目标输出流
+     * @throws IOException 读取或写入失败时抛出
+     */
+    public void copyRange(GridFSFile gridFSFile, long start, long length, OutputStream out) throws IOException {
+        try (InputStream inputStream = operations.getResource(gridFSFile).getInputStream()) {
+            long skipped = 0;
+            while (skipped < start) {
+                long n = inputStream.skip(start - skipped);
+                if (n <= 0) throw new EOFException("文件长度不足");
+                skipped += n;
+            }
+
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) break;
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+            out.flush();
+        }
+    }
+
 }
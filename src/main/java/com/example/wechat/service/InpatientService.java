@@ -1,5 +1,7 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
@@ -8,12 +10,14 @@ import com.example.wechat.model.Assay;
 import com.example.wechat.model.Charge;
 import com.example.wechat.model.Inpatient;
 import com.example.wechat.repository.InpatientRepository;
+import com.example.wechat.mongo.KeysetPage;
 import io.swagger.models.auth.In;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -24,7 +28,18 @@ public class InpatientService {
     private InpatientRepository inpatientRepository;
 
     @Autowired
-    private FileService fileService;
+    private NameUniqueness nameUniqueness;
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Inpatient> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Inpatient.class);
+    }
+
     /**
      * 添加一个新的科室信息。
      * @param inpatient 要添加的科室对象
@@ -33,12 +48,11 @@ public class InpatientService {
      * @throws DefaultException            如果科室名不合法，则抛出 DefaultException 异常
      */
     public Inpatient addInpatient(Inpatient inpatient) throws NameAlreadyExistedException, DefaultException {
-        Optional<Inpatient> existedInpatient = inpatientRepository.findInpatientByName(inpatient.getName());
-        if (existedInpatient.isPresent()) {
+        if (nameUniqueness.exists(Inpatient.class, inpatient.getName())) {
             throw new NameAlreadyExistedException("名字已存在");
         }
         NameChecker.nameIsLegal(inpatient.getName());
-        Inpatient savedInpatient = inpatientRepository.save(inpatient);
+        Inpatient savedInpatient = nameUniqueness.save(() -> inpatientRepository.save(inpatient), () -> new NameAlreadyExistedException("名字已存在"));
         return savedInpatient;
     }
     /**
@@ -92,9 +106,8 @@ public class InpatientService {
             Inpatient inpatient_editing = inpatientOriginal.get();
             //如果修改了名字，那么对名字的唯一性进行校验
             if (!inpatient_editing.getName().equals(inpatient.getName())) {
-                Optional<Inpatient> existedInpatient = inpatientRepository.findInpatientByName(inpatient.getName());
                 //存在一个和当前名字相同的病，则返回失败
-                if (existedInpatient.isPresent()) {
+                if (nameUniqueness.exists(Inpatient.class, inpatient.getName())) {
                     throw new NameAlreadyExistedException("科室名字已存在,更改失败");
                 }
                 //检查名字的合法性，如果不正确则抛出错误
@@ -102,7 +115,7 @@ public class InpatientService {
             }
             inpatient_editing.setName(inpatient.getName());
             inpatient_editing.setInfo(inpatient.getInfo());
-            return Optional.of(inpatientRepository.save(inpatient_editing));
+            return Optional.of(nameUniqueness.save(() -> inpatientRepository.save(inpatient_editing), () -> new NameAlreadyExistedException("科室名字已存在,更改失败")));
         }
         throw new IdNotFoundException("id不存在,无法更新科室");
     }
@@ -111,48 +124,31 @@ public class InpatientService {
      * @return 所有科室的列表
      */
     public List<Inpatient> findAllInpatients() {
-        return inpatientRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有住院信息。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Inpatient> findInpatientsPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
     public Optional<Inpatient> findChargeById(String id){
-        Optional<Inpatient> existing = inpatientRepository.findById(new ObjectId(id));
+        Optional<Inpatient> existing = catalog.findById(new ObjectId(id));
         if(!existing.isPresent()) throw new IdNotFoundException("对应收据不存在");
         else return existing;
     }
 
     public String uploadFile(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        Optional<Inpatient> existing = inpatientRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应assay不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        List<String> files = updating.getFiles();
-        files.add(fileId);
-        updating.setFiles(files);
-
-        inpatientRepository.save(updating);
-
-        return fileId;
-
+        return catalog.attachFile(file, id, "对应assay不存在，无法更新图片");
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        Optional<Inpatient> existing = inpatientRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应assay不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        updating.setAvatar(fileId);
-        inpatientRepository.save(updating);
-        return fileId;
-
+        return catalog.attachAvatar(file, id, "对应assay不存在，无法更新图片");
     }
 }
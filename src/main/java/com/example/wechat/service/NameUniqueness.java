@@ -0,0 +1,285 @@
+package com.example.wechat.service;
+
+import com.example.wechat.mongo.IndexRegistry;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 名称唯一性校验。
+ * 添加、修改时只需知道名字是否已被占用，用 exists 查询 name 索引即可，不必取回整个文档。
+ * 每个集合前面有两层缓存：
+ * 布隆过滤器记录集合中所有名字，判定"不存在"时直接返回，不查库（新名字是绝大多数情况）；
+ * 少量最近确认存在的名字直接返回"存在"。
+ * 本实例的保存、删除通过 NameUniquenessListener 实时同步；其他实例的修改在下次重建
+ * （name.cache.refresh-ms）后才进入布隆过滤器，因此"不存在"的判定只在 name 上的唯一索引生效时才直接采用，
+ * 这段时间内的重名由唯一索引在写入时拦截，调用方通过 save 把 DuplicateKeyException 转换为原来的重名异常；
+ * 唯一索引没有建立的集合（见 IndexRegistry）每次都查库。
+ */
+@Component
+public class NameUniqueness {
+
+    private static final String FIELD = "name";
+
+    // 每个集合最多缓存的"存在"名字数
+    private static final int POSITIVE_CACHE_SIZE = 256;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private IndexRegistry indexRegistry;
+
+    @Value("${name.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${name.cache.refresh-ms:30000}")
+    private long refreshMs;
+
+    // 集合名 -> 缓存，首次校验时创建
+    private final Map<String, NameCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * 判断名字是否已被该集合中的某个文档使用。
+     *
+     * @param entityClass 实体类
+     * @param name        名字
+     * @return 已被使用时返回 true
+     */
+    public boolean exists(Class<?> entityClass, String name) {
+        if (name == null) {
+            return false;
+        }
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        if (!enabled) {
+            return queryExists(collection, name);
+        }
+        NameCache cache = caches.computeIfAbsent(collection, NameCache::new);
+        Boolean cached = cache.lookup(name, indexRegistry.hasUniqueIndex(entityClass, FIELD));
+        if (cached != null) {
+            return cached;
+        }
+        boolean exists = queryExists(collection, name);
+        if (exists) {
+            cache.markExists(name);
+        }
+        return exists;
+    }
+
+    /**
+     * 执行保存，name 上的唯一索引拒绝写入时抛出调用方给出的重名异常。
+     * 布隆过滤器尚未纳入其他实例新保存的名字时，exists 会放行重名，由这里兜底。
+     *
+     * @param save      保存操作
+     * @param duplicate 重名时抛出的异常
+     * @return 保存操作的返回值
+     */
+    public <T> T save(Supplier<T> save, Supplier<? extends RuntimeException> duplicate) {
+        try {
+            return save.get();
+        } catch (DuplicateKeyException e) {
+            throw duplicate.get();
+        }
+    }
+
+    /**
+     * 本实例保存了文档后调用。
+     */
+    void onSaved(String collection, Document document) {
+        NameCache cache = caches.get(collection);
+        Object name = document == null ? null : document.get(FIELD);
+        if (cache != null && name instanceof String) {
+            cache.onSaved((String) name);
+        }
+    }
+
+    /**
+     * 本实例删除了文档后调用。
+     */
+    void onDeleted(String collection) {
+        NameCache cache = caches.get(collection);
+        if (cache != null) {
+            cache.onDeleted();
+        }
+    }
+
+    /**
+     * 定期从数据库重建布隆过滤器，纳入其他实例的修改并去掉已删除的名字。
+     */
+    @Scheduled(fixedDelayString = "${name.cache.refresh-ms:30000}")
+    public void refresh() {
+        for (NameCache cache : caches.values()) {
+            cache.rebuild();
+        }
+    }
+
+    private boolean queryExists(String collection, String name) {
+        return mongoTemplate.exists(new Query(Criteria.where(FIELD).is(name)), collection);
+    }
+
+    private class NameCache {
+
+        private final String collection;
+
+        // 以下字段在 this 上同步
+        private BloomFilter bloom;
+        private long builtAt;
+        // 重建期间保存的名字，重建完成后补入新的过滤器
+        private List<String> addedDuringRebuild;
+        private final LinkedHashMap<String, Long> positive = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > POSITIVE_CACHE_SIZE;
+            }
+        };
+
+        NameCache(String collection) {
+            this.collection = collection;
+        }
+
+        // 返回 true / false 表示缓存可以确定，null 表示需要查库；trustAbsent 为 false 时"不存在"也要查库
+        Boolean lookup(String name, boolean trustAbsent) {
+            long now = System.currentTimeMillis();
+            long ttl = refreshMs;
+            synchronized (this) {
+                Long confirmedAt = positive.get(name);
+                if (confirmedAt != null && now - confirmedAt < ttl) {
+                    return Boolean.TRUE;
+                }
+            }
+            if (!trustAbsent) {
+                return null;
+            }
+            BloomFilter current = currentBloom(now, ttl);
+            // 其他线程正在首次建立过滤器时为 null
+            return current == null || current.mightContain(name) ? null : Boolean.FALSE;
+        }
+
+        synchronized void markExists(String name) {
+            positive.put(name, System.currentTimeMillis());
+        }
+
+        synchronized void onSaved(String name) {
+            // 改名时旧名字可能仍在"存在"缓存中
+            positive.clear();
+            if (bloom != null) {
+                bloom.put(name);
+            }
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(name);
+            }
+        }
+
+        synchronized void onDeleted() {
+            // 删除事件中没有名字；布隆过滤器中残留的名字只会多查一次库，下次重建时去掉
+            positive.clear();
+        }
+
+        private BloomFilter currentBloom(long now, long ttl) {
+            synchronized (this) {
+                if (bloom != null && now - builtAt < ttl * 2) {
+                    return bloom;
+                }
+            }
+            // 尚未建立，或定时重建长时间没有执行；其他线程正在重建时立即返回，不等待
+            rebuild();
+            synchronized (this) {
+                return bloom;
+            }
+        }
+
+        void rebuild() {
+            synchronized (this) {
+                if (addedDuringRebuild != null) {
+                    return;
+                }
+                addedDuringRebuild = new ArrayList<>();
+            }
+            BloomFilter fresh = null;
+            try {
+                List<String> names = new ArrayList<>();
+                Query query = new Query();
+                query.fields().include(FIELD).exclude("_id");
+                for (Document document : mongoTemplate.find(query, Document.class, collection)) {
+                    Object name = document.get(FIELD);
+                    if (name instanceof String) {
+                        names.add((String) name);
+                    }
+                }
+                fresh = new BloomFilter(names.size() * 2);
+                for (String name : names) {
+                    fresh.put(name);
+                }
+            } finally {
+                synchronized (this) {
+                    if (fresh != null) {
+                        for (String name : addedDuringRebuild) {
+                            fresh.put(name);
+                        }
+                        bloom = fresh;
+                        builtAt = System.currentTimeMillis();
+                    }
+                    addedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 误判率约 1% 的布隆过滤器，容量不足时误判率升高，但不会漏判。
+     */
+    private static class BloomFilter {
+
+        private static final int HASHES = 7;
+
+        private final long[] bits;
+        private final int size;
+
+        BloomFilter(int expected) {
+            // 每个元素约 10 位
+            this.size = Math.max(1024, expected * 10);
+            this.bits = new long[(size + 63) / 64];
+        }
+
+        void put(String value) {
+            int h1 = value.hashCode();
+            int h2 = fnv(value);
+            for (int i = 0; i < HASHES; i++) {
+                int index = Math.floorMod(h1 + i * h2, size);
+                bits[index >>> 6] |= 1L << index;
+            }
+        }
+
+        boolean mightContain(String value) {
+            int h1 = value.hashCode();
+            int h2 = fnv(value);
+            for (int i = 0; i < HASHES; i++) {
+                int index = Math.floorMod(h1 + i * h2, size);
+                if ((bits[index >>> 6] & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int fnv(String value) {
+            int hash = 0x811c9dc5;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x01000193;
+            }
+            // 保证为奇数，各次探测的位置互不相同
+            return hash | 1;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.wechat.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文档保存或删除时同步更新 NameUniqueness 的缓存。
+ */
+@Component
+public class NameUniquenessListener extends AbstractMongoEventListener<Object> {
+
+    @Autowired
+    private NameUniqueness nameUniqueness;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        nameUniqueness.onSaved(event.getCollectionName(), event.getDocument());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        nameUniqueness.onDeleted(event.getCollectionName());
+    }
+}
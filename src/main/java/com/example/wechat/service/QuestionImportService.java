@@ -0,0 +1,345 @@
+package com.example.wechat.service;
+
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.importer.ImportJob;
+import com.example.wechat.importer.ImportedQuestion;
+import com.example.wechat.importer.QuestionParser;
+import com.example.wechat.importer.QuestionSink;
+import com.example.wechat.model.Category;
+import com.example.wechat.model.Question;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 题库批量导入。
+ * 上传的文件先落到临时文件，再由单独的导入线程边解析边写入：
+ * 题干先规范化（去掉首尾空白、连续空白合并为一个空格）并按规范化后的形式保存，
+ * 文件内按它的 64 位哈希去重，每 1000 道题用一次 $in 按同一形式排除题库中已有的题干，
+ * 再以一次无序批量插入写入；类别按名称缓存，每个类别只查询/创建一次。
+ * 早于规范化写入的旧题目只有题干与规范化形式一致时才能被识别为重复。
+ * 导入进度和逐行错误记录在 ImportJob 中，可通过任务 id 查询。
+ */
+@Service
+public class QuestionImportService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // 最多保留的任务数，超出后丢弃最早的任务
+    private static final int MAX_JOBS = 20;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // 导入逐个执行，避免多个大文件同时占满数据库写入
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "question-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, ImportJob> jobs = Collections.synchronizedMap(new LinkedHashMap<String, ImportJob>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImportJob> eldest) {
+            return size() > MAX_JOBS;
+        }
+    });
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(Question.class).ensureIndex(new Index().on("stem", Sort.Direction.ASC));
+    }
+
+    /**
+     * 提交一个后台导入任务。
+     *
+     * @param file   上传的题库文件
+     * @param format 文件格式 text/csv/json，为空时按扩展名判断
+     * @return 新建的导入任务
+     * @throws IOException 保存临时文件失败时抛出
+     */
+    public ImportJob submit(MultipartFile file, String format) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new DefaultException("文件不能为空");
+        }
+        // 请求结束后上传的临时文件会被清理，先转存一份
+        Path temp = Files.createTempFile("question-import-", ".tmp");
+        file.transferTo(temp);
+
+        ImportJob job = new ImportJob(new ObjectId().toHexString(), file.getOriginalFilename(), file.getSize());
+        QuestionParser parser = QuestionParser.of(format, file.getOriginalFilename());
+        jobs.put(job.getId(), job);
+        executor.execute(() -> {
+            try (InputStream in = Files.newInputStream(temp)) {
+                run(job, parser, in);
+            } catch (Exception e) {
+                job.setStatus("失败");
+                job.setMessage(e.getMessage());
+                job.setEndTime(new Date());
+            } finally {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // 临时目录会由系统清理
+                }
+            }
+        });
+        return job;
+    }
+
+    /**
+     * 在当前线程中导入，供内置题库等小数据量场景使用。
+     *
+     * @param parser 解析器
+     * @param in     输入流
+     * @param name   数据来源名称
+     * @return 导入结果
+     * @throws IOException 读取失败时抛出
+     */
+    public ImportJob importNow(QuestionParser parser, InputStream in, String name) throws IOException {
+        ImportJob job = new ImportJob(new ObjectId().toHexString(), name, 0);
+        run(job, parser, in);
+        return job;
+    }
+
+    /**
+     * 查询导入任务。
+     *
+     * @param jobId 任务 id
+     * @return 任务，不存在时返回 null
+     */
+    public ImportJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private void run(ImportJob job, QuestionParser parser, InputStream in) throws IOException {
+        BatchWriter writer = new BatchWriter(job);
+        parser.parse(new CountingInputStream(in, job), writer);
+        writer.flush();
+        job.setStatus("已完成");
+        job.setEndTime(new Date());
+    }
+
+    /**
+     * 接收解析结果，校验、去重后按批写入。只在导入线程中使用。
+     */
+    private class BatchWriter implements QuestionSink {
+
+        private final ImportJob job;
+        private final Map<String, Category> categories = new HashMap<>();
+        private final Set<Long> seenStems = new HashSet<>();
+        private final List<Question> batch = new ArrayList<>(BATCH_SIZE);
+        private final List<Integer> batchLines = new ArrayList<>(BATCH_SIZE);
+
+        BatchWriter(ImportJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void accept(ImportedQuestion imported) {
+            String invalid = validate(imported);
+            if (invalid != null) {
+                error(imported.getLine(), invalid);
+                return;
+            }
+            job.setParsed(job.getParsed() + 1);
+            String stem = normalizeStem(imported.getStem());
+            if (!seenStems.add(stemHash(stem))) {
+                job.setDuplicates(job.getDuplicates() + 1);
+                return;
+            }
+
+            Question question = new Question();
+            question.setStem(stem);
+            question.setOptionList(imported.getOptionList());
+            question.setAnswer(imported.getAnswer().trim());
+            question.setScore(imported.getScore());
+            question.setCategory(category(imported.getCategory()));
+            question.setVisible(true);
+            batch.add(question);
+            batchLines.add(imported.getLine());
+            if (batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void error(int line, String message) {
+            job.addError(line, message);
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            // 排除题库中已有的题干，batch 中的题干已规范化
+            Set<String> stems = new HashSet<>();
+            for (Question question : batch) {
+                stems.add(question.getStem());
+            }
+            Query query = new Query(Criteria.where("stem").in(stems));
+            query.fields().include("stem");
+            Set<String> existing = new HashSet<>();
+            for (Document document : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Question.class))) {
+                existing.add(document.getString("stem"));
+            }
+
+            List<Question> toInsert = new ArrayList<>(batch.size());
+            List<Integer> lines = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (existing.contains(batch.get(i).getStem())) {
+                    job.setDuplicates(job.getDuplicates() + 1);
+                } else {
+                    toInsert.add(batch.get(i));
+                    lines.add(batchLines.get(i));
+                }
+            }
+            batch.clear();
+            batchLines.clear();
+            if (toInsert.isEmpty()) {
+                return;
+            }
+
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Question.class).insert(toInsert).execute();
+                job.setInserted(job.getInserted() + toInsert.size());
+            } catch (BulkOperationException e) {
+                // 无序写入时其余文档仍会写入，只把失败的条目记为错误
+                job.setInserted(job.getInserted() + e.getResult().getInsertedCount());
+                for (BulkWriteError writeError : e.getErrors()) {
+                    error(lines.get(writeError.getIndex()), "写入失败: " + writeError.getMessage());
+                }
+            }
+        }
+
+        private Category category(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                return null;
+            }
+            return categories.computeIfAbsent(name.trim(), categoryName -> {
+                Query query = new Query(Criteria.where("name").is(categoryName));
+                query.fields().include("_id");
+                Category category = mongoTemplate.findOne(query, Category.class);
+                if (category == null) {
+                    category = mongoTemplate.insert(new Category(categoryName));
+                }
+                // 只保留 id，写入时转换为 DBRef
+                Category reference = new Category(categoryName);
+                reference.setId(category.getId());
+                return reference;
+            });
+        }
+    }
+
+    private static String validate(ImportedQuestion question) {
+        if (question.getStem() == null || question.getStem().trim().isEmpty()) {
+            return "缺少题干";
+        }
+        List<String> options = question.getOptionList();
+        if (options == null || options.size() < 2) {
+            return "选项至少需要两个";
+        }
+        String answer = question.getAnswer() == null ? "" : question.getAnswer().trim();
+        if (answer.isEmpty()) {
+            return "缺少答案";
+        }
+        for (int i = 0; i < answer.length(); i++) {
+            char c = Character.toUpperCase(answer.charAt(i));
+            if (c < 'A' || c >= 'A' + options.size()) {
+                return "答案超出选项范围: " + answer;
+            }
+        }
+        if (question.getScore() == null || question.getScore() < 0) {
+            return "缺少分值或分值不合法";
+        }
+        return null;
+    }
+
+    /**
+     * 题干的规范化形式：去掉首尾空白，内部连续的空白（含换行、全角空格）合并为一个半角空格。
+     * 文件内去重和与题库比对都使用这一形式，导入的题干也按这一形式保存。
+     *
+     * @param stem 原始题干
+     * @return 规范化后的题干
+     */
+    static String normalizeStem(String stem) {
+        StringBuilder builder = new StringBuilder(stem.length());
+        boolean space = false;
+        for (int i = 0; i < stem.length(); i++) {
+            char c = stem.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = builder.length() > 0;
+            } else {
+                if (space) {
+                    builder.append(' ');
+                    space = false;
+                }
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    // 规范化后题干的 64 位 FNV-1a 哈希，用于文件内去重
+    private static long stemHash(String stem) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < stem.length(); i++) {
+            hash ^= stem.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 统计已读取的字节数，用于计算导入进度。
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final ImportJob job;
+        private long count;
+
+        CountingInputStream(InputStream in, ImportJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                job.setBytesRead(++count);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+                job.setBytesRead(count);
+            }
+            return n;
+        }
+    }
+}
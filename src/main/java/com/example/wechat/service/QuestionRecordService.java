@@ -1,9 +1,13 @@
 package com.example.wechat.service;
 
 import com.example.wechat.model.QuestionRecord;
+import com.example.wechat.mongo.DbRefBatchReader;
 import com.example.wechat.repository.QuestionRecordRepository;
+import com.example.wechat.mongo.KeysetPage;
+import com.example.wechat.mongo.KeysetPager;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,12 +18,29 @@ public class QuestionRecordService {
     @Autowired
     private QuestionRecordRepository questionRecordRepository;
 
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private DbRefBatchReader dbRefBatchReader;
+
     public List<QuestionRecord> findQuestionRecordsByUserId(String userId) {
         return questionRecordRepository.findByUserId(new ObjectId(userId));
     }
 
     public List<QuestionRecord> findAllQuestionRecords() {
-        return questionRecordRepository.findAll();
+        return dbRefBatchReader.find(new Query(), QuestionRecord.class);
+    }
+
+    /**
+     * 按 _id 分页查找所有问题记录。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<QuestionRecord> findQuestionRecordsPage(String after, Integer limit) {
+        return keysetPager.page(null, QuestionRecord.class, after, limit);
     }
 
 
@@ -0,0 +1,209 @@
+package com.example.wechat.service;
+
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.model.Question;
+import com.example.wechat.mongo.DbRefBatchReader;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/**
+ * 题目随机抽样。
+ * 抽样在数据库中用 $match + $sample 完成，借助 visible/category/score 索引只把抽中的 n 道题传回应用，
+ * 不再读出整个题库后在内存中 shuffle。
+ * 组卷时先按 (类别, 分值) 统计各层的可用题数，在应用内按类别均分、按分值权重分配名额，
+ * 再对每个有名额的层各做一次 $match + $sample。$facet 的子管道用不上索引，因此不把各层合并到一次 $facet 中。
+ */
+@Service
+public class QuestionSampler {
+
+    // 单次最多抽取的题数，限制一次传回应用的题目数量
+    public static final int MAX_SAMPLE_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DbRefBatchReader dbRefBatchReader;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(Question.class).ensureIndex(new Index()
+                .on("visible", Sort.Direction.ASC)
+                .on("category.$id", Sort.Direction.ASC)
+                .on("score", Sort.Direction.ASC));
+    }
+
+    /**
+     * 从可见题目中随机抽取 n 道题。
+     *
+     * @param n          题数
+     * @param categoryId 类别 id，为 null 时从全部可见题目中抽取
+     * @return 抽中的题目，题库不足 n 道时返回全部可见题目
+     */
+    public List<Question> sample(int n, ObjectId categoryId) {
+        checkSize(n);
+        Document match = new Document("visible", true);
+        if (categoryId != null) {
+            match.append("category.$id", categoryId);
+        }
+        List<Document> documents = aggregate(stage("$match", match), stage("$sample", new Document("size", n)));
+        return dbRefBatchReader.read(documents, Question.class);
+    }
+
+    /**
+     * 分层抽样组卷：各类别名额尽量相等，类别内按分值权重分配，某一层题目不足时名额顺延给其他层。
+     *
+     * @param n            题目总数
+     * @param categoryIds  参与组卷的类别，为空时使用全部含可见题目的类别
+     * @param scoreWeights 分值权重（分值 -> 占比），为空时按各类别题库中的实际分值分布抽取
+     * @return 打乱顺序后的题目，可用题目不足 n 道时返回全部可用题目
+     */
+    public List<Question> samplePaper(int n, List<ObjectId> categoryIds, Map<Integer, Double> scoreWeights) {
+        checkSize(n);
+        List<Stratum> strata = countStrata(categoryIds);
+        allocate(n, strata, scoreWeights);
+
+        // 每层的条件与索引的三个字段完全对应，$sample 只在该层的题目中进行
+        List<Document> documents = new ArrayList<>(n);
+        for (Stratum stratum : strata) {
+            if (stratum.quota == 0) {
+                continue;
+            }
+            Document match = new Document("visible", true)
+                    .append("category.$id", stratum.categoryId)
+                    .append("score", stratum.score);
+            documents.addAll(aggregate(stage("$match", match), stage("$sample", new Document("size", stratum.quota))));
+        }
+        // 各层的题目是连续的，打乱后再返回
+        Collections.shuffle(documents);
+        return dbRefBatchReader.read(documents, Question.class);
+    }
+
+    private void checkSize(int n) {
+        if (n <= 0) {
+            throw new DefaultException("非法的参数");
+        }
+        if (n > MAX_SAMPLE_SIZE) {
+            throw new DefaultException("单次最多抽取" + MAX_SAMPLE_SIZE + "道题");
+        }
+    }
+
+    // 统计每个 (类别, 分值) 层的可见题目数量
+    private List<Stratum> countStrata(List<ObjectId> categoryIds) {
+        Document match = new Document("visible", true);
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            match.append("category.$id", new Document("$in", categoryIds));
+        }
+        Document group = new Document("_id", new Document("c", "$category.$id").append("s", "$score"))
+                .append("count", new Document("$sum", 1));
+
+        List<Stratum> strata = new ArrayList<>();
+        for (Document document : aggregate(stage("$match", match), stage("$group", group))) {
+            Document key = document.get("_id", Document.class);
+            Object score = key.get("s");
+            strata.add(new Stratum(key.get("c"), score instanceof Number ? ((Number) score).intValue() : null,
+                    ((Number) document.get("count")).intValue()));
+        }
+        return strata;
+    }
+
+    /**
+     * 计算每层的抽取名额。
+     * 每层权重 = 类别权重（各类别相等）× 该层在类别内的分值占比；
+     * 按权重取整分配后，余数按小数部分从大到小补齐，达到可用数量的层退出，剩余名额在其他层中重新分配。
+     */
+    static void allocate(int n, List<Stratum> strata, Map<Integer, Double> scoreWeights) {
+        boolean weighted = scoreWeights != null && !scoreWeights.isEmpty();
+
+        // 类别内各层的原始权重之和，用于归一化
+        Map<Object, Double> categoryTotals = new HashMap<>();
+        for (Stratum stratum : strata) {
+            stratum.weight = weighted ? scoreWeight(scoreWeights, stratum.score) : stratum.available;
+            categoryTotals.merge(stratum.categoryId, stratum.weight, Double::sum);
+        }
+        for (Stratum stratum : strata) {
+            double total = categoryTotals.get(stratum.categoryId);
+            stratum.weight = total > 0 ? stratum.weight / total : 0;
+        }
+
+        int remaining = n;
+        while (remaining > 0) {
+            List<Stratum> active = new ArrayList<>();
+            double totalWeight = 0;
+            for (Stratum stratum : strata) {
+                if (stratum.weight > 0 && stratum.quota < stratum.available) {
+                    active.add(stratum);
+                    totalWeight += stratum.weight;
+                }
+            }
+            if (active.isEmpty()) {
+                break;
+            }
+
+            int given = 0;
+            Map<Stratum, Double> fractions = new HashMap<>();
+            for (Stratum stratum : active) {
+                double share = remaining * stratum.weight / totalWeight;
+                int count = Math.min((int) share, stratum.available - stratum.quota);
+                stratum.quota += count;
+                given += count;
+                if (stratum.quota < stratum.available) {
+                    fractions.put(stratum, share - (int) share);
+                }
+            }
+
+            List<Stratum> byFraction = new ArrayList<>(fractions.keySet());
+            byFraction.sort((a, b) -> Double.compare(fractions.get(b), fractions.get(a)));
+            for (Stratum stratum : byFraction) {
+                if (given >= remaining) {
+                    break;
+                }
+                stratum.quota++;
+                given++;
+            }
+            remaining -= given;
+        }
+    }
+
+    private static double scoreWeight(Map<Integer, Double> scoreWeights, Integer score) {
+        Double weight = score == null ? null : scoreWeights.get(score);
+        return weight == null || weight < 0 ? 0 : weight;
+    }
+
+    private List<Document> aggregate(AggregationOperation... operations) {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(operations),
+                mongoTemplate.getCollectionName(Question.class), Document.class).getMappedResults();
+    }
+
+    // 直接写出原始阶段，category.$id 等字段名不经过实体映射
+    private static AggregationOperation stage(String operator, Document body) {
+        return context -> new Document(operator, body);
+    }
+
+    /**
+     * 一个抽样层：某一类别下某一分值的可见题目。
+     */
+    static class Stratum {
+        final Object categoryId;
+        final Integer score;
+        final int available;
+        double weight;
+        int quota;
+
+        Stratum(Object categoryId, Integer score, int available) {
+            this.categoryId = categoryId;
+            this.score = score;
+            this.available = available;
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.wechat.service;
 
 import com.example.wechat.exception.DefaultException;
+import com.example.wechat.importer.TextQuestionParser;
 import com.example.wechat.model.*;
 import com.example.wechat.repository.*;
+import com.example.wechat.mongo.KeysetPage;
+import com.example.wechat.mongo.KeysetPager;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class QuestionService {
@@ -16,6 +23,9 @@ public class QuestionService {
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private KeysetPager keysetPager;
+
     @Autowired
     private CategoryRepository categoryRepository;
 
@@ -24,13 +34,13 @@ public class QuestionService {
     private QuestionRecordRepository questionRecordRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ExamGradingService examGradingService;
 
     @Autowired
-    private ExamRepository examRepository;
+    private QuestionSampler questionSampler;
 
     @Autowired
-    private ExamRecordRepository examRecordRepository;
+    private QuestionImportService questionImportService;
 
     public Question addQuestion(Question question) {
         question.setVisible(true);
@@ -64,10 +74,32 @@ public class QuestionService {
         return questionRepository.findAll();
     }
 
+    /**
+     * 按 _id 分页查找所有问题。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Question> findQuestionsPage(String after, Integer limit) {
+        return keysetPager.page(null, Question.class, after, limit);
+    }
+
     public List<Question> findAllVisibleQuestions() {
         return questionRepository.findAllVisibleQuestions();
     }
 
+    /**
+     * 按 _id 分页查找所有可见问题。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Question> findVisibleQuestionsPage(String after, Integer limit) {
+        return keysetPager.page(Criteria.where("visible").is(true), Question.class, after, limit);
+    }
+
 
     public List<Question> findQuestionsByCategoryId(ObjectId categoryId) {
         return questionRepository.findByCategoryId(categoryId);
@@ -109,85 +141,49 @@ public class QuestionService {
         return questionRepository.findByStemLikeAndVisible(regex);
     }
 
+    /**
+     * 随机抽取 n 道可见题目，抽样在数据库中完成。
+     *
+     * @param n             题数
+     * @param categoryIdStr 类别 id，为空时从全部可见题目中抽取
+     * @return 抽中的题目
+     */
     public List<Question> getRandomQuestions(Integer n, String categoryIdStr) {
-        List<Question> questions;
-        if (categoryIdStr != null && !categoryIdStr.isEmpty()) {
-            ObjectId categoryId = new ObjectId(categoryIdStr);
-            questions = findVisibleQuestionsByCategoryId(categoryId);
-        } else {
-            questions = findAllVisibleQuestions();
-        }
-        if(n<=0){
+        if (n == null) {
             throw new DefaultException("非法的参数");
         }
-        // 打乱问题列表并取前n个
-        Collections.shuffle(questions);
-        return questions.stream().limit(n).collect(Collectors.toList());
-    }
-
-
-    public void checkQuestionAnswers(List<String> answerList, List<Question> questionList, String examId, String userId) {
-        Optional<User> userOpt = userRepository.findById(new ObjectId(userId));
-        Optional<Exam> examOpt = examRepository.findById(new ObjectId(examId));
-
-        if (!userOpt.isPresent() || !examOpt.isPresent()) {
-            // 这里可以抛出一个自定义的异常或者处理用户和考试不存在的情况
-            throw new DefaultException("考试不存在");
-        }
-
-        User user = userOpt.get();
-        Exam exam = examOpt.get();
-
-        // 尝试找到现有的ExamRecord
-
-        Optional<ExamRecord> existingRecordOpt = examRecordRepository.findByUserAndExam(user.getId(), exam.getId());
-
-        ExamRecord examRecord;
-        if (existingRecordOpt.isPresent()) {
-            examRecord = existingRecordOpt.get();
-        } else {
-            examRecord = new ExamRecord();
-            examRecord.setExam(exam);
-            examRecord.setUser(user);
-            examRecord.setScore(0); // 初始化得分为0
-            examRecord.setStatus("未完成");
-        }
-        if(examRecord.getStatus().equals("已完成")){
-            throw new DefaultException("你已经进行过此考试");
+        ObjectId categoryId = null;
+        if (categoryIdStr != null && !categoryIdStr.isEmpty()) {
+            categoryId = new ObjectId(categoryIdStr);
         }
+        return questionSampler.sample(n, categoryId);
+    }
 
-        if(!exam.getStatus().equals("进行中")){
-            throw new DefaultException("该考试不在进行中");
+    /**
+     * 按类别分层、按分值权重随机组卷。
+     *
+     * @param n              题目总数
+     * @param categoryIdStrs 参与组卷的类别 id，为空时使用全部类别
+     * @param scoreWeights   分值权重，为空时按题库中的实际分值分布抽取
+     * @return 抽中的题目
+     */
+    public List<Question> getRandomPaper(Integer n, List<String> categoryIdStrs, Map<Integer, Double> scoreWeights) {
+        if (n == null) {
+            throw new DefaultException("非法的参数");
         }
-
-        double totalScoreEarned = 0;
-        int totalExamScore = exam.getScore();
-
-        for (int i = 0; i < questionList.size(); i++) {
-            Question question = questionList.get(i);
-            String providedAnswer = answerList.get(i);
-
-            QuestionRecord record = new QuestionRecord();
-            record.setQuestion(question);
-            record.setChoice(providedAnswer);
-            record.setTorF(question.getAnswer().equals(providedAnswer));
-            record.setUser(user); // 使用查询得到的User实例
-            record.setExam(exam); // 使用查询得到的Exam实例
-            record.setTime(new Date());
-            questionRecordRepository.save(record);
-
-            // 更新得分
-            if (record.getTorF()) {
-                double questionScoreRatio = (double)question.getScore() / totalExamScore;
-                double scoreForThisQuestion = questionScoreRatio * exam.getScore();
-                totalScoreEarned += scoreForThisQuestion;
+        List<ObjectId> categoryIds = new ArrayList<>();
+        if (categoryIdStrs != null) {
+            for (String categoryIdStr : categoryIdStrs) {
+                categoryIds.add(new ObjectId(categoryIdStr));
             }
         }
+        return questionSampler.samplePaper(n, categoryIds, scoreWeights);
+    }
+
 
-        // 更新或设置ExamRecord的得分
-        examRecord.setScore((int)Math.round(totalScoreEarned));
-        examRecord.setStatus("已完成");
-        examRecordRepository.save(examRecord);
+    public void checkQuestionAnswers(List<String> answerList, List<Question> questionList, String examId, String userId) {
+        // 整张答卷在内存中评分，记录通过批量写入保存
+        examGradingService.grade(answerList, questionList, examId, userId);
     }
 
     public void importQuestions() {
@@ -445,45 +441,11 @@ public class QuestionService {
 分值: 5
                 """;
 
-        List<String> parts = Arrays.asList(rawData.trim().split("\n\n\n\n"));
-        Category currentCategory = null;
-        for (String part : parts) {
-            // 处理类别
-            String[] categoryAndQuestions = part.split("\n\n", 2);
-            if (categoryAndQuestions.length > 0) {
-                String categoryName = categoryAndQuestions[0];
-                currentCategory = findOrCreateCategory(categoryName.trim());
-            }
-            if (categoryAndQuestions.length < 2) continue; // 没有题目跳过
-            List<String> questions = Arrays.asList(categoryAndQuestions[1].split("\n\n"));
-            for (String questionData : questions) {
-                processQuestionData(questionData, currentCategory);
-            }
+        try {
+            questionImportService.importNow(new TextQuestionParser(),
+                    new ByteArrayInputStream(rawData.getBytes(StandardCharsets.UTF_8)), "内置题库");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
-
-    private void processQuestionData(String questionData, Category category) {
-        String[] lines = questionData.split("\n");
-        Question question = new Question();
-        question.setStem(lines[0].substring(lines[0].indexOf(": ") + 2));
-        question.setOptionList(Arrays.asList(lines[1].substring(lines[1].indexOf(": ") + 2).replaceAll("\\[|\\]", "").split(", ")));
-        question.setAnswer(lines[2].substring(lines[2].indexOf(": ") + 2));
-        question.setScore(Integer.parseInt(lines[3].substring(lines[3].indexOf(": ") + 2)));
-        question.setCategory(category);
-        question.setVisible(true);
-
-        questionRepository.save(question);
-    }
-
-    private Category findOrCreateCategory(String categoryName) {
-        return categoryRepository.findByName(categoryName)
-                .orElseGet(() -> {
-                    Category newCategory = new Category();
-                    newCategory.setName(categoryName);
-                    return categoryRepository.save(newCategory);
-                });
-    }
-
-
-
 }
@@ -1,15 +1,19 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
 import com.example.wechat.format.NameChecker;
 import com.example.wechat.model.Record;
 import com.example.wechat.repository.RecordRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +21,20 @@ import java.util.Optional;
 public class RecordService {
     @Autowired
     private RecordRepository recordRepository;
+
+    @Autowired
+    private NameUniqueness nameUniqueness;
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Record> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Record.class);
+    }
+
     /**
      * 添加一个新的科室信息。
      * @param record 要添加的科室对象
@@ -25,12 +43,11 @@ public class RecordService {
      * @throws DefaultException            如果科室名不合法，则抛出 DefaultException 异常
      */
     public Record addRecord(Record record) throws NameAlreadyExistedException, DefaultException {
-        Optional<Record> existedRecord = recordRepository.findRecordByName(record.getName());
-        if (existedRecord.isPresent()) {
+        if (nameUniqueness.exists(Record.class, record.getName())) {
             throw new NameAlreadyExistedException("名字已存在");
         }
         NameChecker.nameIsLegal(record.getName());
-        Record savedRecord = recordRepository.save(record);
+        Record savedRecord = nameUniqueness.save(() -> recordRepository.save(record), () -> new NameAlreadyExistedException("名字已存在"));
         return savedRecord;
     }
     /**
@@ -84,9 +101,8 @@ public class RecordService {
             Record record_editing = recordOriginal.get();
             //如果修改了名字，那么对名字的唯一性进行校验
             if (!record_editing.getName().equals(record.getName())) {
-                Optional<Record> existedRecord = recordRepository.findRecordByName(record.getName());
                 //存在一个和当前名字相同的病，则返回失败
-                if (existedRecord.isPresent()) {
+                if (nameUniqueness.exists(Record.class, record.getName())) {
                     throw new NameAlreadyExistedException("科室名字已存在,更改失败");
                 }
                 //检查名字的合法性，如果不正确则抛出错误
@@ -94,7 +110,7 @@ public class RecordService {
             }
             record_editing.setName(record.getName());
             record_editing.setInfo(record.getInfo());
-            return Optional.of(recordRepository.save(record_editing));
+            return Optional.of(nameUniqueness.save(() -> recordRepository.save(record_editing), () -> new NameAlreadyExistedException("科室名字已存在,更改失败")));
         }
         throw new IdNotFoundException("id不存在,无法更新科室");
     }
@@ -103,6 +119,17 @@ public class RecordService {
      * @return 所有科室的列表
      */
     public List<Record> findAllRecords() {
-        return recordRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有档案。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Record> findRecordsPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 }
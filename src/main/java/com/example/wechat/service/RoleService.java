@@ -1,6 +1,8 @@
 package com.example.wechat.service;
 
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
@@ -11,11 +13,13 @@ import com.example.wechat.model.Facility;
 import com.example.wechat.model.Role;
 import com.example.wechat.repository.DepartmentRepository;
 import com.example.wechat.repository.RoleRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -27,7 +31,17 @@ public class RoleService {
     private RoleRepository roleRepository;
 
     @Autowired
-    private FileService fileService;
+    private NameUniqueness nameUniqueness;
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Role> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Role.class);
+    }
 
 
 
@@ -41,17 +55,15 @@ public class RoleService {
      * @throws DefaultException 如果角色名字不合法，则抛出DefaultException 异常
      */
     public Role addRole(Role role) throws NameAlreadyExistedException {
-        Optional<Role> existedRole = roleRepository.findRoleByName(role.getName());
-
         //对应名字的role存在则报错
-        if(existedRole.isPresent()){
+        if(nameUniqueness.exists(Role.class, role.getName())){
             throw new NameAlreadyExistedException("角色名字已存在");
         }
 
         //检查名字的合法性，如果不正确则抛出错误
         NameChecker.nameIsLegal(role.getName());
 
-        Role savedRole = roleRepository.save(role);
+        Role savedRole = nameUniqueness.save(() -> roleRepository.save(role), () -> new NameAlreadyExistedException("角色名字已存在"));
         return savedRole;
     }
 
@@ -106,10 +118,8 @@ public class RoleService {
 
             //如果修改了名字，那么对名字的唯一性进行校验
             if(!roleEntity.getName().equals(role.getName())){
-                Optional<Role> existedRole = roleRepository.findRoleByName(role.getName());
-
                 //存在一个和当前名字相同的角色，则返回失败
-                if(existedRole.isPresent()){
+                if(nameUniqueness.exists(Role.class, role.getName())){
                     throw new NameAlreadyExistedException("当前角色已存在");
                 }
 
@@ -117,7 +127,7 @@ public class RoleService {
                 NameChecker.nameIsLegal(role.getName());
             }
 
-            return Optional.of(roleRepository.save(role));
+            return Optional.of(nameUniqueness.save(() -> roleRepository.save(role), () -> new NameAlreadyExistedException("当前角色已存在")));
         }
         throw new IdNotFoundException("id不存在");
     }
@@ -129,7 +139,18 @@ public class RoleService {
      * @return 所有角色的列表
      */
     public List<Role> findAllRoles() {
-        return roleRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有角色。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Role> findRolesPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
 
@@ -142,7 +163,7 @@ public class RoleService {
      * @throws IdNotFoundException 如果对应的角色ID不存在，则抛出 IdNotFoundException 异常
      */
     public Optional<Role> findRoleById(ObjectId id) throws IdNotFoundException{
-        Optional<Role> role = roleRepository.findById(id);
+        Optional<Role> role = catalog.findById(id);
         if(role.isPresent()) return role;
         else throw new IdNotFoundException("对应id不存在");
     }
@@ -163,39 +184,11 @@ public class RoleService {
     }
 
     public String uploadFile(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        var existing = roleRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应对象不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        List<String> files = updating.getFiles();
-        files.add(fileId);
-        updating.setFiles(files);
-
-        roleRepository.save(updating);
-
-        return fileId;
-
+        return catalog.attachFile(file, id, "对应对象不存在，无法更新图片");
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        var existing = roleRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应实体不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        updating.setAvatar(fileId);
-        roleRepository.save(updating);
-        return fileId;
-
+        return catalog.attachAvatar(file, id, "对应实体不存在，无法更新图片");
     }
 
 
@@ -0,0 +1,207 @@
+package com.example.wechat.service;
+
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.model.*;
+import com.example.wechat.monitor.LatencyRecorder;
+import com.example.wechat.search.ChineseTokenizer;
+import com.example.wechat.search.SearchHit;
+import com.example.wechat.search.SearchIndex;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 全文搜索服务。
+ * 启动时把病例、题目、疾病及各类目的名称/简介分词后写入内存倒排索引，
+ * 之后由 SearchIndexListener 在保存/删除时增量更新，查询不再访问数据库。
+ */
+@Service
+public class SearchService {
+
+    private static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChineseTokenizer tokenizer;
+
+    private final SearchIndex index = new SearchIndex();
+
+    private final Map<Class<?>, IndexedType<?>> indexedTypes = new LinkedHashMap<>();
+
+    private final LatencyRecorder searchLatency = new LatencyRecorder("search");
+
+    public SearchService() {
+        register(Case.class, Case::getId, Case::getName, c -> join(c.getName(), c.getTextList()), c -> true, "name", "textList");
+        // 题目只索引对用户可见的
+        register(Question.class, Question::getId, Question::getStem, q -> join(q.getStem(), q.getOptionList()), Question::isVisible, "stem", "optionList", "visible");
+        register(Disease.class, Disease::getId, Disease::getName, d -> join(d.getName(), d.getInfo()), d -> true, "name", "info");
+        register(Drug.class, Drug::getId, Drug::getName, d -> join(d.getName(), d.getInfo()), d -> true, "name", "info");
+        register(Department.class, Department::getId, Department::getName, d -> join(d.getName(), d.getInfo()), d -> true, "name", "info");
+        register(Facility.class, Facility::getId, Facility::getName, f -> join(f.getName(), f.getInfo()), f -> true, "name", "info");
+        register(Role.class, Role::getId, Role::getName, r -> join(r.getName(), r.getInfo()), r -> true, "name", "info");
+        register(Charge.class, Charge::getId, Charge::getName, c -> join(c.getName(), c.getInfo()), c -> true, "name", "info");
+        register(Inpatient.class, Inpatient::getId, Inpatient::getName, i -> join(i.getName(), i.getInfo()), i -> true, "name", "info");
+        register(Vaccinum.class, Vaccinum::getId, Vaccinum::getName, v -> join(v.getName(), v.getInfo()), v -> true, "name", "info");
+        register(Assay.class, Assay::getId, Assay::getName, a -> join(a.getName(), a.getInfo()), a -> true, "name", "info");
+        register(Record.class, Record::getId, Record::getName, r -> join(r.getName(), r.getInfo()), r -> true, "name", "info");
+        register(Procedure.class, Procedure::getId, Procedure::getName, p -> join(p.getName(), p.getInfo()), p -> true, "name", "info");
+        register(Activity.class, Activity::getId, Activity::getName, Activity::getName, a -> true, "name");
+        register(Category.class, Category::getId, Category::getName, Category::getName, c -> true, "name");
+    }
+
+    private <T> void register(Class<T> entityClass, Function<T, ObjectId> id, Function<T, String> title,
+                              Function<T, String> text, Predicate<T> searchable, String... fields) {
+        indexedTypes.put(entityClass, new IndexedType<>(entityClass, id, title, text, searchable, fields));
+    }
+
+    /**
+     * 应用启动完成后全量建立索引，只读取参与索引的字段，不解析 DBRef。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        for (IndexedType<?> indexedType : indexedTypes.values()) {
+            load(indexedType);
+        }
+    }
+
+    private <T> void load(IndexedType<T> indexedType) {
+        Query query = new Query();
+        for (String field : indexedType.fields) {
+            query.fields().include(field);
+        }
+        try (CloseableIterator<T> it = mongoTemplate.stream(query, indexedType.entityClass)) {
+            while (it.hasNext()) {
+                put(indexedType, it.next());
+            }
+        }
+    }
+
+    /**
+     * 实体保存后更新索引，非索引类型直接忽略。
+     */
+    @SuppressWarnings("unchecked")
+    public void index(Object entity) {
+        if (entity == null) {
+            return;
+        }
+        IndexedType<Object> indexedType = (IndexedType<Object>) indexedTypes.get(entity.getClass());
+        if (indexedType != null) {
+            put(indexedType, entity);
+        }
+    }
+
+    /**
+     * 实体删除后移出索引。
+     *
+     * @param entityClass 实体类型
+     * @param id          实体 id
+     */
+    public void remove(Class<?> entityClass, Object id) {
+        IndexedType<?> indexedType = indexedTypes.get(entityClass);
+        if (indexedType != null && id != null) {
+            index.remove(indexedType.type, id.toString());
+        }
+    }
+
+    private <T> void put(IndexedType<T> indexedType, T entity) {
+        ObjectId id = indexedType.id.apply(entity);
+        if (id == null) {
+            return;
+        }
+        if (!indexedType.searchable.test(entity)) {
+            index.remove(indexedType.type, id.toHexString());
+            return;
+        }
+        List<String> tokens = tokenizer.tokenize(indexedType.text.apply(entity));
+        index.put(indexedType.type, id.toHexString(), indexedType.title.apply(entity), tokens);
+    }
+
+    /**
+     * 全文搜索。
+     *
+     * @param keyword 关键词
+     * @param type    限定类型（集合名，如 case、disease、question），为空时搜索全部
+     * @param limit   最多返回条数
+     * @return 按相关度排序的结果
+     * @throws DefaultException 关键词为空或类型不支持时抛出
+     */
+    public List<SearchHit> search(String keyword, String type, int limit) throws DefaultException {
+        if (!StringUtils.hasText(keyword)) {
+            throw new DefaultException("搜索内容不能为空");
+        }
+        String typeFilter = StringUtils.hasText(type) ? type : null;
+        if (typeFilter != null && indexedTypes.values().stream().noneMatch(t -> t.type.equals(typeFilter))) {
+            throw new DefaultException("不支持的搜索类型");
+        }
+
+        long start = System.nanoTime();
+        try {
+            int size = Math.min(Math.max(limit, 1), MAX_LIMIT);
+            return index.search(tokenizer.tokenize(keyword), typeFilter, size);
+        } finally {
+            searchLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * 获取索引规模与查询耗时统计。
+     */
+    public Map<String, Object> getSearchStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("documents", index.size());
+        stats.put("terms", index.termCount());
+        stats.put("latency", searchLatency.snapshot());
+        return stats;
+    }
+
+    private static String join(String first, Object rest) {
+        StringBuilder sb = new StringBuilder();
+        if (first != null) {
+            sb.append(first);
+        }
+        if (rest instanceof Collection) {
+            for (Object item : (Collection<?>) rest) {
+                if (item != null) {
+                    sb.append('\n').append(item);
+                }
+            }
+        } else if (rest != null) {
+            sb.append('\n').append(rest);
+        }
+        return sb.toString();
+    }
+
+    private static class IndexedType<T> {
+        private final Class<T> entityClass;
+        // 类型名与集合名一致
+        private final String type;
+        private final Function<T, ObjectId> id;
+        private final Function<T, String> title;
+        private final Function<T, String> text;
+        private final Predicate<T> searchable;
+        private final String[] fields;
+
+        IndexedType(Class<T> entityClass, Function<T, ObjectId> id, Function<T, String> title,
+                    Function<T, String> text, Predicate<T> searchable, String[] fields) {
+            this.entityClass = entityClass;
+            this.type = StringUtils.uncapitalize(entityClass.getSimpleName());
+            this.id = id;
+            this.title = title;
+            this.text = text;
+            this.searchable = searchable;
+            this.fields = fields;
+        }
+    }
+}
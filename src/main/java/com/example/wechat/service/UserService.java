@@ -1,21 +1,27 @@
 package com.example.wechat.service;
 
+import com.example.wechat.auth.LoginAttemptCache;
+import com.example.wechat.auth.PasswordHasher;
+import com.example.wechat.auth.TokenService;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.model.*;
-import com.example.wechat.repository.ExamRecordRepository;
-import com.example.wechat.repository.ExamRepository;
-import com.example.wechat.repository.QuestionRecordRepository;
 import com.example.wechat.repository.UserRepository;
+import com.example.wechat.mongo.KeysetPage;
+import com.example.wechat.mongo.KeysetPager;
+import com.example.wechat.mongo.ReferenceCascade;
+import com.example.wechat.monitor.LatencyRecorder;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
+
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -25,17 +31,44 @@ public class UserService {
     private UserRepository userRepository;
 
     @Autowired
-    private QuestionRecordRepository questionRecordRepository;
+    private KeysetPager keysetPager;
 
     @Autowired
-    private ExamRecordRepository examRecordRepository;
+    private UserStatsService userStatsService;
 
     @Autowired
-    private ExamRepository examRepository;
+    private ExamLeaderboard examLeaderboard;
 
     @Autowired
     private FileService fileService;
-    private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private LoginAttemptCache loginAttemptCache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ReferenceCascade referenceCascade;
+
+    // 删除用户时：先删除答题记录和考试记录，再从考试的参与者、白名单中移除，清除考试的举办者，最后删除用户本身
+    private static final ReferenceCascade.Plan USER_CASCADE = ReferenceCascade.plan(User.class)
+            .delete(QuestionRecord.class, "user")
+            .delete(ExamRecord.class, "user")
+            .pull(Exam.class, "participantList")
+            .pull(Exam.class, "whiteList")
+            .unset(Exam.class, "holder");
+
+    private final LatencyRecorder loginLatency = new LatencyRecorder("login");
+    private final LatencyRecorder loginLookupLatency = new LatencyRecorder("loginLookup");
+
+    @PostConstruct
+    public void ensureIndexes() {
+        referenceCascade.ensureIndexes(USER_CASCADE);
+    }
 
     public Optional<User> addUser(User user) {
         if (user.getUsername().length() < 2) {
@@ -50,7 +83,7 @@ public class UserService {
         if (existingUser.isPresent()) {
             throw new DefaultException("用户名已存在");
         }
-        user.setPassword(passwordEncoder.encode(user.getPassword())); // 加密密码
+        user.setPassword(passwordHasher.encode(user.getPassword())); // 加密密码
         user.setAvatarUrl("file/headpic/default");
         user.setAvatar("");
         User savedUser = userRepository.save(user);
@@ -79,12 +112,50 @@ public class UserService {
         return null;
     }
 
-    public Optional<User> tryLogin(String username, String password, String auth) {
-        Optional<User> userOptional = userRepository.findByUsername(username);
-        if (userOptional.isPresent() && passwordEncoder.matches(password, userOptional.get().getPassword()) && userOptional.get().getAuth().equals(auth)) {
-            return userOptional;
+    /**
+     * 校验用户名、密码和权限等级。
+     * 该用户名在该客户端地址上已锁定时直接拒绝；窗口内重复提交的错误密码、权限等级不符时都不计算哈希。
+     * 失败记录带有权限等级，选错权限等级的正确密码不会被记成以正确权限等级登录时的失败。
+     *
+     * @param client 客户端地址，失败次数按用户名和地址分别计数
+     * @throws DefaultException 失败次数过多被锁定，或哈希线程池已满时抛出
+     */
+    public Optional<User> tryLogin(String username, String password, String auth, String client) {
+        long start = System.nanoTime();
+        try {
+            if (username == null || password == null) {
+                return Optional.empty();
+            }
+            if (loginAttemptCache.isKnownFailure(username, password, auth, client)) {
+                return Optional.empty();
+            }
+
+            long lookupStart = System.nanoTime();
+            Optional<User> userOptional = userRepository.findByUsername(username);
+            loginLookupLatency.recordSince(lookupStart);
+
+            if (userOptional.isPresent() && userOptional.get().getAuth().equals(auth)
+                    && passwordHasher.matches(password, userOptional.get().getPassword())) {
+                loginAttemptCache.recordSuccess(username);
+                return userOptional;
+            }
+            loginAttemptCache.recordFailure(username, password, auth, client);
+            return Optional.empty();
+        } finally {
+            loginLatency.recordSince(start);
         }
-        return Optional.empty();
+    }
+
+    /**
+     * 获取登录耗时分布、失败与锁定次数、哈希线程池状态。
+     */
+    public Map<String, Object> getLoginStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("login", loginLatency.snapshot());
+        stats.put("lookup", loginLookupLatency.snapshot());
+        stats.put("attempts", loginAttemptCache.getStats());
+        stats.put("hasher", passwordHasher.getStats());
+        return stats;
     }
 
 
@@ -102,13 +173,27 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    /**
+     * 按 _id 分页查找所有用户。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<User> findUsersPage(String after, Integer limit) {
+        return keysetPager.page(null, User.class, after, limit);
+    }
+
     public boolean updatePassword(String username, String currentPassword, String newPassword) {
         Optional<User> userOptional = userRepository.findByUsername(username);
         if (userOptional.isPresent()) {
             User user = userOptional.get();
-            if (passwordEncoder.matches(currentPassword, user.getPassword())) { // 验证密码
-                user.setPassword(passwordEncoder.encode(newPassword)); // 加密新密码
+            if (passwordHasher.matches(currentPassword, user.getPassword())) { // 验证密码
+                user.setPassword(passwordHasher.encode(newPassword)); // 加密新密码
                 userRepository.save(user);
+                loginAttemptCache.reset(user.getUsername());
+                // 修改密码后此前签发的令牌全部失效，被盗用的令牌不能继续使用
+                tokenService.revokeUser(user.getId().toString());
                 return true;
             }
         }
@@ -127,8 +212,10 @@ public class UserService {
             User user = userOptional.get();
             // 这里简化了安全问题答案的比较逻辑，实际应用中可能需要更复杂的安全考虑
             if (user.getSecurityQuestionAnswer().equals(securityAnswer)) {
-                user.setPassword(passwordEncoder.encode(newPassword));
+                user.setPassword(passwordHasher.encode(newPassword));
                 userRepository.save(user);
+                loginAttemptCache.reset(user.getUsername());
+                tokenService.revokeUser(user.getId().toString());
                 return true;
             }
         }
@@ -139,8 +226,10 @@ public class UserService {
         Optional<User> userOptional = userRepository.findById(userId);
         if (userOptional.isPresent()) {
             User user = userOptional.get();
-            user.setPassword(passwordEncoder.encode(newPassword));
+            user.setPassword(passwordHasher.encode(newPassword));
             userRepository.save(user); // 更新用户信息
+            loginAttemptCache.reset(user.getUsername());
+            tokenService.revokeUser(user.getId().toString());
             return true;
         }
         return false;
@@ -172,34 +261,19 @@ public class UserService {
 
     }
 
-    @Transactional
+    /**
+     * 删除用户，并清除答题记录、考试记录及考试中对该用户的引用。
+     */
     public void deleteUserById(String userId) throws DefaultException{
         ObjectId userObjId = new ObjectId(userId);
 
         User usr= userRepository.findById(userObjId).get();
         if(usr.getAuth() == "2") throw new DefaultException("无法删除管理员用户");
 
-        // 删除用户的所有问题记录
-        List<QuestionRecord> questionRecords = questionRecordRepository.findByUserId(userObjId);
-        questionRecordRepository.deleteAll(questionRecords);
-
-        // 删除用户的所有考试记录
-        List<ExamRecord> examRecords = examRecordRepository.findByUserId(userObjId);
-        examRecordRepository.deleteAll(examRecords);
-
-        // 更新考试中的用户引用
-        List<Exam> exams = examRepository.findAll();
-        exams.forEach(exam -> {
-            if(exam.getHolder() != null && exam.getHolder().getId().equals(userObjId)) {
-                exam.setHolder(null); // 如果用户是考试的持有者
-            }
-            exam.getParticipantList().removeIf(user -> user.getId().equals(userObjId)); // 移除参与者列表中的用户
-            exam.getWhiteList().removeIf(user -> user.getId().equals(userObjId)); // 移除白名单列表中的用户
-            examRepository.save(exam);
-        });
+        referenceCascade.execute(USER_CASCADE, userObjId);
 
-        // 最后删除用户本身
-        userRepository.deleteById(userObjId);
+        userStatsService.deleteUserStats(userObjId);
+        examLeaderboard.removeUser(userObjId);
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
@@ -0,0 +1,261 @@
+package com.example.wechat.service;
+
+import com.example.wechat.model.Question;
+import com.example.wechat.model.QuestionRecord;
+import com.example.wechat.model.UserStats;
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/**
+ * 用户答题统计。
+ * 每个用户一条总计文档（categoryId 为空）加每个病类一条文档，写入 QuestionRecord 时用 $inc 增量更新，
+ * 查询时只读取该用户的少量统计文档，不再扫描全部答题记录。
+ */
+@Service
+public class UserStatsService {
+
+    // 重建时每次批量写入的统计条数
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(UserStats.class).ensureIndex(
+                new Index().on("userId", Sort.Direction.ASC).on("categoryId", Sort.Direction.ASC).unique());
+    }
+
+    /**
+     * 按新写入的答题记录累加统计。
+     *
+     * @param userId           答题用户 id
+     * @param records          本次写入的答题记录
+     * @param questionCategory 题目 id -> 病类 id（题目没有病类时可缺省）
+     */
+    public void recordAnswers(ObjectId userId, List<QuestionRecord> records, Map<ObjectId, ObjectId> questionCategory) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<ObjectId, Counter> byCategory = new HashMap<>();
+        Counter total = new Counter();
+        for (QuestionRecord record : records) {
+            boolean correct = Boolean.TRUE.equals(record.getTorF());
+            total.add(correct, record.getTime());
+            ObjectId categoryId = questionCategory.get(record.getQuestion().getId());
+            if (categoryId != null) {
+                byCategory.computeIfAbsent(categoryId, k -> new Counter()).add(correct, record.getTime());
+            }
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserStats.class);
+        bulk.upsert(statsQuery(userId, null), total.toUpdate());
+        for (Map.Entry<ObjectId, Counter> entry : byCategory.entrySet()) {
+            bulk.upsert(statsQuery(userId, entry.getKey()), entry.getValue().toUpdate());
+        }
+        bulk.execute();
+    }
+
+    /**
+     * 获取用户的答题统计。
+     *
+     * @param userId 用户 id
+     * @return total 为总计，categories 为各病类统计
+     */
+    public Map<String, Object> getUserStats(String userId) {
+        ObjectId userObjId = new ObjectId(userId);
+        UserStats total = null;
+        List<UserStats> categories = new ArrayList<>();
+        for (UserStats stats : mongoTemplate.find(new Query(Criteria.where("userId").is(userObjId)), UserStats.class)) {
+            if (stats.getCategoryId() == null) {
+                total = stats;
+            } else {
+                categories.add(stats);
+            }
+        }
+        if (total == null) {
+            total = new UserStats();
+            total.setUserId(userObjId);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", total);
+        result.put("categories", categories);
+        return result;
+    }
+
+    public void deleteUserStats(ObjectId userId) {
+        mongoTemplate.remove(new Query(Criteria.where("userId").is(userId)), UserStats.class);
+    }
+
+    /**
+     * 根据全部历史答题记录重建统计，用于首次上线或数据修复。
+     * 统计按 (用户, 病类) 逐条 upsert 为重新计算的值，不先清空集合，重建期间查询仍能读到统计；
+     * 没有对应答题记录的旧统计在最后删除。
+     * 只统计重建开始前写入的答题记录；重建期间有新答题记录的用户，其 $inc 可能被覆盖，
+     * 因此最后再按这些用户的全部答题记录重新计算一次。
+     *
+     * @return 重建后的统计文档数
+     */
+    public int rebuild() {
+        // 答题记录的 id 在写入时分配，按时间递增
+        ObjectId boundary = new ObjectId();
+        Map<ObjectId, ObjectId> questionCategory = loadQuestionCategories();
+
+        Map<ObjectId, Map<ObjectId, Counter>> counters = count(Criteria.where("_id").lt(boundary), questionCategory);
+        upsertAll(counters);
+
+        // 删除没有答题记录的 (用户, 病类)，重建期间新出现的统计不在这里处理
+        Query statsQuery = new Query(Criteria.where("_id").lt(boundary));
+        statsQuery.fields().include("userId").include("categoryId");
+        List<ObjectId> stale = new ArrayList<>();
+        try (CloseableIterator<UserStats> it = mongoTemplate.stream(statsQuery, UserStats.class)) {
+            while (it.hasNext()) {
+                UserStats stats = it.next();
+                Map<ObjectId, Counter> byCategory = counters.get(stats.getUserId());
+                if (byCategory == null || !byCategory.containsKey(stats.getCategoryId())) {
+                    stale.add(stats.getId());
+                }
+            }
+        }
+        if (!stale.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(stale)), UserStats.class);
+        }
+
+        // 重建期间有新答题记录的用户按全部记录重新计算
+        Set<ObjectId> changedUsers = new HashSet<>();
+        Query changedQuery = new Query(Criteria.where("_id").gte(boundary));
+        changedQuery.fields().include("user");
+        for (Document record : mongoTemplate.find(changedQuery, Document.class, mongoTemplate.getCollectionName(QuestionRecord.class))) {
+            ObjectId userId = refId(record.get("user"));
+            if (userId != null) {
+                changedUsers.add(userId);
+            }
+        }
+        if (!changedUsers.isEmpty()) {
+            Map<ObjectId, Map<ObjectId, Counter>> changed = count(Criteria.where("user.$id").in(changedUsers), questionCategory);
+            upsertAll(changed);
+            counters.putAll(changed);
+        }
+
+        int total = 0;
+        for (Map<ObjectId, Counter> byCategory : counters.values()) {
+            total += byCategory.size();
+        }
+        return total;
+    }
+
+    // 读出所有题目的病类，题目数量远小于答题记录
+    private Map<ObjectId, ObjectId> loadQuestionCategories() {
+        Query questionQuery = new Query();
+        questionQuery.fields().include("category");
+        Map<ObjectId, ObjectId> questionCategory = new HashMap<>();
+        for (Document question : mongoTemplate.find(questionQuery, Document.class, mongoTemplate.getCollectionName(Question.class))) {
+            ObjectId categoryId = refId(question.get("category"));
+            if (categoryId != null) {
+                questionCategory.put(question.getObjectId("_id"), categoryId);
+            }
+        }
+        return questionCategory;
+    }
+
+    // 沿游标累加满足条件的答题记录，只保留每个 (用户, 病类) 的计数；病类为 null 的是总计
+    private Map<ObjectId, Map<ObjectId, Counter>> count(Criteria criteria, Map<ObjectId, ObjectId> questionCategory) {
+        Map<ObjectId, Map<ObjectId, Counter>> counters = new HashMap<>();
+        Query recordQuery = new Query(criteria);
+        recordQuery.fields().include("user").include("question").include("TorF").include("time");
+        try (CloseableIterator<Document> it = mongoTemplate.stream(recordQuery, Document.class, mongoTemplate.getCollectionName(QuestionRecord.class))) {
+            while (it.hasNext()) {
+                Document record = it.next();
+                ObjectId userId = refId(record.get("user"));
+                if (userId == null) {
+                    continue;
+                }
+                boolean correct = Boolean.TRUE.equals(record.getBoolean("TorF"));
+                Date time = record.getDate("time");
+                Map<ObjectId, Counter> byCategory = counters.computeIfAbsent(userId, k -> new HashMap<>());
+                byCategory.computeIfAbsent(null, k -> new Counter()).add(correct, time);
+                ObjectId categoryId = questionCategory.get(refId(record.get("question")));
+                if (categoryId != null) {
+                    byCategory.computeIfAbsent(categoryId, k -> new Counter()).add(correct, time);
+                }
+            }
+        }
+        return counters;
+    }
+
+    // 把统计设置为计算出的值，每批最多 REBUILD_BATCH_SIZE 条
+    private void upsertAll(Map<ObjectId, Map<ObjectId, Counter>> counters) {
+        BulkOperations bulk = null;
+        int pending = 0;
+        for (Map.Entry<ObjectId, Map<ObjectId, Counter>> user : counters.entrySet()) {
+            for (Map.Entry<ObjectId, Counter> entry : user.getValue().entrySet()) {
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserStats.class);
+                }
+                bulk.upsert(statsQuery(user.getKey(), entry.getKey()), entry.getValue().toSetUpdate());
+                if (++pending == REBUILD_BATCH_SIZE) {
+                    bulk.execute();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            bulk.execute();
+        }
+    }
+
+    private static Query statsQuery(ObjectId userId, ObjectId categoryId) {
+        return new Query(Criteria.where("userId").is(userId).and("categoryId").is(categoryId));
+    }
+
+    private static ObjectId refId(Object ref) {
+        if (ref instanceof DBRef && ((DBRef) ref).getId() instanceof ObjectId) {
+            return (ObjectId) ((DBRef) ref).getId();
+        }
+        return null;
+    }
+
+    private static class Counter {
+        private long attempts;
+        private long correct;
+        private Date lastAnswered;
+
+        void add(boolean isCorrect, Date time) {
+            attempts++;
+            if (isCorrect) {
+                correct++;
+            }
+            if (time != null && (lastAnswered == null || time.after(lastAnswered))) {
+                lastAnswered = time;
+            }
+        }
+
+        Update toSetUpdate() {
+            return new Update().set("attempts", attempts).set("correct", correct).set("lastAnswered", lastAnswered);
+        }
+
+        Update toUpdate() {
+            Update update = new Update().inc("attempts", attempts).inc("correct", correct);
+            if (lastAnswered != null) {
+                update.max("lastAnswered", lastAnswered);
+            }
+            return update;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.wechat.service;
 
+import com.example.wechat.catalog.Catalog;
+import com.example.wechat.catalog.CatalogEngine;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
@@ -8,11 +10,13 @@ import com.example.wechat.model.Assay;
 import com.example.wechat.model.Inpatient;
 import com.example.wechat.model.Vaccinum;
 import com.example.wechat.repository.VaccinumRepository;
+import com.example.wechat.mongo.KeysetPage;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
@@ -23,7 +27,18 @@ public class VaccinumService {
     private VaccinumRepository vaccinumRepository;
 
     @Autowired
-    private FileService fileService;
+    private NameUniqueness nameUniqueness;
+
+    @Autowired
+    private CatalogEngine catalogEngine;
+
+    private Catalog<Vaccinum> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = catalogEngine.register(Vaccinum.class);
+    }
+
     /**
      * 添加一个新的科室信息。
      * @param vaccinum 要添加的科室对象
@@ -32,12 +47,11 @@ public class VaccinumService {
      * @throws DefaultException            如果科室名不合法，则抛出 DefaultException 异常
      */
     public Vaccinum addVaccinum(Vaccinum vaccinum) throws NameAlreadyExistedException, DefaultException {
-        Optional<Vaccinum> existedVaccinum = vaccinumRepository.findVaccinumByName(vaccinum.getName());
-        if (existedVaccinum.isPresent()) {
+        if (nameUniqueness.exists(Vaccinum.class, vaccinum.getName())) {
             throw new NameAlreadyExistedException("名字已存在");
         }
         NameChecker.nameIsLegal(vaccinum.getName());
-        Vaccinum savedVaccinum = vaccinumRepository.save(vaccinum);
+        Vaccinum savedVaccinum = nameUniqueness.save(() -> vaccinumRepository.save(vaccinum), () -> new NameAlreadyExistedException("名字已存在"));
         return savedVaccinum;
     }
     /**
@@ -91,9 +105,8 @@ public class VaccinumService {
             Vaccinum vaccinum_editing = vaccinumOriginal.get();
             //如果修改了名字，那么对名字的唯一性进行校验
             if (!vaccinum_editing.getName().equals(vaccinum.getName())) {
-                Optional<Vaccinum> existedVaccinum = vaccinumRepository.findVaccinumByName(vaccinum.getName());
                 //存在一个和当前名字相同的病，则返回失败
-                if (existedVaccinum.isPresent()) {
+                if (nameUniqueness.exists(Vaccinum.class, vaccinum.getName())) {
                     throw new NameAlreadyExistedException("科室名字已存在,更改失败");
                 }
                 //检查名字的合法性，如果不正确则抛出错误
@@ -101,7 +114,7 @@ public class VaccinumService {
             }
             vaccinum_editing.setName(vaccinum.getName());
             vaccinum_editing.setInfo(vaccinum.getInfo());
-            return Optional.of(vaccinumRepository.save(vaccinum_editing));
+            return Optional.of(nameUniqueness.save(() -> vaccinumRepository.save(vaccinum_editing), () -> new NameAlreadyExistedException("科室名字已存在,更改失败")));
         }
         throw new IdNotFoundException("id不存在,无法更新科室");
     }
@@ -110,48 +123,31 @@ public class VaccinumService {
      * @return 所有科室的列表
      */
     public List<Vaccinum> findAllVaccinums() {
-        return vaccinumRepository.findAll();
+        return catalog.findAll();
+    }
+
+    /**
+     * 按 _id 分页查找所有疫苗。
+     *
+     * @param after 上一页返回的 nextCursor，为 null 时从第一页开始
+     * @param limit 每页条数
+     * @return 当前页及下一页游标
+     */
+    public KeysetPage<Vaccinum> findVaccinumsPage(String after, Integer limit) {
+        return catalog.findPage(after, limit);
     }
 
     public Optional<Vaccinum> findVaccinumById(String id){
-        Optional<Vaccinum> existing = vaccinumRepository.findById(new ObjectId(id));
+        Optional<Vaccinum> existing = catalog.findById(new ObjectId(id));
         if(!existing.isPresent()) throw new IdNotFoundException("对应疫苗不存在");
         else return existing;
     }
 
     public String uploadFile(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        Optional<Vaccinum> existing = vaccinumRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应assay不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        List<String> files = updating.getFiles();
-        files.add(fileId);
-        updating.setFiles(files);
-
-        vaccinumRepository.save(updating);
-
-        return fileId;
-
+        return catalog.attachFile(file, id, "对应assay不存在，无法更新图片");
     }
 
     public String uploadAvatar(MultipartFile file, String id)throws IOException {
-        String fileId = fileService.uploadFile(file);
-        ObjectId objectId = new ObjectId(id);
-        Optional<Vaccinum> existing = vaccinumRepository.findById(objectId);
-
-        //存在性检查
-        if (!existing.isPresent()) throw new IdNotFoundException("对应assay不存在，无法更新图片");
-
-        var updating = existing.get();
-
-        updating.setAvatar(fileId);
-        vaccinumRepository.save(updating);
-        return fileId;
-
+        return catalog.attachAvatar(file, id, "对应assay不存在，无法更新图片");
     }
 }
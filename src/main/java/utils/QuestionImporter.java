@@ -1,5 +1,6 @@
 package utils;
 
+import com.mongodb.DBRef;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoDatabase;
@@ -7,6 +8,8 @@ import com.mongodb.client.MongoCollection;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
+import java.util.List;
+
 import static com.mongodb.client.model.Filters.eq;
 
 public class QuestionImporter {
@@ -47,12 +50,15 @@ public class QuestionImporter {
                 category_id = category.getObjectId("_id");
             }
 
+            // 选项按 JSON 数组解析，保存为数组而不是原始字符串
+            List<String> optionList = Document.parse("{\"o\": " + lines[1].split(": ", 2)[1] + "}").getList("o", String.class);
+
             Document questionData = new Document()
                     .append("stem", lines[0].split(": ", 2)[1])
-                    .append("optionList", lines[1].split(": ", 2)[1])
+                    .append("optionList", optionList)
                     .append("answer", lines[2].split(": ", 2)[1])
                     .append("score", Integer.parseInt(lines[3].split(": ", 2)[1]))
-                    .append("category", category_id) // 直接存储 ObjectId
+                    .append("category", new DBRef("category", category_id)) // 与 Question 实体一致，存储为 DBRef
                     .append("visible", true);
 
             questionsCollection.insertOne(questionData);
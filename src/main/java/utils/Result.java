@@ -25,6 +25,11 @@ public class Result {
 
     }
 
+    // 与 okGetStringByData 的输出相同，但不生成中间字符串，由消息转换器直接写入响应流；列表接口使用
+    public static ResultBody okBody(String message, Object data){
+        return new ResultBody(message, data);
+    }
+
 
     public static String errorGetString(String message){
         Map<String, Object> map = new HashMap<>();
@@ -0,0 +1,140 @@
+package utils;
+
+import com.alibaba.fastjson2.JSON;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 成功响应 {code, data, message}，由 ResultBodyHttpMessageConverter 直接以 UTF-8 写入响应流。
+ * 字段顺序和内容与 Result.okGetStringByData 相同；data 为 null 时省略。
+ * data 是集合时逐个元素序列化并写出，不会先拼成完整的字符串，大列表的内存占用只与单个元素有关。
+ * 写出经过每个线程复用的缓冲区，攒满后再写入底层的流。
+ */
+public class ResultBody {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final byte[] CODE = "{\"code\":200".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DATA = ",\"data\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MESSAGE = ",\"message\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final String message;
+    private final Object data;
+
+    public ResultBody(String message, Object data) {
+        this.message = message;
+        this.data = data;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    /**
+     * 把响应写入输出流，不关闭输出流。
+     *
+     * @param out 输出流
+     * @throws IOException 写出失败时抛出
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        BufferedOutput buffered = new BufferedOutput(out);
+        buffered.write(CODE);
+        if (data != null) {
+            buffered.write(DATA);
+            writeData(buffered);
+        }
+        if (message != null) {
+            buffered.write(MESSAGE);
+            JSON.writeTo(buffered, message);
+        }
+        buffered.write('}');
+        buffered.flushBuffer();
+    }
+
+    private void writeData(OutputStream out) throws IOException {
+        if (!(data instanceof Iterable)) {
+            JSON.writeTo(out, data);
+            return;
+        }
+        out.write('[');
+        boolean first = true;
+        for (Object item : (Iterable<?>) data) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            if (item == null) {
+                out.write(NULL);
+            } else {
+                JSON.writeTo(out, item);
+            }
+        }
+        out.write(']');
+    }
+
+    /**
+     * 返回完整的 JSON，只用于日志和测试，响应不经过这里。
+     */
+    @Override
+    public String toString() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // 使用当前线程的缓冲区，攒满后写入底层的流；只在一次 writeTo 内使用
+    private static class BufferedOutput extends OutputStream {
+
+        private final OutputStream out;
+        private final byte[] buffer = BUFFERS.get();
+        private int count;
+
+        BufferedOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length >= buffer.length) {
+                flushBuffer();
+                out.write(bytes, offset, length);
+                return;
+            }
+            if (length > buffer.length - count) {
+                flushBuffer();
+            }
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+        }
+
+        void flushBuffer() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.wechat.auth;
+
+import com.example.wechat.exception.DefaultException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用手动推进的时钟测试 LoginAttemptCache。
+ */
+public class LoginAttemptCacheTests {
+
+    private static final long LOCKOUT_MINUTES = 15;
+
+    private static final String CLIENT = "10.0.0.1";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private LoginAttemptCache cache(int maxFailures, int maxTrackedUsers) {
+        return new LoginAttemptCache(maxFailures, LOCKOUT_MINUTES, maxTrackedUsers, clock::get);
+    }
+
+    private void advanceMinutes(long minutes) {
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(minutes));
+    }
+
+    @Test
+    public void testLockout() {
+        LoginAttemptCache cache = cache(3, 100);
+        cache.recordFailure("alice", "a1", "1", CLIENT);
+        cache.recordFailure("alice", "a2", "1", CLIENT);
+        assertFalse(cache.isKnownFailure("alice", "a3", "1", CLIENT));
+        cache.recordFailure("alice", "a3", "1", CLIENT);
+
+        // 锁定后任何密码、任何权限等级都直接拒绝
+        DefaultException e = assertThrows(DefaultException.class, () -> cache.isKnownFailure("alice", "right", "1", CLIENT));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+        assertThrows(DefaultException.class, () -> cache.isKnownFailure("alice", "right", "2", CLIENT));
+
+        // 其他用户名不受影响
+        assertFalse(cache.isKnownFailure("bob", "a1", "1", CLIENT));
+    }
+
+    @Test
+    public void testLockoutIsPerClient() {
+        LoginAttemptCache cache = cache(3, 100);
+        String attacker = "203.0.113.7";
+        cache.recordFailure("alice", "a1", "2", attacker);
+        cache.recordFailure("alice", "a2", "2", attacker);
+        cache.recordFailure("alice", "a3", "2", attacker);
+        assertThrows(DefaultException.class, () -> cache.isKnownFailure("alice", "a4", "1", attacker));
+
+        // 其他地址上的学生本人仍可登录
+        assertFalse(cache.isKnownFailure("alice", "right", "1", CLIENT));
+
+        // 已知的错误密码在任何地址上都直接判为失败，并计入该地址的失败次数
+        assertTrue(cache.isKnownFailure("alice", "a1", "2", CLIENT));
+        cache.recordFailure("alice", "b1", "1", CLIENT);
+        cache.recordFailure("alice", "b2", "1", CLIENT);
+        assertThrows(DefaultException.class, () -> cache.isKnownFailure("alice", "right", "1", CLIENT));
+    }
+
+    @Test
+    public void testRepeatedFailureShortCircuit() {
+        LoginAttemptCache cache = cache(3, 100);
+        cache.recordFailure("alice", "wrong", "1", CLIENT);
+
+        assertTrue(cache.isKnownFailure("alice", "wrong", "1", CLIENT));
+        assertFalse(cache.isKnownFailure("alice", "other", "1", CLIENT));
+        assertEquals(1L, cache.getStats().get("repeatedFailures"));
+
+        // 重复提交同样计入失败次数，达到上限后锁定
+        assertTrue(cache.isKnownFailure("alice", "wrong", "1", CLIENT));
+        assertThrows(DefaultException.class, () -> cache.isKnownFailure("alice", "wrong", "1", CLIENT));
+    }
+
+    @Test
+    public void testWrongAuthLevelDoesNotBlockCorrectAuthLevel() {
+        LoginAttemptCache cache = cache(5, 100);
+        // 正确的密码选错了权限等级
+        cache.recordFailure("alice", "right", "2", CLIENT);
+
+        assertTrue(cache.isKnownFailure("alice", "right", "2", CLIENT));
+        assertFalse(cache.isKnownFailure("alice", "right", "1", CLIENT));
+    }
+
+    @Test
+    public void testWindowExpiry() {
+        LoginAttemptCache cache = cache(2, 100);
+        cache.recordFailure("alice", "a1", "1", CLIENT);
+        cache.recordFailure("alice", "a2", "1", CLIENT);
+        assertThrows(DefaultException.class, () -> cache.isKnownFailure("alice", "a3", "1", CLIENT));
+
+        advanceMinutes(LOCKOUT_MINUTES - 1);
+        assertThrows(DefaultException.class, () -> cache.isKnownFailure("alice", "a3", "1", CLIENT));
+
+        // 窗口结束后解除锁定，之前失败过的密码也不再直接判为失败
+        advanceMinutes(1);
+        assertFalse(cache.isKnownFailure("alice", "a1", "1", CLIENT));
+
+        // 新窗口从头计数
+        cache.recordFailure("alice", "a1", "1", CLIENT);
+        assertTrue(cache.isKnownFailure("alice", "a1", "1", CLIENT));
+        assertThrows(DefaultException.class, () -> cache.isKnownFailure("alice", "a1", "1", CLIENT));
+    }
+
+    @Test
+    public void testResetClearsFailures() {
+        LoginAttemptCache cache = cache(2, 100);
+        cache.recordFailure("alice", "a1", "1", CLIENT);
+        cache.recordFailure("alice", "a2", "1", CLIENT);
+
+        cache.recordSuccess("alice");
+
+        assertFalse(cache.isKnownFailure("alice", "a1", "1", CLIENT));
+        assertEquals(0, cache.getStats().get("trackedUsers"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        LoginAttemptCache cache = cache(5, 2);
+        cache.recordFailure("alice", "bad", "1", CLIENT);
+        cache.recordFailure("bob", "bad", "1", CLIENT);
+
+        // 访问 alice 后 bob 成为最久未使用的记录
+        assertTrue(cache.isKnownFailure("alice", "bad", "1", CLIENT));
+        cache.recordFailure("carol", "bad", "1", CLIENT);
+
+        assertEquals(2, cache.getStats().get("trackedUsers"));
+        assertFalse(cache.isKnownFailure("bob", "bad", "1", CLIENT));
+        assertTrue(cache.isKnownFailure("alice", "bad", "1", CLIENT));
+        assertTrue(cache.isKnownFailure("carol", "bad", "1", CLIENT));
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.wechat.auth;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用手动推进的时钟测试 TokenService 的签名校验、过期与吊销。
+ */
+@ExtendWith(MockitoExtension.class)
+public class TokenServiceTests {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private static final long TTL_HOURS = 24;
+
+    // 吊销记录写入数据库的部分不在这里测试
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private TokenRevocationList revocationList;
+
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+
+    private TokenService tokenService;
+
+    @BeforeEach
+    public void setUp() {
+        tokenService = new TokenService(SECRET, false, TTL_HOURS, revocationList, clock::get);
+    }
+
+    private static String payload(String token) {
+        return new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+    }
+
+    private static String encode(String payload) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testIssueAndVerify() {
+        AuthPrincipal principal = tokenService.verify(tokenService.issue("u1", "2"));
+
+        assertNotNull(principal);
+        assertEquals("u1", principal.getUserId());
+        assertEquals("2", principal.getAuthLevel());
+    }
+
+    @Test
+    public void testTamperedSignature() {
+        String token = tokenService.issue("u1", "1");
+        int dot = token.indexOf('.');
+        char last = token.charAt(dot + 1);
+        String tampered = token.substring(0, dot + 1) + (last == 'A' ? 'B' : 'A') + token.substring(dot + 2);
+
+        assertNull(tokenService.verify(tampered));
+    }
+
+    @Test
+    public void testTamperedPayload() {
+        String token = tokenService.issue("u1", "1");
+        // 把权限等级改为管理员，签名保持不变
+        String elevated = payload(token).replaceFirst("^u1:1:", "u1:2:");
+        String tampered = encode(elevated) + token.substring(token.indexOf('.'));
+
+        assertNull(tokenService.verify(tampered));
+    }
+
+    @Test
+    public void testSignedWithOtherSecret() {
+        TokenService other = new TokenService("fedcba9876543210fedcba9876543210", false, TTL_HOURS, revocationList, clock::get);
+
+        assertNull(tokenService.verify(other.issue("u1", "1")));
+    }
+
+    @Test
+    public void testMalformedToken() {
+        assertNull(tokenService.verify(""));
+        assertNull(tokenService.verify("abc"));
+        assertNull(tokenService.verify("a.b.c"));
+        assertNull(tokenService.verify("!!!.???"));
+    }
+
+    @Test
+    public void testExpiry() {
+        String token = tokenService.issue("u1", "1");
+
+        clock.addAndGet(TimeUnit.HOURS.toMillis(TTL_HOURS) - 1);
+        assertNotNull(tokenService.verify(token));
+
+        clock.addAndGet(1);
+        assertNull(tokenService.verify(token));
+    }
+
+    @Test
+    public void testRevokeToken() {
+        String revoked = tokenService.issue("u1", "1");
+        String other = tokenService.issue("u1", "1");
+
+        tokenService.revoke(tokenService.verify(revoked));
+
+        assertNull(tokenService.verify(revoked));
+        // 只吊销这一个令牌
+        assertNotNull(tokenService.verify(other));
+    }
+
+    @Test
+    public void testRevokeUserCutoff() {
+        String before = tokenService.issue("u1", "1");
+        String otherUser = tokenService.issue("u2", "1");
+
+        tokenService.revokeUser("u1");
+
+        assertNull(tokenService.verify(before));
+        assertNotNull(tokenService.verify(otherUser));
+
+        // 吊销之后签发的令牌不受影响
+        clock.addAndGet(1000);
+        assertNotNull(tokenService.verify(tokenService.issue("u1", "1")));
+    }
+
+    @Test
+    public void testDisabledWithoutSecret() {
+        TokenService disabled = new TokenService("", false, TTL_HOURS, revocationList, clock::get);
+
+        assertFalse(disabled.isEnabled());
+        assertNull(disabled.issue("u1", "1"));
+        assertNull(disabled.verify(tokenService.issue("u1", "1")));
+    }
+
+    @Test
+    public void testShortSecret() {
+        assertThrows(IllegalStateException.class, () -> new TokenService("short", false, TTL_HOURS, revocationList, clock::get));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.wechat.catalog;
+
+import org.mockito.Mockito;
+
+import java.util.List;
+
+/**
+ * 供其他包的测试构造 CatalogListing，模拟 Catalog.findAll 的返回值。
+ */
+public final class CatalogTestSupport {
+
+    private CatalogTestSupport() {
+    }
+
+    public static <T> CatalogListing<T> listing(List<T> items) {
+        return new CatalogListing<>(Mockito.mock(Catalog.class), items, System.currentTimeMillis());
+    }
+}
@@ -3,6 +3,7 @@ package com.example.wechat.controller;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
 import com.example.wechat.model.Department;
+import com.example.wechat.mongo.KeysetPage;
 import com.example.wechat.service.DepartmentService;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
@@ -229,11 +230,30 @@ public class DepartmentControllerTests {
         when(departmentService.findAllDepartments()).thenReturn(departments);
 
         // 调用被测试的方法
-        ResponseEntity<String> response = departmentController.findAllDepartments(session);
+        ResponseEntity<Object> response = departmentController.findAllDepartments(null, null, session);
 
         // 验证返回的响应是否正确
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals("{\"code\":200,\"data\":[{\"name\":\"Department 1\"},{\"name\":\"Department 2\"}],\"message\":\"获取所有科室信息成功\"}", response.getBody());
+        assertEquals("{\"code\":200,\"data\":[{\"name\":\"Department 1\"},{\"name\":\"Department 2\"}],\"message\":\"获取所有科室信息成功\"}", response.getBody().toString());
+    }
+
+    @Test
+    public void testFindAllDepartmentsPaged() {
+        // 模拟会话中的用户ID
+        when(session.getAttribute("userId")).thenReturn("1");
+
+        // 模拟分页查找科室，返回一条数据和下一页游标
+        Department department = new Department();
+        department.setName("Department 1");
+        KeysetPage<Department> page = new KeysetPage<>(Collections.singletonList(department), "65f000000000000000000001");
+        when(departmentService.findDepartmentsPage(null, 1)).thenReturn(page);
+
+        // 调用被测试的方法
+        ResponseEntity<Object> response = departmentController.findAllDepartments(null, 1, session);
+
+        // 验证返回的响应是否正确
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("{\"code\":200,\"data\":{\"items\":[{\"name\":\"Department 1\"}],\"nextCursor\":\"65f000000000000000000001\"},\"message\":\"获取所有科室信息成功\"}", response.getBody().toString());
     }
 
     @Test
@@ -242,7 +262,7 @@ public class DepartmentControllerTests {
         when(session.getAttribute("userId")).thenReturn(null);
 
         // 调用被测试的方法
-        ResponseEntity<String> response = departmentController.findAllDepartments(session);
+        ResponseEntity<Object> response = departmentController.findAllDepartments(null, null, session);
 
         // 验证返回的响应是否正确
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
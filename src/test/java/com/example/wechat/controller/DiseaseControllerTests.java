@@ -197,7 +197,7 @@ public class DiseaseControllerTests {
         when(diseaseService.findAllDiseases()).thenReturn(diseases);
 
         // 调用被测试的方法
-        ResponseEntity<String> response = diseaseController.findAllDiseases(session);
+        ResponseEntity<Object> response = diseaseController.findAllDiseases(null, null, session);
 
         // 验证返回的响应是否正确
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -208,7 +208,7 @@ public class DiseaseControllerTests {
         // 模拟会话中没有用户登录
 
         // 调用被测试的方法
-        ResponseEntity<String> response = diseaseController.findAllDiseases(session);
+        ResponseEntity<Object> response = diseaseController.findAllDiseases(null, null, session);
 
         // 验证返回的响应是否正确
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -1,8 +1,14 @@
 package com.example.wechat.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.example.wechat.catalog.CatalogListing;
+import com.example.wechat.catalog.CatalogTestSupport;
 import com.example.wechat.exception.DefaultException;
 import com.example.wechat.exception.IdNotFoundException;
 import com.example.wechat.exception.NameAlreadyExistedException;
@@ -19,10 +25,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.multipart.MultipartFile;
+import utils.Result;
 
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -261,7 +273,7 @@ public class DrugControllerTests {
         when(drugService.findAllDrugs()).thenReturn(drugs);
 
         // 调用被测试的方法
-        ResponseEntity<String> response = drugController.findAllDrugs(session);
+        ResponseEntity<Object> response = drugController.findAllDrugs(null, null, session);
 
         // 验证返回的响应是否正确
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -276,7 +288,7 @@ public class DrugControllerTests {
         when(session.getAttribute("userId")).thenReturn(null);
 
         // 调用被测试的方法
-        ResponseEntity<String> response = drugController.findAllDrugs(session);
+        ResponseEntity<Object> response = drugController.findAllDrugs(null, null, session);
 
         // 验证返回的响应是否正确
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -394,5 +406,32 @@ public class DrugControllerTests {
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
 
+    @Test
+    public void testFindAllDrugsETag() throws Exception {
+        Drug aspirin = new Drug();
+        aspirin.setName("阿司匹林");
+        Drug ibuprofen = new Drug();
+        ibuprofen.setName("布洛芬");
+        CatalogListing<Drug> drugs = CatalogTestSupport.listing(Arrays.asList(aspirin, ibuprofen));
+        when(drugService.findAllDrugs()).thenReturn(drugs);
 
+        // 304 由 Spring MVC 根据 If-None-Match 处理，需要经过 DispatcherServlet
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(drugController).build();
+
+        MvcResult first = mockMvc.perform(get("/drugs/findAllDrugs").sessionAttr("userId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        assertEquals(Result.okGetStringByData("获取所有药品信息成功", drugs),
+                new String(first.getResponse().getContentAsByteArray(), StandardCharsets.UTF_8));
+
+        MvcResult second = mockMvc.perform(get("/drugs/findAllDrugs").sessionAttr("userId", "1")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andReturn();
+        assertEquals(0, second.getResponse().getContentAsByteArray().length);
+    }
 }
@@ -0,0 +1,92 @@
+package com.example.wechat.controller;
+
+import com.example.wechat.export.ExportJob;
+import com.example.wechat.service.ExportService;
+import com.example.wechat.service.FileResponseWriter;
+import com.example.wechat.service.FileService;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.BsonObjectId;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExportControllerTests {
+
+    @Mock
+    private ExportService exportService;
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private FileResponseWriter fileResponseWriter;
+
+    @Mock
+    private HttpSession session;
+
+    @InjectMocks
+    private ExportController exportController;
+
+    private ExportJob completedJob(ObjectId fileId) {
+        ExportJob job = new ExportJob(new ObjectId().toHexString(), "examRecord", "csv");
+        job.setFileId(fileId.toHexString());
+        job.setStatus("已完成");
+        when(exportService.getJob(job.getId())).thenReturn(job);
+        return job;
+    }
+
+    @Test
+    public void testDownloadRequiresAdmin() throws IOException {
+        when(session.getAttribute("authLevel")).thenReturn("1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        exportController.downloadExport(new ObjectId().toHexString(), session, new MockHttpServletRequest(), response);
+
+        assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+        verify(exportService, never()).getJob(any());
+        verify(fileResponseWriter, never()).write(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testDownloadUnfinishedJob() throws IOException {
+        when(session.getAttribute("authLevel")).thenReturn("2");
+        ExportJob job = new ExportJob(new ObjectId().toHexString(), "examRecord", "csv");
+        when(exportService.getJob(job.getId())).thenReturn(job);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        exportController.downloadExport(job.getId(), session, new MockHttpServletRequest(), response);
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        verify(fileResponseWriter, never()).write(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testDownload() throws IOException {
+        when(session.getAttribute("authLevel")).thenReturn("2");
+        ObjectId fileId = new ObjectId();
+        ExportJob job = completedJob(fileId);
+        GridFSFile file = new GridFSFile(new BsonObjectId(fileId), "examRecord.csv", 100, 255 * 1024, new Date(), null);
+        when(fileService.findFileInfo(fileId.toHexString())).thenReturn(file);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        exportController.downloadExport(job.getId(), session, request, response);
+
+        verify(fileResponseWriter).write(file, "attachment", request, response);
+    }
+}
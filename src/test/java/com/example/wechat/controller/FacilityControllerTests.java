@@ -172,7 +172,7 @@ public class FacilityControllerTests {
         when(facilityService.findAllFacilities()).thenReturn(facilities);
 
         // 调用被测试的方法
-        ResponseEntity<String> response = facilityController.findAllFacilities(session);
+        ResponseEntity<Object> response = facilityController.findAllFacilities(null, null, session);
 
         // 验证返回的响应是否正确
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -185,7 +185,7 @@ public class FacilityControllerTests {
         when(session.getAttribute("userId")).thenReturn(null);
 
         // 调用被测试的方法
-        ResponseEntity<String> response = facilityController.findAllFacilities(session);
+        ResponseEntity<Object> response = facilityController.findAllFacilities(null, null, session);
 
         // 验证返回的响应是否正确
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -0,0 +1,65 @@
+package com.example.wechat.controller;
+
+import com.example.wechat.service.FileResponseWriter;
+import com.example.wechat.service.FileService;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileControllerTests {
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private FileResponseWriter fileResponseWriter;
+
+    @InjectMocks
+    private FileController fileController;
+
+    private final ObjectId id = new ObjectId();
+
+    @Test
+    public void testStreamFile() throws IOException {
+        GridFSFile file = new GridFSFile(new BsonObjectId(id), "video.mp4", 100, 255 * 1024, new Date(), null);
+        when(fileService.findFileInfo(id.toHexString())).thenReturn(file);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileController.streamFile(id.toHexString(), request, response);
+
+        verify(fileResponseWriter).write(file, "inline", request, response);
+    }
+
+    @Test
+    public void testRestrictedFileNotServed() throws IOException {
+        GridFSFile file = new GridFSFile(new BsonObjectId(id), "examRecord.csv", 100, 255 * 1024, new Date(),
+                new Document(FileService.RESTRICTED, true));
+        when(fileService.findFileInfo(id.toHexString())).thenReturn(file);
+        when(fileService.isRestricted(file)).thenReturn(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileController.streamFile(id.toHexString(), new MockHttpServletRequest(), response);
+
+        // 导出文件只能通过需要管理员权限的接口下载
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        verify(fileResponseWriter, never()).write(any(), any(), any(), any());
+    }
+}
@@ -165,12 +165,12 @@ public class RoleControllerTests {
         List<Role> roles = new ArrayList<>();
         when(roleService.findAllRoles()).thenReturn(roles);
 
-        ResponseEntity<String> responseEntity = roleController.findAllRoles(session);
+        ResponseEntity<Object> responseEntity = roleController.findAllRoles(null, null, session);
 
         // 验证返回结果是否符合预期
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertNotNull(responseEntity.getBody());
-        assertTrue(responseEntity.getBody().contains("获取所有角色信息成功"));
+        assertTrue(responseEntity.getBody().toString().contains("获取所有角色信息成功"));
     }
 
     @Test
@@ -178,12 +178,12 @@ public class RoleControllerTests {
         // 模拟会话中没有管理员权限
         when(session.getAttribute("authLevel")).thenReturn(null);
 
-        ResponseEntity<String> responseEntity = roleController.findAllRoles(session);
+        ResponseEntity<Object> responseEntity = roleController.findAllRoles(null, null, session);
 
         // 验证返回结果是否符合预期
         assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
         assertNotNull(responseEntity.getBody());
-        assertTrue(responseEntity.getBody().contains("用户未登录或不具备查看权限"));
+        assertTrue(responseEntity.getBody().toString().contains("用户未登录或不具备查看权限"));
     }
 
 
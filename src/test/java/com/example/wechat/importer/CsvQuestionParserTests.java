@@ -0,0 +1,80 @@
+package com.example.wechat.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvQuestionParserTests {
+
+    private static RecordingSink parse(String text) throws IOException {
+        RecordingSink sink = new RecordingSink();
+        new CsvQuestionParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), sink);
+        return sink;
+    }
+
+    @Test
+    public void testChineseHeaderAndCategoryColumn() throws IOException {
+        RecordingSink sink = parse("﻿类别,题干,选项,答案,分值\n"
+                + "传染病,第一题,\"[\"\"甲\"\", \"\"乙\"\"]\",A,5\n"
+                + ",第二题,甲|乙|丙,C,3\n"
+                + "\n"
+                + "外科,\"跨行\n题干\",甲|乙,B,2\n"
+                + "外科,最后一题,甲|乙,A,1\n");
+
+        assertEquals(Collections.emptyList(), sink.errors);
+        assertEquals(4, sink.questions.size());
+
+        ImportedQuestion first = sink.questions.get(0);
+        assertEquals(2, first.getLine());
+        assertEquals("传染病", first.getCategory());
+        assertEquals(Arrays.asList("甲", "乙"), first.getOptionList());
+        assertEquals(Integer.valueOf(5), first.getScore());
+
+        // 空的类别单元格视为没有类别
+        assertNull(sink.questions.get(1).getCategory());
+        assertEquals(3, sink.questions.get(1).getLine());
+
+        // 引号内换行的记录按起始行报告，之后的行号仍然准确
+        assertEquals("跨行\n题干", sink.questions.get(2).getStem());
+        assertEquals(5, sink.questions.get(2).getLine());
+        assertEquals(7, sink.questions.get(3).getLine());
+    }
+
+    @Test
+    public void testEnglishHeaderInAnyOrder() throws IOException {
+        RecordingSink sink = parse("Score,Answer,Stem,Options\n5,B,题干,甲|乙\n");
+
+        assertEquals(Collections.emptyList(), sink.errors);
+        ImportedQuestion question = sink.questions.get(0);
+        assertEquals("题干", question.getStem());
+        assertEquals("B", question.getAnswer());
+        assertEquals(Integer.valueOf(5), question.getScore());
+        assertNull(question.getCategory());
+    }
+
+    @Test
+    public void testMissingStemColumn() throws IOException {
+        RecordingSink sink = parse("类别,选项,答案,分值\n传染病,甲|乙,A,5\n");
+
+        assertEquals(Collections.singletonList("1: 表头缺少题干列"), sink.errors);
+        assertTrue(sink.questions.isEmpty());
+    }
+
+    @Test
+    public void testInvalidScoreSkipsOnlyThatRow() throws IOException {
+        RecordingSink sink = parse("题干,选项,答案,分值\n"
+                + "第一题,甲|乙,A,abc\n"
+                + "第二题,甲|乙,A,5\n");
+
+        assertEquals(Collections.singletonList("2: 分值不是整数: abc"), sink.errors);
+        assertEquals(1, sink.questions.size());
+        assertEquals("第二题", sink.questions.get(0).getStem());
+        assertEquals(3, sink.questions.get(0).getLine());
+    }
+}
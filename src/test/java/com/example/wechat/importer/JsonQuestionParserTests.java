@@ -0,0 +1,82 @@
+package com.example.wechat.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonQuestionParserTests {
+
+    private static RecordingSink parse(String text) throws IOException {
+        RecordingSink sink = new RecordingSink();
+        new JsonQuestionParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), sink);
+        return sink;
+    }
+
+    @Test
+    public void testNdjsonCategoryForms() throws IOException {
+        RecordingSink sink = parse("{\"stem\": \"第一题\", \"optionList\": [\"甲\", \"乙\"], \"answer\": \"A\", \"score\": 5, \"category\": \"传染病\"}\n"
+                + "{\"stem\": \"第二题\", \"optionList\": \"甲|乙\", \"answer\": \"B\", \"score\": 3, \"category\": {\"name\": \"外科\"}}\n"
+                + "{\"stem\": \"第三题\", \"optionList\": [\"甲\", \"乙\"], \"answer\": \"B\", \"score\": 1}\n");
+
+        assertEquals(Collections.emptyList(), sink.errors);
+        assertEquals(3, sink.questions.size());
+
+        ImportedQuestion first = sink.questions.get(0);
+        assertEquals(1, first.getLine());
+        assertEquals("传染病", first.getCategory());
+        assertEquals(Arrays.asList("甲", "乙"), first.getOptionList());
+        assertEquals(Integer.valueOf(5), first.getScore());
+
+        // category 也可以是导出格式中带 name 的对象，选项也可以是字符串
+        ImportedQuestion second = sink.questions.get(1);
+        assertEquals(2, second.getLine());
+        assertEquals("外科", second.getCategory());
+        assertEquals(Arrays.asList("甲", "乙"), second.getOptionList());
+
+        assertNull(sink.questions.get(2).getCategory());
+        assertEquals(3, sink.questions.get(2).getLine());
+    }
+
+    @Test
+    public void testTopLevelArray() throws IOException {
+        RecordingSink sink = parse("[\n"
+                + "  {\"stem\": \"第一题\", \"optionList\": [\"甲\", \"乙\"], \"answer\": \"A\", \"score\": 5},\n"
+                + "  {\"stem\": \"第二题\", \"optionList\": [\"甲\", \"乙\"], \"answer\": \"B\", \"score\": \"x\"}\n"
+                + "]\n");
+
+        assertEquals(Collections.emptyList(), sink.errors);
+        assertEquals(2, sink.questions.size());
+        assertEquals(2, sink.questions.get(0).getLine());
+        assertEquals(3, sink.questions.get(1).getLine());
+        // 分值不是整数时留空，由导入服务报告
+        assertNull(sink.questions.get(1).getScore());
+    }
+
+    @Test
+    public void testNonObjectValue() throws IOException {
+        RecordingSink sink = parse("{\"stem\": \"第一题\"}\n"
+                + "\"不是对象\"\n"
+                + "{\"stem\": \"第三题\"}\n");
+
+        assertEquals(Collections.singletonList("2: 不是 JSON 对象"), sink.errors);
+        assertEquals(2, sink.questions.size());
+        assertEquals("第三题", sink.questions.get(1).getStem());
+    }
+
+    @Test
+    public void testSyntaxErrorStopsParsing() throws IOException {
+        RecordingSink sink = parse("{\"stem\": \"第一题\"}\n"
+                + "{\"stem\": \"第二题\",,}\n"
+                + "{\"stem\": \"第三题\"}\n");
+
+        assertEquals(1, sink.questions.size());
+        assertEquals(1, sink.errors.size());
+        assertTrue(sink.errors.get(0).startsWith("2: JSON 格式错误"), sink.errors.get(0));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.wechat.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 记录解析器回调的 QuestionSink，错误按“行号: 信息”保存。
+ */
+class RecordingSink implements QuestionSink {
+
+    final List<ImportedQuestion> questions = new ArrayList<>();
+    final List<String> errors = new ArrayList<>();
+
+    @Override
+    public void accept(ImportedQuestion question) {
+        questions.add(question);
+    }
+
+    @Override
+    public void error(int line, String message) {
+        errors.add(line + ": " + message);
+    }
+}
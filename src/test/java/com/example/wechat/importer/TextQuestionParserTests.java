@@ -0,0 +1,96 @@
+package com.example.wechat.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextQuestionParserTests {
+
+    private static RecordingSink parse(String text) throws IOException {
+        RecordingSink sink = new RecordingSink();
+        new TextQuestionParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), sink);
+        return sink;
+    }
+
+    @Test
+    public void testCategoryLines() throws IOException {
+        RecordingSink sink = parse("﻿传染病\n"
+                + "\n"
+                + "题干: 第一题\n"
+                + "选项: [\"甲\", \"乙\"]\n"
+                + "答案: A\n"
+                + "分值: 5\n"
+                + "\n"
+                + "题干：第二题\n"
+                + "选项：甲|乙|丙\n"
+                + "答案：BC\n"
+                + "分值：3\n"
+                + "外科\n"
+                + "题干: 第三题\n"
+                + "选项: 甲,乙\n"
+                + "答案: B\n"
+                + "分值: 2\n");
+
+        assertEquals(Collections.emptyList(), sink.errors);
+        assertEquals(3, sink.questions.size());
+
+        ImportedQuestion first = sink.questions.get(0);
+        assertEquals(3, first.getLine());
+        assertEquals("传染病", first.getCategory());
+        assertEquals("第一题", first.getStem());
+        assertEquals(Arrays.asList("甲", "乙"), first.getOptionList());
+        assertEquals("A", first.getAnswer());
+        assertEquals(Integer.valueOf(5), first.getScore());
+
+        // 全角冒号与半角冒号等价，类别沿用到下一个类别行
+        ImportedQuestion second = sink.questions.get(1);
+        assertEquals(8, second.getLine());
+        assertEquals("传染病", second.getCategory());
+        assertEquals(Arrays.asList("甲", "乙", "丙"), second.getOptionList());
+        assertEquals("BC", second.getAnswer());
+
+        // 类别行同时结束上一道题，不需要空行
+        ImportedQuestion third = sink.questions.get(2);
+        assertEquals(13, third.getLine());
+        assertEquals("外科", third.getCategory());
+    }
+
+    @Test
+    public void testFieldBeforeStem() throws IOException {
+        RecordingSink sink = parse("选项: 甲|乙\n"
+                + "答案: A\n"
+                + "\n"
+                + "题干: 有题干\n"
+                + "选项: 甲|乙\n"
+                + "答案: A\n"
+                + "分值: 1\n");
+
+        assertEquals(Arrays.asList("1: 缺少题干", "2: 缺少题干"), sink.errors);
+        assertEquals(1, sink.questions.size());
+        assertEquals("有题干", sink.questions.get(0).getStem());
+        assertNull(sink.questions.get(0).getCategory());
+    }
+
+    @Test
+    public void testInvalidScoreSkipsOnlyThatQuestion() throws IOException {
+        RecordingSink sink = parse("题干: 分值错误\n"
+                + "选项: 甲|乙\n"
+                + "答案: A\n"
+                + "分值: 五\n"
+                + "\n"
+                + "题干: 正常\n"
+                + "选项: 甲|乙\n"
+                + "答案: B\n"
+                + "分值: 5\n");
+
+        assertEquals(Collections.singletonList("4: 分值不是整数: 五"), sink.errors);
+        assertEquals(1, sink.questions.size());
+        assertEquals("正常", sink.questions.get(0).getStem());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.wechat.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用手动推进的时钟测试 RateLimiter。
+ */
+public class RateLimiterTests {
+
+    private static final long INTERVAL_MS = 1000;
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    private RateLimiter limiter(int capacity, int maxKeys) {
+        return new RateLimiter("test", capacity, INTERVAL_MS, TimeUnit.MILLISECONDS, maxKeys, clock::get);
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    public void testBurstCapacity() {
+        RateLimiter limiter = limiter(3, 10);
+
+        assertTrue(limiter.tryAcquire("u1"));
+        assertTrue(limiter.tryAcquire("u1"));
+        assertTrue(limiter.tryAcquire("u1"));
+        assertFalse(limiter.tryAcquire("u1"));
+
+        // 各 key 的桶相互独立
+        assertTrue(limiter.tryAcquire("u2"));
+        assertEquals(4L, limiter.snapshot().get("allowed"));
+        assertEquals(1L, limiter.snapshot().get("rejected"));
+    }
+
+    @Test
+    public void testRefillAfterInterval() {
+        RateLimiter limiter = limiter(2, 10);
+        assertTrue(limiter.tryAcquire("u1"));
+        assertTrue(limiter.tryAcquire("u1"));
+        assertFalse(limiter.tryAcquire("u1"));
+
+        advance(INTERVAL_MS - 1);
+        assertFalse(limiter.tryAcquire("u1"));
+
+        // 每个 interval 只补充一个令牌
+        advance(1);
+        assertTrue(limiter.tryAcquire("u1"));
+        assertFalse(limiter.tryAcquire("u1"));
+
+        // 空闲足够久后桶补满，但不超过容量
+        advance(INTERVAL_MS * 10);
+        assertTrue(limiter.tryAcquire("u1"));
+        assertTrue(limiter.tryAcquire("u1"));
+        assertFalse(limiter.tryAcquire("u1"));
+    }
+
+    @Test
+    public void testRefund() {
+        RateLimiter limiter = limiter(1, 10);
+        assertTrue(limiter.tryAcquire("u1"));
+        assertFalse(limiter.tryAcquire("u1"));
+
+        limiter.refund("u1");
+        assertTrue(limiter.tryAcquire("u1"));
+        assertFalse(limiter.tryAcquire("u1"));
+
+        // 没有记录的 key 归还令牌不产生状态
+        limiter.refund("u2");
+        assertEquals(1, limiter.snapshot().get("trackedKeys"));
+    }
+
+    @Test
+    public void testOverflow() {
+        RateLimiter limiter = limiter(1, 2);
+        assertTrue(limiter.tryAcquire("u1"));
+        assertTrue(limiter.tryAcquire("u2"));
+
+        // 表满且没有可清理的 key 时拒绝新 key，已有 key 不受影响
+        assertFalse(limiter.tryAcquire("u3"));
+        assertEquals(1L, limiter.snapshot().get("overflow"));
+        assertEquals(2, limiter.snapshot().get("trackedKeys"));
+
+        // 桶补满的 key 被清理后腾出空位
+        advance(INTERVAL_MS);
+        assertTrue(limiter.tryAcquire("u3"));
+        assertEquals(1, limiter.snapshot().get("trackedKeys"));
+    }
+
+    @Test
+    public void testSweep() {
+        RateLimiter limiter = limiter(2, 10);
+        assertTrue(limiter.tryAcquire("u1"));
+        assertTrue(limiter.tryAcquire("u2"));
+        assertTrue(limiter.tryAcquire("u2"));
+
+        advance(INTERVAL_MS);
+        limiter.sweep();
+        // u1 已补满被删除，u2 还差一个令牌
+        assertEquals(1, limiter.snapshot().get("trackedKeys"));
+
+        advance(INTERVAL_MS);
+        limiter.sweep();
+        assertEquals(0, limiter.snapshot().get("trackedKeys"));
+    }
+}
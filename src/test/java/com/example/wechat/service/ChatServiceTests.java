@@ -0,0 +1,171 @@
+package com.example.wechat.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.wechat.exception.DefaultException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用本地的模拟补全服务测试 ChatService，不访问真实的 AI 服务。
+ */
+public class ChatServiceTests {
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    // 模拟服务的响应方式：stream / json / error / block
+    private volatile String mode = "stream";
+
+    // block 模式下，收到 release 信号前不返回
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    // 最近一次收到的请求体
+    private volatile String lastRequestBody;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/chat/completions", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        lastRequestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        switch (mode) {
+            case "error":
+                exchange.sendResponseHeaders(500, -1);
+                break;
+            case "json":
+                write(exchange, "application/json",
+                        "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"多喝水\"}}]}");
+                break;
+            case "block":
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                write(exchange, "text/event-stream", chunk("好") + "data: [DONE]\n\n");
+                break;
+            default:
+                write(exchange, "text/event-stream",
+                        chunk("建议") + chunk("及时") + chunk("就医") + "data: [DONE]\n\n");
+        }
+        exchange.close();
+    }
+
+    private static String chunk(String content) {
+        return "data: {\"choices\":[{\"delta\":{\"content\":\"" + content + "\"}}]}\n\n";
+    }
+
+    private static void write(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private ChatService chatService(int maxConcurrent, int maxQueuedPerUser) {
+        return new ChatService(baseUrl, "", "", 5, maxConcurrent, maxQueuedPerUser);
+    }
+
+    @Test
+    public void testStreamTokens() throws Exception {
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        String content = chatService(2, 2).chat("u1", "狗狗拉肚子怎么办", tokens::add).get(5, TimeUnit.SECONDS);
+
+        assertEquals("建议及时就医", content);
+        assertEquals(List.of("建议", "及时", "就医"), tokens);
+    }
+
+    @Test
+    public void testChatId() throws Exception {
+        ChatService chatService = chatService(2, 2);
+
+        chatService.chat("u1", "狗狗拉肚子怎么办", token -> { }).get(5, TimeUnit.SECONDS);
+        assertEquals("u1", JSON.parseObject(lastRequestBody).getString("chatId"));
+
+        // 独立提问不带对话上下文
+        chatService.chat("u1", "狗狗拉肚子怎么办", true, token -> { }).get(5, TimeUnit.SECONDS);
+        assertFalse(JSON.parseObject(lastRequestBody).containsKey("chatId"));
+    }
+
+    @Test
+    public void testNonStreamResponse() throws Exception {
+        mode = "json";
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        String content = chatService(2, 2).chat("u1", "猫咪发烧怎么办", tokens::add).get(5, TimeUnit.SECONDS);
+
+        assertEquals("多喝水", content);
+        assertEquals(List.of("多喝水"), tokens);
+    }
+
+    @Test
+    public void testUpstreamError() {
+        mode = "error";
+
+        CompletableFuture<String> future = chatService(2, 2).chat("u1", "你好", token -> { });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof DefaultException);
+    }
+
+    @Test
+    public void testPerUserQueueLimit() throws Exception {
+        mode = "block";
+        ChatService chatService = chatService(1, 1);
+
+        CompletableFuture<String> first = chatService.chat("u1", "1", token -> { });
+        CompletableFuture<String> queued = chatService.chat("u1", "2", token -> { });
+        assertThrows(DefaultException.class, () -> chatService.chat("u1", "3", token -> { }));
+
+        // 其他用户不受 u1 排队数量的影响，但要等待并发名额
+        CompletableFuture<String> other = chatService.chat("u2", "1", token -> { });
+        assertEquals(1, chatService.getChatStats().get("running"));
+        assertEquals(2, chatService.getChatStats().get("queued"));
+
+        release.countDown();
+        assertEquals("好", first.get(5, TimeUnit.SECONDS));
+        assertEquals("好", other.get(5, TimeUnit.SECONDS));
+        assertEquals("好", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCancelQueuedRequest() throws Exception {
+        mode = "block";
+        ChatService chatService = chatService(1, 2);
+
+        CompletableFuture<String> first = chatService.chat("u1", "1", token -> { });
+        CompletableFuture<String> queued = chatService.chat("u2", "1", token -> { });
+        queued.cancel(false);
+        assertEquals(0, chatService.getChatStats().get("queued"));
+
+        release.countDown();
+        assertEquals("好", first.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.wechat.service;
+
+import com.example.wechat.exception.DefaultException;
+import com.example.wechat.model.Exam;
+import com.example.wechat.model.ExamRecord;
+import com.example.wechat.model.Question;
+import com.example.wechat.model.QuestionRecord;
+import com.example.wechat.repository.UserRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExamGradingServiceTests {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ExamQuestionCache examQuestionCache;
+
+    @Mock
+    private UserStatsService userStatsService;
+
+    @Mock
+    private ExamLeaderboard examLeaderboard;
+
+    @InjectMocks
+    private ExamGradingService examGradingService;
+
+    private final ObjectId examId = new ObjectId();
+    private final ObjectId userId = new ObjectId();
+    private final ObjectId questionId = new ObjectId();
+
+    private List<Question> questionList;
+
+    @BeforeEach
+    public void setUp() {
+        Exam exam = new Exam();
+        exam.setId(examId);
+        exam.setStatus("进行中");
+        when(mongoTemplate.findOne(any(Query.class), eq(Exam.class))).thenReturn(exam);
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        Question question = new Question();
+        question.setId(questionId);
+        questionList = Collections.singletonList(question);
+    }
+
+    private void mockAnswerKey() {
+        when(examQuestionCache.get(examId)).thenReturn(new ExamQuestionCache.CachedExam(questionList,
+                Collections.singletonMap(questionId, new ExamQuestionCache.AnswerKey("A", 5, null))));
+    }
+
+    private ExamRecord record(String status, int score) {
+        ExamRecord record = new ExamRecord();
+        record.setId(new ObjectId());
+        record.setStatus(status);
+        record.setScore(score);
+        return record;
+    }
+
+    @Test
+    public void testAlreadyCompleted() {
+        when(mongoTemplate.findOne(any(Query.class), eq(ExamRecord.class))).thenReturn(record("已完成", 5));
+
+        DefaultException e = assertThrows(DefaultException.class, () ->
+                examGradingService.grade(Collections.singletonList("A"), questionList, examId.toHexString(), userId.toHexString()));
+
+        assertEquals("你已经进行过此考试", e.getMessage());
+        verify(mongoTemplate, never()).insert(any(ExamRecord.class));
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(QuestionRecord.class));
+        verify(examLeaderboard, never()).onRecordCompleted(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testConcurrentFirstSubmission() {
+        mockAnswerKey();
+        when(mongoTemplate.insert(any(ExamRecord.class))).thenThrow(new DuplicateKeyException("E11000"));
+
+        DefaultException e = assertThrows(DefaultException.class, () ->
+                examGradingService.grade(Collections.singletonList("A"), questionList, examId.toHexString(), userId.toHexString()));
+
+        assertEquals("你已经进行过此考试", e.getMessage());
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(QuestionRecord.class));
+        verify(examLeaderboard, never()).onRecordCompleted(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testQuestionRecordFailureReleasesExamRecord() {
+        mockAnswerKey();
+        when(mongoTemplate.findOne(any(Query.class), eq(ExamRecord.class))).thenReturn(record("未完成", 0));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ExamRecord.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, QuestionRecord.class)).thenReturn(bulk);
+        when(bulk.execute()).thenThrow(new DataAccessResourceFailureException("写入失败"));
+
+        assertThrows(DataAccessResourceFailureException.class, () ->
+                examGradingService.grade(Collections.singletonList("A"), questionList, examId.toHexString(), userId.toHexString()));
+
+        // 第一次标记为已完成，第二次恢复为未完成
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(any(Query.class), updates.capture(), eq(ExamRecord.class));
+        Document restored = updates.getAllValues().get(1).getUpdateObject().get("$set", Document.class);
+        assertEquals("未完成", restored.get("status"));
+        assertEquals(0, restored.get("score"));
+        verify(mongoTemplate).remove(any(Query.class), eq(QuestionRecord.class));
+        verify(examLeaderboard, never()).onRecordCompleted(any(), any(), anyInt());
+        verify(userStatsService, never()).recordAnswers(any(), any(), any());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.wechat.service;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExamLeaderboardTests {
+
+    // 只用于 top 补用户名，未设置时返回空列表
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private ExamLeaderboard examLeaderboard;
+
+    private final ObjectId examId = new ObjectId();
+
+    private ObjectId addScore(int score) {
+        ObjectId userId = new ObjectId();
+        examLeaderboard.onRecordCompleted(examId, userId, score);
+        return userId;
+    }
+
+    private Map<String, Object> rank(ObjectId userId) {
+        return examLeaderboard.rank(examId.toHexString(), userId.toHexString());
+    }
+
+    private List<Object> topRanks(int limit) {
+        List<Object> ranks = new ArrayList<>();
+        for (Map<String, Object> entry : examLeaderboard.top(examId.toHexString(), limit)) {
+            ranks.add(entry.get("rank"));
+        }
+        return ranks;
+    }
+
+    @Test
+    public void testTies() {
+        ObjectId first = addScore(90);
+        ObjectId second = addScore(80);
+        ObjectId third = addScore(80);
+        ObjectId last = addScore(70);
+
+        assertEquals(List.of(1, 2, 2, 4), topRanks(10));
+        assertEquals(1, rank(first).get("rank"));
+        assertEquals(2, rank(second).get("rank"));
+        assertEquals(2, rank(third).get("rank"));
+        assertEquals(4, rank(last).get("rank"));
+        assertEquals(0.0, rank(last).get("percentile"));
+        assertEquals(4, rank(last).get("total"));
+    }
+
+    @Test
+    public void testScoreUpdateMovesEntry() {
+        addScore(90);
+        addScore(80);
+        ObjectId user = addScore(50);
+        assertEquals(3, rank(user).get("rank"));
+
+        // 超过树状数组的初始容量，同时触发扩容
+        examLeaderboard.onRecordCompleted(examId, user, 500);
+
+        Map<String, Object> rank = rank(user);
+        assertEquals(1, rank.get("rank"));
+        assertEquals(500, rank.get("score"));
+        assertEquals(3, rank.get("total"));
+        List<Map<String, Object>> top = examLeaderboard.top(examId.toHexString(), 1);
+        assertEquals(user.toHexString(), top.get(0).get("userId"));
+        assertEquals(500, top.get(0).get("score"));
+    }
+
+    @Test
+    public void testNegativeScore() {
+        addScore(10);
+        ObjectId negative = addScore(-5);
+        ObjectId zero = addScore(0);
+
+        // 负分按 0 分计，排行榜与名次查询给出相同的结果
+        assertEquals(List.of(1, 2, 2), topRanks(10));
+        assertEquals(2, rank(negative).get("rank"));
+        assertEquals(0, rank(negative).get("score"));
+        assertEquals(2, rank(zero).get("rank"));
+        for (Map<String, Object> entry : examLeaderboard.top(examId.toHexString(), 10)) {
+            if (negative.toHexString().equals(entry.get("userId"))) {
+                assertEquals(rank(negative).get("rank"), entry.get("rank"));
+                assertEquals(0, entry.get("score"));
+            }
+        }
+    }
+
+    @Test
+    public void testRankBeyondTop() {
+        List<ObjectId> users = new ArrayList<>();
+        for (int score = 100; score > 80; score--) {
+            users.add(addScore(score));
+        }
+
+        assertEquals(List.of(1, 2, 3, 4, 5), topRanks(5));
+        Map<String, Object> rank = rank(users.get(19));
+        assertEquals(20, rank.get("rank"));
+        assertEquals(81, rank.get("score"));
+        assertEquals(0.0, rank.get("percentile"));
+        assertEquals(10, rank(users.get(9)).get("rank"));
+        assertEquals(50.0, rank(users.get(9)).get("percentile"));
+    }
+
+    @Test
+    public void testRemoveExam() {
+        ObjectId user = addScore(60);
+        examLeaderboard.removeExam(examId);
+
+        assertNull(rank(user));
+        assertTrue(examLeaderboard.top(examId.toHexString(), 10).isEmpty());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.wechat.service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.BsonObjectId;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileResponseWriterTests {
+
+    @Mock
+    private FileService fileService;
+
+    @InjectMocks
+    private FileResponseWriter fileResponseWriter;
+
+    private final ObjectId id = new ObjectId();
+
+    private GridFSFile file;
+
+    private GridFSFile mockFile(long length) {
+        file = new GridFSFile(new BsonObjectId(id), "video.mp4", length, 255 * 1024, new Date(), null);
+        when(fileService.getContentType(file)).thenReturn("video/mp4");
+        return file;
+    }
+
+    private MockHttpServletResponse stream(String range) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileResponseWriter.write(file, "inline", request, response);
+        return response;
+    }
+
+    @Test
+    public void testRangeStartPastEnd() throws IOException {
+        mockFile(100);
+
+        MockHttpServletResponse response = stream("bytes=500-");
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+        assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        verify(fileService, never()).copyRange(any(), anyLong(), anyLong(), any(OutputStream.class));
+    }
+
+    @Test
+    public void testRangeStartAtEnd() throws IOException {
+        mockFile(100);
+
+        MockHttpServletResponse response = stream("bytes=100-");
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+        assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    public void testSuffixRange() throws IOException {
+        GridFSFile file = mockFile(100);
+
+        MockHttpServletResponse response = stream("bytes=-10");
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals("bytes 90-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(10, response.getContentLengthLong());
+        verify(fileService).copyRange(eq(file), eq(90L), eq(10L), any(OutputStream.class));
+    }
+
+    @Test
+    public void testSuffixRangeLongerThanFile() throws IOException {
+        GridFSFile file = mockFile(100);
+
+        MockHttpServletResponse response = stream("bytes=-500");
+
+        // 后缀长度超过文件长度时返回整个文件
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals("bytes 0-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        verify(fileService).copyRange(eq(file), eq(0L), eq(100L), any(OutputStream.class));
+    }
+
+    @Test
+    public void testZeroLengthFileWithRange() throws IOException {
+        mockFile(0);
+
+        MockHttpServletResponse response = stream("bytes=0-");
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+        assertEquals("bytes */0", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        verify(fileService, never()).copyRange(any(), anyLong(), anyLong(), any(OutputStream.class));
+    }
+
+    @Test
+    public void testZeroLengthFileWithoutRange() throws IOException {
+        GridFSFile file = mockFile(0);
+
+        MockHttpServletResponse response = stream(null);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(0, response.getContentLengthLong());
+        verify(fileService).copyRange(eq(file), eq(0L), eq(0L), any(OutputStream.class));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.wechat.service;
+
+import com.example.wechat.importer.ImportJob;
+import com.example.wechat.importer.TextQuestionParser;
+import com.example.wechat.model.Question;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class QuestionImportServiceTests {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private QuestionImportService questionImportService;
+
+    @Test
+    public void testNormalizeStem() {
+        assertEquals("题干 内容", QuestionImportService.normalizeStem("  题干 \t\n 内容　"));
+        assertEquals("题干内容", QuestionImportService.normalizeStem("题干内容"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDuplicatesUseNormalizedStem() throws IOException {
+        when(mongoTemplate.getCollectionName(Question.class)).thenReturn("question");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("question"))).thenReturn(
+                Collections.singletonList(new Document("stem", "已有 题干")));
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Question.class)).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenReturn(bulk);
+
+        String text = "题干: 已有\t 题干\n选项: 甲|乙\n答案: A\n分值: 1\n\n"
+                + "题干: 新 题干\n选项: 甲|乙\n答案: A\n分值: 1\n\n"
+                + "题干: 新   题干 \n选项: 甲|乙\n答案: B\n分值: 1\n";
+        ImportJob job = questionImportService.importNow(new TextQuestionParser(),
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), "test");
+
+        // 文件内和题库中的重复都按同一规范化形式判断
+        assertEquals(3, job.getParsed());
+        assertEquals(2, job.getDuplicates());
+        assertEquals(1, job.getInserted());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Document.class), eq("question"));
+        Collection<String> stems = (Collection<String>) query.getValue().getQueryObject().get("stem", Document.class).get("$in");
+        assertTrue(stems.contains("已有 题干"));
+        assertTrue(stems.contains("新 题干"));
+
+        ArgumentCaptor<List<Question>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bulk).insert(inserted.capture());
+        assertEquals(1, inserted.getValue().size());
+        assertEquals("新 题干", inserted.getValue().get(0).getStem());
+    }
+}
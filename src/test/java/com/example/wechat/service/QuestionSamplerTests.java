@@ -0,0 +1,91 @@
+package com.example.wechat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QuestionSampler.allocate 的名额分配。
+ */
+public class QuestionSamplerTests {
+
+    private static int total(List<QuestionSampler.Stratum> strata) {
+        int total = 0;
+        for (QuestionSampler.Stratum stratum : strata) {
+            assertTrue(stratum.quota <= stratum.available);
+            total += stratum.quota;
+        }
+        return total;
+    }
+
+    @Test
+    public void testExactTotal() {
+        List<QuestionSampler.Stratum> strata = Arrays.asList(
+                new QuestionSampler.Stratum("a", null, 30),
+                new QuestionSampler.Stratum("a", null, 10),
+                new QuestionSampler.Stratum("b", null, 5),
+                new QuestionSampler.Stratum("c", null, 50));
+
+        QuestionSampler.allocate(20, strata, null);
+
+        assertEquals(20, total(strata));
+    }
+
+    @Test
+    public void testStratumSmallerThanQuota() {
+        QuestionSampler.Stratum small = new QuestionSampler.Stratum("a", 1, 1);
+        List<QuestionSampler.Stratum> strata = Arrays.asList(
+                small,
+                new QuestionSampler.Stratum("a", 5, 100),
+                new QuestionSampler.Stratum("b", 1, 100));
+
+        QuestionSampler.allocate(10, strata, Map.of(1, 1.0, 5, 1.0));
+
+        // 该层只能给出 1 道题，其余名额由其他层补足
+        assertEquals(1, small.quota);
+        assertEquals(10, total(strata));
+    }
+
+    @Test
+    public void testNotEnoughQuestions() {
+        List<QuestionSampler.Stratum> strata = Arrays.asList(
+                new QuestionSampler.Stratum("a", null, 2),
+                new QuestionSampler.Stratum("b", null, 3));
+
+        QuestionSampler.allocate(10, strata, null);
+
+        assertEquals(2, strata.get(0).quota);
+        assertEquals(3, strata.get(1).quota);
+    }
+
+    @Test
+    public void testRemainderByLargestFraction() {
+        List<QuestionSampler.Stratum> strata = Arrays.asList(
+                new QuestionSampler.Stratum("a", 1, 100),
+                new QuestionSampler.Stratum("a", 2, 100),
+                new QuestionSampler.Stratum("a", 3, 100));
+
+        // 3.5 / 2.1 / 1.4 取整后剩 1 个名额，给小数部分最大的第一层
+        QuestionSampler.allocate(7, strata, Map.of(1, 0.5, 2, 0.3, 3, 0.2));
+
+        assertEquals(4, strata.get(0).quota);
+        assertEquals(2, strata.get(1).quota);
+        assertEquals(1, strata.get(2).quota);
+    }
+
+    @Test
+    public void testUnweightedScoreGetsNothing() {
+        List<QuestionSampler.Stratum> strata = Arrays.asList(
+                new QuestionSampler.Stratum("a", 1, 100),
+                new QuestionSampler.Stratum("a", 9, 100));
+
+        QuestionSampler.allocate(5, strata, Map.of(1, 1.0));
+
+        assertEquals(5, strata.get(0).quota);
+        assertEquals(0, strata.get(1).quota);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.wechat.service;
+
+import com.example.wechat.auth.LoginAttemptCache;
+import com.example.wechat.auth.PasswordHasher;
+import com.example.wechat.model.User;
+import com.example.wechat.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserServiceTests {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @InjectMocks
+    private UserService userService;
+
+    private static final String CLIENT = "10.0.0.1";
+
+    @BeforeEach
+    public void setUp() {
+        // 使用真实的失败缓存
+        ReflectionTestUtils.setField(userService, "loginAttemptCache", new LoginAttemptCache(5, 15, 100));
+
+        User user = new User();
+        user.setId(new ObjectId());
+        user.setUsername("alice");
+        user.setPassword("hash");
+        user.setAuth("1");
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    public void testWrongAuthLevelThenCorrectAuthLevel() {
+        when(passwordHasher.matches("right", "hash")).thenReturn(true);
+
+        // 正确的密码选错了权限等级，不计算哈希
+        assertFalse(userService.tryLogin("alice", "right", "2", CLIENT).isPresent());
+        verify(passwordHasher, never()).matches(anyString(), anyString());
+
+        // 随后以正确的权限等级登录不受影响
+        assertTrue(userService.tryLogin("alice", "right", "1", CLIENT).isPresent());
+    }
+
+    @Test
+    public void testRepeatedWrongPasswordSkipsLookup() {
+        when(passwordHasher.matches("wrong", "hash")).thenReturn(false);
+
+        assertFalse(userService.tryLogin("alice", "wrong", "1", CLIENT).isPresent());
+        assertFalse(userService.tryLogin("alice", "wrong", "1", CLIENT).isPresent());
+
+        // 第二次直接判为失败，不查库也不计算哈希
+        verify(userRepository, times(1)).findByUsername("alice");
+        verify(passwordHasher, times(1)).matches("wrong", "hash");
+    }
+}
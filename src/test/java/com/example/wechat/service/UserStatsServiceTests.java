@@ -0,0 +1,109 @@
+package com.example.wechat.service;
+
+import com.example.wechat.model.Question;
+import com.example.wechat.model.QuestionRecord;
+import com.example.wechat.model.UserStats;
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserStatsServiceTests {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private UserStatsService userStatsService;
+
+    private static <T> CloseableIterator<T> iterator(List<T> items) {
+        Iterator<T> it = items.iterator();
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return it.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static Document record(ObjectId userId, ObjectId questionId, boolean correct) {
+        return new Document("_id", new ObjectId())
+                .append("user", new DBRef("user", userId))
+                .append("question", new DBRef("question", questionId))
+                .append("TorF", correct)
+                .append("time", new Date());
+    }
+
+    private static UserStats stats(ObjectId userId, ObjectId categoryId) {
+        UserStats stats = new UserStats();
+        stats.setId(new ObjectId());
+        stats.setUserId(userId);
+        stats.setCategoryId(categoryId);
+        return stats;
+    }
+
+    @Test
+    public void testRebuildUpsertsInsteadOfClearing() {
+        ObjectId userId = new ObjectId();
+        ObjectId questionId = new ObjectId();
+        ObjectId categoryId = new ObjectId();
+        when(mongoTemplate.getCollectionName(Question.class)).thenReturn("question");
+        when(mongoTemplate.getCollectionName(QuestionRecord.class)).thenReturn("questionRecord");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("question"))).thenReturn(
+                Collections.singletonList(new Document("_id", questionId).append("category", new DBRef("category", categoryId))));
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("questionRecord"))).thenReturn(
+                iterator(Arrays.asList(record(userId, questionId, true), record(userId, questionId, false))));
+        // 一条仍有答题记录的统计和一条已经没有答题记录的统计
+        UserStats stale = stats(new ObjectId(), null);
+        when(mongoTemplate.stream(any(Query.class), eq(UserStats.class))).thenReturn(
+                iterator(Arrays.asList(stats(userId, null), stale)));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("questionRecord"))).thenReturn(Collections.emptyList());
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserStats.class)).thenReturn(bulk);
+
+        assertEquals(2, userStatsService.rebuild());
+
+        // 总计和病类两条统计都设置为重新计算的值
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).upsert(any(Query.class), updates.capture());
+        for (Update update : updates.getAllValues()) {
+            Document set = update.getUpdateObject().get("$set", Document.class);
+            assertEquals(2L, set.get("attempts"));
+            assertEquals(1L, set.get("correct"));
+        }
+        verify(bulk, never()).insert(anyList());
+
+        // 只删除没有答题记录的统计，不清空集合
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(UserStats.class));
+        assertEquals(new Document("_id", new Document("$in", Collections.singletonList(stale.getId()))),
+                removed.getValue().getQueryObject());
+    }
+}
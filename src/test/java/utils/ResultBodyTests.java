@@ -0,0 +1,76 @@
+package utils;
+
+import com.example.wechat.config.ResultBodyHttpMessageConverter;
+import com.example.wechat.model.Drug;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ResultBody 流式写出的字节与 Result.okGetStringByData 的 UTF-8 编码相同。
+ */
+public class ResultBodyTests {
+
+    private static final String MESSAGE = "获取所有药品信息成功";
+
+    private static Drug drug(String name) {
+        Drug drug = new Drug();
+        drug.setName(name);
+        return drug;
+    }
+
+    // 经过消息转换器写出，与接口响应的路径相同
+    private static byte[] write(ResultBody body) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        new ResultBodyHttpMessageConverter().write(body, MediaType.APPLICATION_JSON, output);
+        return output.getBodyAsBytes();
+    }
+
+    private static void assertSameAsResult(Object data) throws IOException {
+        byte[] expected = Result.okGetStringByData(MESSAGE, data).getBytes(StandardCharsets.UTF_8);
+        ResultBody body = Result.okBody(MESSAGE, data);
+
+        assertArrayEquals(expected, write(body));
+        assertEquals(new String(expected, StandardCharsets.UTF_8), body.toString());
+    }
+
+    @Test
+    public void testAsciiList() throws IOException {
+        assertSameAsResult(Arrays.asList(drug("aspirin"), drug("ibuprofen"), null));
+    }
+
+    @Test
+    public void testNonAsciiList() throws IOException {
+        assertSameAsResult(Arrays.asList(drug("阿司匹林"), drug("布洛芬 \"缓释\"\n"), drug("💊")));
+    }
+
+    @Test
+    public void testEmptyList() throws IOException {
+        assertSameAsResult(Collections.emptyList());
+    }
+
+    @Test
+    public void testListLargerThanBuffer() throws IOException {
+        // 超过 16KB 的写缓冲区，覆盖缓冲区写满后的分段写出
+        List<Drug> drugs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            drugs.add(drug("药品-" + i));
+        }
+        assertSameAsResult(drugs);
+    }
+
+    @Test
+    public void testNonListData() throws IOException {
+        assertSameAsResult(drug("阿司匹林"));
+        assertSameAsResult(null);
+    }
+}